@@ -7,23 +7,38 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import hudson.plugins.analysis.util.Compatibility;
 import hudson.plugins.analysis.util.ContextHashCode;
+import hudson.plugins.analysis.util.PackageDetectors;
 import hudson.plugins.analysis.util.model.AbstractAnnotation;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 
 /**
- * A base class for parsers that work on files and produce annotations.
+ * A base class for parsers that work on files and produce annotations. Subclasses that are capable of
+ * streaming should override {@link #parse(InputStream, String, AnnotationSink)} and implement
+ * {@link #parse(InputStream, String)} using a {@link CollectingAnnotationSink}.
  *
  * @author Ulli Hafner
  */
-public abstract class AbstractAnnotationParser implements AnnotationParser {
+public abstract class AbstractAnnotationParser implements StreamingAnnotationParser {
     /** Unique identifier of this class. */
     private static final long serialVersionUID = 4014720188570415914L;
 
+    /**
+     * The detected package names of the parse call that is running in the current thread, mapped by file name. The
+     * names are forgotten when the call is finished, so changed source files are read again in the next build.
+     */
+    private static final ThreadLocal<Map<String, String>> PACKAGE_NAMES = new ThreadLocal<Map<String, String>>();
+
     /** The default encoding to be used when reading and parsing files. */
     private final String defaultEncoding;
 
@@ -48,6 +63,7 @@ public abstract class AbstractAnnotationParser implements AnnotationParser {
 
     @Override
     public Collection<FileAnnotation> parse(final File file, final String moduleName) throws InvocationTargetException {
+        boolean isOutermostCall = startPackageNames();
         FileInputStream input = null;
         try {
             input = new FileInputStream(file);
@@ -58,9 +74,72 @@ public abstract class AbstractAnnotationParser implements AnnotationParser {
         }
         finally {
             IOUtils.closeQuietly(input);
+            finishPackageNames(isOutermostCall);
+        }
+    }
+
+    @Override
+    public void parse(final File file, final String moduleName, final AnnotationSink sink)
+            throws InvocationTargetException {
+        if (Compatibility.isOverridden(AbstractAnnotationParser.class, getClass(), "parse", File.class, String.class)) {
+            StreamingParserAdapter.addAll(parse(file, moduleName), sink);
+            return;
+        }
+
+        boolean isOutermostCall = startPackageNames();
+        FileInputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            parse(input, moduleName, sink);
+        }
+        catch (FileNotFoundException exception) {
+            throw new InvocationTargetException(exception);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+            finishPackageNames(isOutermostCall);
         }
     }
 
+    /**
+     * Starts to remember the detected package names for the parse call in the current thread.
+     *
+     * @return <code>true</code> if this is the outermost parse call of the current thread
+     */
+    private boolean startPackageNames() {
+        if (PACKAGE_NAMES.get() == null) {
+            PACKAGE_NAMES.set(Maps.<String, String>newHashMap());
+            return true;
+        }
+        return false;
+    }
+
+    private void finishPackageNames(final boolean isOutermostCall) {
+        if (isOutermostCall) {
+            PACKAGE_NAMES.remove();
+        }
+    }
+
+    /**
+     * Parses the specified input stream and adds all found annotations to the specified sink. This default
+     * implementation delegates to {@link #parse(InputStream, String)} and adds the returned annotations to the sink.
+     * The sink is responsible for interning the annotations.
+     *
+     * @param file
+     *            the file to parse
+     * @param moduleName
+     *            name of the maven module
+     * @param sink
+     *            the sink that receives the found annotations
+     * @throws InvocationTargetException
+     *             if the file could not be parsed (wrap your exception in this exception)
+     * @since 1.97
+     */
+    public void parse(final InputStream file, final String moduleName, final AnnotationSink sink)
+            throws InvocationTargetException {
+        StreamingParserAdapter.addAll(parse(file, moduleName), sink);
+    }
+
     /**
      * Let {@link FileAnnotation}s share some of their internal data structure
      * to reduce memory footprint.
@@ -87,6 +166,71 @@ public abstract class AbstractAnnotationParser implements AnnotationParser {
      */
     public abstract Collection<FileAnnotation> parse(final InputStream file, final String moduleName) throws InvocationTargetException;
 
+    /**
+     * Detects the package or namespace name of the specified file. The file is
+     * read using the default encoding. Each file is read only once during a
+     * call of {@link #parse(File, String)}, so the name is not detected again
+     * for each warning in the same file.
+     *
+     * @param fileName
+     *            the absolute path of the file to read
+     * @return the package name or {@link PackageDetectors#UNDEFINED_PACKAGE}
+     * @since 1.97
+     */
+    protected String detectPackageName(final String fileName) {
+        Map<String, String> cache = getPackageNames();
+        String packageName = cache.get(fileName);
+        if (packageName == null) {
+            packageName = PackageDetectors.detectPackageName(fileName, defaultEncoding);
+            cache.put(fileName, packageName);
+        }
+        return packageName;
+    }
+
+    /**
+     * Detects the package or namespace names of all specified annotations
+     * that have no package name yet. The files are read in parallel using the
+     * default encoding, each file is read only once during a call of
+     * {@link #parse(File, String)}.
+     *
+     * @param annotations
+     *            the annotations to set the package names for
+     * @param parallelism
+     *            the maximum number of files to read in parallel
+     * @throws InterruptedException
+     *             if the user cancels the detection
+     * @since 1.97
+     */
+    protected void detectPackageNames(final Collection<? extends FileAnnotation> annotations, final int parallelism)
+            throws InterruptedException {
+        Map<String, String> cache = getPackageNames();
+
+        List<AbstractAnnotation> withoutPackage = Lists.newArrayList();
+        List<String> fileNames = Lists.newArrayList();
+        for (FileAnnotation annotation : annotations) {
+            if (annotation instanceof AbstractAnnotation && !annotation.hasPackageName()
+                    && annotation.getFileName() != null) {
+                withoutPackage.add((AbstractAnnotation)annotation);
+                if (!cache.containsKey(annotation.getFileName())) {
+                    fileNames.add(annotation.getFileName());
+                }
+            }
+        }
+        cache.putAll(PackageDetectors.detectPackageNames(fileNames, defaultEncoding, parallelism));
+
+        for (AbstractAnnotation annotation : withoutPackage) {
+            annotation.setPackageName(cache.get(annotation.getFileName()));
+        }
+    }
+
+    private Map<String, String> getPackageNames() {
+        Map<String, String> packageNames = PACKAGE_NAMES.get();
+        if (packageNames == null) {
+            return Maps.newHashMap(); // not called during a parse call: nothing to remember
+        }
+        return packageNames;
+    }
+
     /**
      * Creates a hash code from the source code of the warning line and the
      * surrounding context.
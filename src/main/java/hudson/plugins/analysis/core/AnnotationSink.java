@@ -0,0 +1,22 @@
+package hudson.plugins.analysis.core;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Receives the annotations of a {@link StreamingAnnotationParser} one by one, as soon as they have been parsed. So
+ * parsers do not need to materialize all annotations of a file in a collection.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public interface AnnotationSink {
+    /**
+     * Adds the specified annotation to this sink.
+     *
+     * @param annotation
+     *            the annotation to add
+     * @return <code>true</code> if the annotation has been added, <code>false</code> if the sink already contains
+     *         an equal annotation
+     */
+    boolean add(FileAnnotation annotation);
+}
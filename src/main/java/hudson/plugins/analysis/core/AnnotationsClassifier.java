@@ -1,11 +1,25 @@
 package hudson.plugins.analysis.core;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import jenkins.MasterToSlaveFileCallable;
 
+import hudson.plugins.analysis.util.CacheFiles;
 import hudson.plugins.analysis.util.ContextHashCode;
+import hudson.plugins.analysis.util.ContextHashCodeCache;
+import hudson.plugins.analysis.util.StringPluginLogger;
+import hudson.plugins.analysis.util.WorkerPool;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 
 import hudson.remoting.VirtualChannel;
@@ -13,19 +27,25 @@ import hudson.remoting.VirtualChannel;
 /**
  * Reads the content of each file with warnings and creates a unique hash code
  * of the warning to enable a more flexible new and fixed warnings detection.
+ * The hash codes of files that have not been changed since the last build are
+ * obtained from a cache that is stored next to the workspace.
  *
  * @author Ulli Hafner
  */
 public class AnnotationsClassifier extends MasterToSlaveFileCallable<ParserResult> {
     /** Generated ID. */
     private static final long serialVersionUID = 5152042155205600031L;
+    /** Name of the file that stores the cached hash codes, relative to the temporary directory of the workspace. */
+    private static final String CACHE_FILE = "analysis-core/context-hash-codes.bin";
     /** All annotations. */
     private final ParserResult result;
     /** The default encoding to be used when reading and parsing files. */
     private final String defaultEncoding;
+    /** The maximum number of threads that compute the hash codes of the files. @since 1.97 */
+    private final int parallelism;
 
     /**
-     * Creates a new instance of {@link AnnotationsClassifier}.
+     * Creates a new instance of {@link AnnotationsClassifier}. The files are read sequentially.
      *
      * @param result
      *            the annotations to assign a module for
@@ -33,17 +53,125 @@ public class AnnotationsClassifier extends MasterToSlaveFileCallable<ParserResul
      *            the default encoding to be used when reading and parsing files
      */
     public AnnotationsClassifier(final ParserResult result, final String defaultEncoding) {
+        this(result, defaultEncoding, WorkerPool.SEQUENTIAL);
+    }
+
+    /**
+     * Creates a new instance of {@link AnnotationsClassifier}.
+     *
+     * @param result
+     *            the annotations to assign a module for
+     * @param defaultEncoding
+     *            the default encoding to be used when reading and parsing files
+     * @param parallelism
+     *            the maximum number of threads that read the files in parallel, see
+     *            {@link PerformanceSettings#getParallelism()}
+     * @since 1.97
+     */
+    public AnnotationsClassifier(final ParserResult result, final String defaultEncoding, final int parallelism) {
         this.result = result;
         this.defaultEncoding = defaultEncoding;
+        this.parallelism = parallelism;
     }
 
     @Override
-    public ParserResult invoke(final File workspace, final VirtualChannel channel) throws IOException {
-        ContextHashCode contextHashCode = new ContextHashCode();
-        for (FileAnnotation annotation : result.getAnnotations()) {
-            annotation.setContextHashCode(contextHashCode.compute(
-                    annotation.getFileName(), annotation.getPrimaryLineNumber(), defaultEncoding));
+    public ParserResult invoke(final File workspace, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+        long start = StageTimings.start();
+        final ContextHashCode contextHashCode = new ContextHashCode();
+        final ContextHashCodeCache cache = ContextHashCodeCache.load(getCacheFile(workspace));
+
+        Map<String, List<FileAnnotation>> annotationsByFile = groupByFileName(result.getAnnotations());
+        List<Callable<Map<Integer, Integer>>> tasks = Lists.newArrayListWithCapacity(annotationsByFile.size());
+        for (final Entry<String, List<FileAnnotation>> file : annotationsByFile.entrySet()) {
+            final List<Integer> lines = Lists.newArrayListWithCapacity(file.getValue().size());
+            for (FileAnnotation annotation : file.getValue()) {
+                lines.add(annotation.getPrimaryLineNumber());
+            }
+            tasks.add(new Callable<Map<Integer, Integer>>() {
+                @Override
+                public Map<Integer, Integer> call() {
+                    return cache.compute(contextHashCode, file.getKey(), lines, defaultEncoding);
+                }
+            });
         }
+
+        List<Map<Integer, Integer>> hashCodesPerFile = computeHashCodes(tasks);
+
+        int position = 0;
+        for (List<FileAnnotation> annotations : annotationsByFile.values()) {
+            Map<Integer, Integer> hashCodes = hashCodesPerFile.get(position++);
+            for (FileAnnotation annotation : annotations) {
+                annotation.setContextHashCode(hashCodes.get(annotation.getPrimaryLineNumber()));
+            }
+        }
+
+        cache.save();
+        result.getTimings().record("classify", start, annotationsByFile.size(), getLength(annotationsByFile.keySet()));
+        log(String.format("Context hash codes: %d found in cache, %d computed (%d cached in total)",
+                cache.getHits(), cache.getMisses(), cache.size()));
+
         return result;
     }
+
+    private long getLength(final Collection<String> fileNames) {
+        long length = 0;
+        for (String fileName : fileNames) {
+            length += new File(fileName).length();
+        }
+        return length;
+    }
+
+    private void log(final String message) {
+        StringPluginLogger logger = new StringPluginLogger("[ANALYSIS] ");
+        logger.log(message);
+        result.setLog(result.getLogMessages() + logger.toString());
+    }
+
+    /**
+     * Returns the file that stores the cached hash codes. This file is located in the temporary directory of the
+     * workspace, so it will not interfere with the workspace files.
+     *
+     * @param workspace
+     *            the workspace
+     * @return the cache file, or <code>null</code> if the hash codes should not be cached
+     */
+    @CheckForNull
+    private File getCacheFile(final File workspace) {
+        return CacheFiles.getFile(workspace, CACHE_FILE);
+    }
+
+    private List<Map<Integer, Integer>> computeHashCodes(final List<Callable<Map<Integer, Integer>>> tasks)
+            throws IOException, InterruptedException {
+        try {
+            return new WorkerPool("AnnotationsClassifier", parallelism).invokeAll(tasks);
+        }
+        catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw new IOException(exception.getCause());
+        }
+    }
+
+    /**
+     * Groups the specified annotations by the name of the file that contains the annotations. So each file needs
+     * to be read only once.
+     *
+     * @param annotations
+     *            the annotations to group
+     * @return the annotations, mapped by file name
+     */
+    private Map<String, List<FileAnnotation>> groupByFileName(final Collection<FileAnnotation> annotations) {
+        Map<String, List<FileAnnotation>> annotationsByFile = Maps.newLinkedHashMap();
+        for (FileAnnotation annotation : annotations) {
+            List<FileAnnotation> annotationsInFile = annotationsByFile.get(annotation.getFileName());
+            if (annotationsInFile == null) {
+                annotationsInFile = Lists.newArrayList();
+                annotationsByFile.put(annotation.getFileName(), annotationsInFile);
+            }
+            annotationsInFile.add(annotation);
+        }
+        return annotationsByFile;
+    }
 }
\ No newline at end of file
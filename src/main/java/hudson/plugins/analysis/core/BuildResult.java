@@ -1,11 +1,16 @@
 package hudson.plugins.analysis.core; // NOPMD
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.io.File;
+import java.io.FilenameFilter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.NotSerializableException;
 import java.io.Serializable;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -15,6 +20,8 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.time.DateUtils;
@@ -24,6 +31,7 @@ import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
 import org.kohsuke.stapler.export.ExportedBean;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.infradna.tool.bridge_method_injector.WithBridgeMethods;
 import com.thoughtworks.xstream.XStream;
@@ -31,19 +39,26 @@ import com.thoughtworks.xstream.XStream;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jenkins.model.Jenkins;
 
+import hudson.Extension;
 import hudson.XmlFile;
 import hudson.model.AbstractBuild;
 import hudson.model.Api;
 import hudson.model.ModelObject;
 import hudson.model.Result;
 import hudson.model.Run;
+import hudson.model.listeners.RunListener;
 import hudson.plugins.analysis.Messages;
+import hudson.plugins.analysis.util.Compatibility;
 import hudson.plugins.analysis.util.HtmlPrinter;
 import hudson.plugins.analysis.util.PluginLogger;
 import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.AnnotationDelta;
+import hudson.plugins.analysis.util.model.AnnotationIndex;
 import hudson.plugins.analysis.util.model.AnnotationProvider;
 import hudson.plugins.analysis.util.model.AnnotationStream;
+import hudson.plugins.analysis.util.model.AnnotationSummary;
 import hudson.plugins.analysis.util.model.AnnotationsLabelProvider;
+import hudson.plugins.analysis.util.model.BinaryAnnotationFile;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.JavaProject;
 import hudson.plugins.analysis.util.model.MavenModule;
@@ -64,6 +79,8 @@ import hudson.plugins.analysis.views.DetailFactory;
 public abstract class BuildResult implements ModelObject, Serializable, AnnotationProvider {
     private static final long serialVersionUID = 1110545450292087475L;
     private static final Logger LOGGER = Logger.getLogger(BuildResult.class.getName());
+    /** Maximum number of deltas that need to be applied to restore the annotations of a build. */
+    static final int MAXIMUM_DELTA_CHAIN = 20;
 
     private static final String UNSTABLE = "yellow.png";
     private static final String FAILED = "red.png";
@@ -94,6 +111,8 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     /** The project containing the annotations. */
     @SuppressFBWarnings("Se")
     private transient WeakReference<JavaProject> project;
+    /** The error that occurred while loading the project, <code>null</code> if loaded successfully. @since 1.97 */
+    private transient volatile String loadError;
     /** All new warnings in the current build. */
     @SuppressFBWarnings("Se")
     private transient WeakReference<Collection<FileAnnotation>> newWarningsReference;
@@ -102,6 +121,22 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     private transient WeakReference<Collection<FileAnnotation>> fixedWarningsReference;
     /** The build history for the results of this plug-in. */
     private transient BuildHistory history;
+    /** The timings of the stages that created this result, only available while the build is running. @since 1.97 */
+    @SuppressFBWarnings("Se")
+    private transient StageTimings timings;
+    /**
+     * The annotations of the difference that has been computed when this result has been created, until these
+     * annotations are serialized. The reference is weak, since a sub class might never serialize the annotations.
+     * @since 1.97
+     */
+    @SuppressFBWarnings("Se")
+    private transient WeakReference<Set<FileAnnotation>> unsavedAnnotations;
+    /** The fixed warnings of this difference, until they are serialized. @since 1.97 */
+    @SuppressFBWarnings("Se")
+    private transient WeakReference<Set<FileAnnotation>> unsavedFixedWarnings;
+    /** The summary of all warnings. @since 1.97 */
+    @SuppressFBWarnings("Se")
+    private transient WeakReference<AnnotationSummary> summary;
 
     /** The number of warnings in this build. */
     private int numberOfWarnings;
@@ -194,6 +229,13 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @since 1.20
      */
     private int referenceBuild;
+    /**
+     * The number of deltas that need to be applied to restore the annotations of this result, 0 if all annotations
+     * are stored.
+     *
+     * @since 1.97
+     */
+    private int deltaChainLength;
     /**
      * Describes the reason for the build result evaluation.
      *
@@ -274,6 +316,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         this.history = history;
         owner = build;
         this.defaultEncoding = defaultEncoding;
+        timings = result.getTimings();
 
         modules = new HashSet<String>(result.getModules());
         numberOfModules = modules.size();
@@ -290,6 +333,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
 
         // FIXME: why is there a flag to enable computation of new warnings?
 
+        long start = StageTimings.start();
         IssueDifference difference = new IssueDifference(allWarnings, referenceResult.getAnnotations());
         Set<FileAnnotation> newWarnings = difference.getNewIssues();
         numberOfNewWarnings = newWarnings.size();
@@ -298,6 +342,9 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         Set<FileAnnotation> fixedWarnings = difference.getFixedIssues();
         numberOfFixedWarnings = fixedWarnings.size();
         fixedWarningsReference = new WeakReference<Collection<FileAnnotation>>(fixedWarnings);
+        timings.record("difference", start, allWarnings.size());
+        unsavedAnnotations = new WeakReference<Set<FileAnnotation>>(allWarnings);
+        unsavedFixedWarnings = new WeakReference<Set<FileAnnotation>>(fixedWarnings);
 
         highWarnings = result.getNumberOfAnnotations(Priority.HIGH);
         normalWarnings = result.getNumberOfAnnotations(Priority.NORMAL);
@@ -326,6 +373,20 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         return history;
     }
 
+    /**
+     * Returns the timings of the stages that created this result. The timings are not persisted, so the returned
+     * timings are empty if this result has been loaded from disk.
+     *
+     * @return the timings
+     * @since 1.97
+     */
+    public StageTimings getTimings() {
+        if (timings == null) {
+            timings = new StageTimings();
+        }
+        return timings;
+    }
+
     @SuppressFBWarnings("NP")
     private void defineReferenceBuild(final BuildHistory buildHistory) {
         if (buildHistory.hasReferenceBuild()) {
@@ -424,16 +485,36 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return <code>true</code> if at least one module has an error.
      */
     public boolean hasError() {
-        return !errors.isEmpty();
+        return !errors.isEmpty() || loadError != null;
     }
 
     /**
-     * Returns the error messages associated with this build.
+     * Returns the error messages associated with this build. If the annotations of this result could not be loaded,
+     * then the corresponding error message is part of the returned list.
      *
      * @return the error messages
+     * @see #isCorrupted()
      */
     public List<String> getErrors() {
-        return errors;
+        String error = loadError;
+        if (error == null) {
+            return errors;
+        }
+        List<String> allErrors = new ArrayList<String>(errors);
+        allErrors.add(error);
+        return allErrors;
+    }
+
+    /**
+     * Returns whether the annotations of this result could not be loaded the last time they have been loaded. Then
+     * the project of this result contains no annotations but an error message, so the numbers of the persisted
+     * summary are the only valid values. This method does not load the annotations.
+     *
+     * @return <code>true</code> if the annotations of this result could not be loaded, <code>false</code> otherwise
+     * @since 1.97
+     */
+    public boolean isCorrupted() {
+        return loadError != null;
     }
 
     /**
@@ -528,11 +609,27 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     }
 
     /**
-     * Returns the serialization file for all warnings.
+     * Returns the XML serialization file for all warnings.
      *
      * @return the serialization file.
+     * @deprecated since 1.97 the warnings are not always stored in this file: if binary results are enabled, then the
+     *             warnings are stored in the file {@link #getBinaryDataFile()}; if delta results are enabled, then
+     *             only the difference to the reference build is stored in a separate delta file. In both cases this
+     *             file does not exist. Use {@link #getAnnotations()} or {@link #getContainer()} to obtain
+     *             the warnings.
      */
+    @Deprecated
     public final XmlFile getDataFile() {
+        return getXmlDataFile();
+    }
+
+    /**
+     * Returns the XML serialization file for all warnings. This file is deleted if the warnings are stored in the
+     * binary file or as delta to the reference build.
+     *
+     * @return the serialization file.
+     */
+    private XmlFile getXmlDataFile() {
         return new XmlFile(getXStream(), new File(getOwner().getRootDir(), getSerializationFileName()));
     }
 
@@ -546,6 +643,82 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
                 getSerializationFileName().replace(".xml", "-fixed.xml")));
     }
 
+    /**
+     * Returns the binary serialization file for all warnings. This file is used instead of the XML file
+     * {@link #getXmlDataFile()} if binary results are enabled in the {@link GlobalSettings}.
+     *
+     * @return the binary serialization file
+     * @since 1.97
+     */
+    public final BinaryAnnotationFile getBinaryDataFile() {
+        return createBinaryDataFile(getSerializationFileName().replace(".xml", ".bin"));
+    }
+
+    /**
+     * Returns the serialization file for the summary of all warnings.
+     *
+     * @return the serialization file
+     */
+    private XmlFile getSummaryFile() {
+        return new XmlFile(getXStream(), new File(getOwner().getRootDir(),
+                getSerializationFileName().replace(".xml", "-summary.xml")));
+    }
+
+    /**
+     * Returns the index of the binary serialization file for all warnings.
+     *
+     * @return the index file
+     */
+    private File getIndexFile() {
+        return new File(getOwner().getRootDir(), getSerializationFileName().replace(".xml", ".idx"));
+    }
+
+    /**
+     * Returns the serialization file for the delta of all warnings relative to the warnings of the reference build.
+     * This file is used instead of the data files if delta results are enabled in the {@link GlobalSettings}.
+     *
+     * @return the serialization file
+     */
+    private XmlFile getDeltaFile() {
+        return new XmlFile(getXStream(), new File(getOwner().getRootDir(),
+                getSerializationFileName().replace(".xml", "-delta.xml")));
+    }
+
+    /**
+     * Returns the file with the numbers of the builds that store their warnings relative to the warnings of this
+     * build.
+     *
+     * @return the file with the dependent builds
+     */
+    private File getDependentsFile() {
+        return new File(getOwner().getRootDir(), getSerializationFileName().replace(".xml", "-dependents.txt"));
+    }
+
+    private BinaryAnnotationFile getBinaryFixedDataFile() {
+        return createBinaryDataFile(getSerializationFileName().replace(".xml", "-fixed.bin"));
+    }
+
+    private BinaryAnnotationFile createBinaryDataFile(final String fileName) {
+        Jenkins jenkins = Jenkins.getInstance();
+        ClassLoader classLoader;
+        if (jenkins == null) {
+            classLoader = getClass().getClassLoader();
+        }
+        else {
+            classLoader = jenkins.getPluginManager().uberClassLoader;
+        }
+        return new BinaryAnnotationFile(new File(getOwner().getRootDir(), fileName), classLoader);
+    }
+
+    /**
+     * Returns the global settings that define how the annotations are stored.
+     *
+     * @return the global settings
+     */
+    PerformanceSettings getSettings() {
+        return GlobalSettings.getPerformanceSettings();
+    }
+
     /**
      * Returns the {@link XStream} to use.
      *
@@ -606,12 +779,12 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
 
     @Override
     public boolean hasAnnotations(final Priority priority) {
-        return getContainer().hasAnnotations(priority);
+        return getNumberOfAnnotations(priority) > 0;
     }
 
     @Override
     public boolean hasAnnotations(final String priority) {
-        return getContainer().hasAnnotations(priority);
+        return hasAnnotations(Priority.fromString(priority));
     }
 
     @Override
@@ -693,25 +866,455 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
 
     /**
      * Serializes the annotations of the specified project and writes them to
-     * the file specified by method {@link #getDataFile()}.
+     * the file specified by method {@link #getXmlDataFile()}, or to the file
+     * specified by method {@link #getBinaryDataFile()} if binary results are
+     * enabled. The binary file is accompanied by an {@link AnnotationIndex}
+     * so that detail pages need to read only the annotations they show. If
+     * delta results are enabled, then only the difference to the warnings of
+     * the reference build is stored in the file specified by method
+     * {@link #getDeltaFile()}.
      *
      * @param annotations
      *            the annotations to store
      */
     protected void serializeAnnotations(final Collection<FileAnnotation> annotations) {
         try {
-            getDataFile().write(annotations.toArray(new FileAnnotation[annotations.size()]));
-
-            Set<FileAnnotation> allAnnotations = new HashSet<FileAnnotation>();
-            allAnnotations.addAll(annotations);
-            Collection<FileAnnotation> fixedWarnings = history.getFixedWarnings(allAnnotations);
-            getFixedDataFile().write(fixedWarnings.toArray(new FileAnnotation[fixedWarnings.size()]));
+            long start = StageTimings.start();
+            FileAnnotation[] allAnnotations = annotations.toArray(new FileAnnotation[annotations.size()]);
+            long size = writeAnnotations(allAnnotations);
+            size += writeSummary(allAnnotations);
+
+            Collection<FileAnnotation> fixedWarnings = getFixedWarnings(annotations);
+            size += write(fixedWarnings.toArray(new FileAnnotation[fixedWarnings.size()]),
+                    getFixedDataFile(), getBinaryFixedDataFile());
+            getTimings().record("serialize", start, annotations.size(), size);
         }
         catch (IOException exception) {
             LOGGER.log(Level.SEVERE, "Failed to serialize the annotations of the build.", exception);
         }
     }
 
+    /**
+     * Returns the fixed warnings of the specified annotations. If these are the annotations of the difference that
+     * has been computed when this result has been created, then the fixed warnings of this difference are used.
+     * Otherwise, e.g. if the difference has been garbage collected meanwhile, the reference build is loaded and the
+     * difference is computed again.
+     *
+     * @param annotations
+     *            the annotations of this build
+     * @return the fixed warnings
+     */
+    private Collection<FileAnnotation> getFixedWarnings(final Collection<FileAnnotation> annotations) {
+        Set<FileAnnotation> currentAnnotations = new HashSet<FileAnnotation>();
+        currentAnnotations.addAll(annotations);
+
+        Set<FileAnnotation> fixedWarnings = unsavedFixedWarnings == null ? null : unsavedFixedWarnings.get();
+        boolean isUnchanged = fixedWarnings != null && unsavedAnnotations != null
+                && currentAnnotations.equals(unsavedAnnotations.get());
+        unsavedAnnotations = null;
+        unsavedFixedWarnings = null;
+        if (isUnchanged) {
+            return fixedWarnings;
+        }
+        return history.getFixedWarnings(currentAnnotations);
+    }
+
+    /**
+     * Writes the delta of the annotations to the warnings of the reference build if enabled and possible. Otherwise,
+     * all annotations are written to the data files. The files of the reference build are kept in the folder of this
+     * build using hard links, if supported by the file system, so that the annotations can be restored even if the
+     * folder of the reference build is removed without notifying the {@link Cleaner}.
+     *
+     * @return the size of the written files
+     */
+    private long writeAnnotations(final FileAnnotation[] annotations) throws IOException {
+        File indexFile = getIndexFile();
+        delete(indexFile);
+        XmlFile deltaFile = getDeltaFile();
+        AnnotationDelta delta = createDelta(annotations);
+        if (delta != null) {
+            try {
+                deltaFile.write(delta);
+                delete(getXmlDataFile().getFile());
+                delete(getBinaryDataFile().getFile());
+                deltaChainLength = delta.getChainLength();
+
+                BuildResult reference = getResult(delta.getReferenceBuild());
+                if (reference != null) {
+                    keepFiles(reference, false);
+                }
+                return deltaFile.getFile().length();
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to write delta file " + deltaFile + ", storing all warnings",
+                        exception);
+            }
+        }
+        long size = write(annotations, getXmlDataFile(), getBinaryDataFile());
+        delete(deltaFile.getFile());
+        deltaChainLength = 0;
+
+        return size + writeIndex(annotations, getBinaryDataFile(), indexFile);
+    }
+
+    /**
+     * Creates the delta of the specified annotations to the warnings of the reference build. A full snapshot is
+     * stored instead if the chain of deltas would get too long, if the warnings of the reference build could not be
+     * loaded, or if the delta is not significantly smaller than all annotations.
+     *
+     * @return the delta, or <code>null</code> if all annotations should be stored
+     */
+    @CheckForNull
+    private AnnotationDelta createDelta(final FileAnnotation[] annotations) {
+        if (!getSettings().getDeltaResults() || isContainerOverridden()) {
+            return null;
+        }
+        BuildResult reference = getResult(referenceBuild);
+        if (reference == null || reference.isContainerOverridden()) {
+            return null;
+        }
+        int chainLength = reference.deltaChainLength + 1;
+        if (chainLength > MAXIMUM_DELTA_CHAIN) {
+            return null;
+        }
+        Collection<FileAnnotation> referenceAnnotations = reference.getContainer().getAnnotations();
+        if (reference.isCorrupted()) {
+            return null;
+        }
+        AnnotationDelta delta = AnnotationDelta.create(referenceBuild, chainLength, annotations, referenceAnnotations);
+        if (delta.getNumberOfChanges() > annotations.length / 2 || !reference.addDependent(getOwner().getNumber())) {
+            return null;
+        }
+        return delta;
+    }
+
+    /**
+     * Returns the result of the specified build of the same job.
+     *
+     * @param number
+     *            the number of the build
+     * @return the result, or <code>null</code> if there is no such build or the build has no result
+     */
+    @CheckForNull
+    private BuildResult getResult(final int number) {
+        Run<?, ?> build = getOwner().getParent().getBuildByNumber(number);
+        if (build != null) {
+            ResultAction<? extends BuildResult> action = build.getAction(getResultActionType());
+            if (action != null) {
+                return action.getResult();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registers a build that stores its annotations relative to the annotations of this result.
+     *
+     * @return <code>true</code> if the build has been registered, <code>false</code> otherwise
+     */
+    private boolean addDependent(final int build) {
+        File dependentsFile = getDependentsFile();
+        try {
+            FileOutputStream output = new FileOutputStream(dependentsFile, true);
+            try {
+                IOUtils.write(build + "\n", output, "UTF-8");
+            }
+            finally {
+                output.close();
+            }
+            return true;
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Failed to write " + dependentsFile + ", storing all warnings", exception);
+
+            return false;
+        }
+    }
+
+    /**
+     * Stores all annotations of the builds that store their annotations relative to the annotations of this result.
+     * This method needs to be called before the build of this result is deleted.
+     *
+     * @since 1.97
+     */
+    public void materializeDependents() {
+        File dependentsFile = getDependentsFile();
+        if (!dependentsFile.exists()) {
+            return;
+        }
+        try {
+            for (String line : FileUtils.readLines(dependentsFile, "UTF-8")) {
+                if (StringUtils.isNotEmpty(line) && StringUtils.isNumeric(line)) {
+                    BuildResult dependent = getResult(Integer.parseInt(line));
+                    if (dependent != null) {
+                        dependent.materialize(this);
+                    }
+                }
+            }
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Failed to read " + dependentsFile, exception);
+        }
+    }
+
+    /**
+     * Replaces the delta of the annotations by all annotations. If the annotations could not be stored, then the
+     * files of the specified result, whose build is going to be deleted, are kept in the folder of this build, so that
+     * the annotations of this build can still be restored.
+     */
+    private void materialize(final BuildResult deleted) {
+        XmlFile deltaFile = getDeltaFile();
+        synchronized (projectLock) {
+            if (!deltaFile.exists()) {
+                return;
+            }
+            try {
+                FileAnnotation[] annotations = readAnnotations();
+                write(annotations, getXmlDataFile(), getBinaryDataFile());
+                writeIndex(annotations, getBinaryDataFile(), getIndexFile());
+                delete(deltaFile.getFile());
+                deltaChainLength = 0;
+                for (File keptFile : getKeptFiles()) {
+                    delete(keptFile);
+                }
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.SEVERE, "Failed to store all warnings of build " + getOwner().getNumber()
+                        + ", keeping the warnings of build " + deleted.getOwner().getNumber(), exception);
+                keep(deleted);
+            }
+        }
+    }
+
+    /**
+     * Keeps the files of the specified result, whose build is going to be deleted, in the folder of this build. If
+     * the deleted build stores its annotations as a delta as well, then this build is registered as dependent of the
+     * reference build of the deleted build, so that the files are kept again if this reference build is deleted.
+     */
+    private void keep(final BuildResult deleted) {
+        if (keepFiles(deleted, true) && deleted.getDeltaFile().exists()) {
+            BuildResult reference = getResult(deleted.referenceBuild);
+            if (reference != null) {
+                reference.addDependent(getOwner().getNumber());
+            }
+        }
+    }
+
+    /**
+     * Keeps the files that store the annotations of the specified reference build in the folder of this build,
+     * together with the files of other builds the reference build keeps. The files are linked if the file system
+     * supports hard links, otherwise they are copied if requested.
+     *
+     * @return <code>true</code> if all files have been kept, <code>false</code> otherwise
+     */
+    private boolean keepFiles(final BuildResult reference, final boolean canCopy) {
+        List<File> sources = reference.new AnnotationFiles(StringUtils.EMPTY).getFiles();
+        List<File> targets = new AnnotationFiles(getKeptSuffix(reference.getOwner().getNumber())).getFiles();
+        for (File keptFile : reference.getKeptFiles()) {
+            sources.add(keptFile);
+            targets.add(new File(getOwner().getRootDir(), keptFile.getName()));
+        }
+        boolean isKept = true;
+        for (int position = 0; position < sources.size(); position++) {
+            File source = sources.get(position);
+            File target = targets.get(position);
+            if (source.exists() && !target.exists()) {
+                isKept &= keepFile(source, target, canCopy);
+            }
+        }
+        return isKept;
+    }
+
+    private boolean keepFile(final File source, final File target, final boolean canCopy) {
+        try {
+            java.nio.file.Files.createLink(target.toPath(), source.toPath());
+
+            return true;
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Can't link " + source + " to " + target, exception);
+        }
+        catch (UnsupportedOperationException exception) {
+            LOGGER.log(Level.FINE, "Can't link " + source + " to " + target, exception);
+        }
+        if (canCopy) {
+            try {
+                java.nio.file.Files.copy(source.toPath(), target.toPath());
+
+                return true;
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.SEVERE, "Failed to copy " + source + " to " + target, exception);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the files of other builds that are kept in the folder of this build.
+     *
+     * @return the kept files
+     */
+    private List<File> getKeptFiles() {
+        final String prefix = getSerializationFileName().replace(".xml", getKeptSuffix(StringUtils.EMPTY));
+        File[] files = getOwner().getRootDir().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File dir, final String name) {
+                return name.startsWith(prefix);
+            }
+        });
+        if (files == null) {
+            return Lists.newArrayList();
+        }
+        return Lists.newArrayList(files);
+    }
+
+    private String getKeptSuffix(final Object build) {
+        return "-reference-" + build;
+    }
+
+    /**
+     * Writes the annotations to the binary file if enabled, otherwise to the XML file. The file of the other format
+     * is deleted, so that the annotations are not read from an outdated file. If the annotations could not be
+     * written to the binary file (e.g., if an annotation class has a field of a type that is not supported by the
+     * binary file), then the XML file is used.
+     *
+     * @return the size of the written file
+     */
+    private long write(final FileAnnotation[] annotations, final XmlFile xmlFile,
+            final BinaryAnnotationFile binaryFile) throws IOException {
+        if (getSettings().getBinaryResults()) {
+            try {
+                binaryFile.write(annotations);
+                delete(xmlFile.getFile());
+
+                return binaryFile.getFile().length();
+            }
+            catch (NotSerializableException exception) {
+                LOGGER.log(Level.FINE, "Annotations not supported by binary data file " + binaryFile + ", using XML",
+                        exception);
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to write binary data file " + binaryFile + ", using XML", exception);
+            }
+        }
+        xmlFile.write(annotations);
+        delete(binaryFile.getFile());
+
+        return xmlFile.getFile().length();
+    }
+
+    /**
+     * Writes the index of the binary file. The outdated index has already been deleted, so a missing index just
+     * means that detail pages read all annotations.
+     *
+     * @return the size of the written index
+     */
+    private long writeIndex(final FileAnnotation[] annotations, final BinaryAnnotationFile binaryFile,
+            final File indexFile) {
+        if (binaryFile.exists()) {
+            try {
+                AnnotationIndex.create(annotations).write(indexFile);
+
+                return indexFile.length();
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to write index " + indexFile, exception);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the summary of the specified annotations.
+     *
+     * @return the size of the written summary
+     */
+    private long writeSummary(final FileAnnotation[] annotations) {
+        JavaProject container = new JavaProject();
+        container.addAnnotations(annotations);
+
+        return writeSummary(new AnnotationSummary(container));
+    }
+
+    private long writeSummary(final AnnotationSummary newSummary) {
+        XmlFile summaryFile = getSummaryFile();
+        try {
+            summaryFile.write(newSummary);
+            summary = new WeakReference<AnnotationSummary>(newSummary);
+
+            return summaryFile.getFile().length();
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Failed to write summary " + summaryFile, exception);
+            delete(summaryFile.getFile());
+
+            return 0;
+        }
+    }
+
+    private void delete(final File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.log(Level.WARNING, "Failed to delete outdated data file " + file);
+        }
+    }
+
+    /**
+     * Reads the annotations of this result. If the annotations are stored as a delta, then the delta is applied to
+     * the annotations of the reference build, which in turn might be stored as a delta. The annotations of the
+     * reference build are read from its data files, so the restored annotations are not shared with the project of
+     * the reference build.
+     */
+    private FileAnnotation[] readAnnotations() throws IOException {
+        return readAnnotations(new AnnotationFiles(StringUtils.EMPTY));
+    }
+
+    private FileAnnotation[] readAnnotations(final AnnotationFiles files) throws IOException {
+        if (files.deltaFile.exists()) {
+            AnnotationDelta delta = (AnnotationDelta)files.deltaFile.read();
+            return delta.apply(Arrays.asList(readReferenceAnnotations(delta.getReferenceBuild())));
+        }
+        return read(files.xmlFile, files.binaryFile);
+    }
+
+    /**
+     * Reads the annotations of the specified reference build. If the build does not exist anymore or if its files
+     * can't be read, then the files of the build that are kept in the folder of this build are used.
+     */
+    private FileAnnotation[] readReferenceAnnotations(final int number) throws IOException {
+        AnnotationFiles keptFiles = new AnnotationFiles(getKeptSuffix(number));
+        BuildResult reference = getResult(number);
+        if (reference != null) {
+            try {
+                synchronized (reference.projectLock) {
+                    return reference.readAnnotations();
+                }
+            }
+            catch (IOException exception) {
+                if (!keptFiles.exists()) {
+                    throw exception;
+                }
+                LOGGER.log(Level.WARNING, "Failed to read the warnings of build " + number
+                        + ", using the files kept by build " + getOwner().getNumber(), exception);
+            }
+        }
+        else if (!keptFiles.exists()) {
+            throw new IOException("Reference build " + number + " of build " + getOwner().getNumber()
+                    + " does not exist");
+        }
+        return readAnnotations(keptFiles);
+    }
+
+    /**
+     * Reads the annotations of the binary file if it exists, otherwise of the XML file.
+     */
+    private FileAnnotation[] read(final XmlFile xmlFile, final BinaryAnnotationFile binaryFile) throws IOException {
+        if (binaryFile.exists()) {
+            return binaryFile.read();
+        }
+        return (FileAnnotation[])xmlFile.read();
+    }
+
     /**
      * Returns the build since we have zero warnings.
      *
@@ -966,6 +1569,16 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         }
     }
 
+    /**
+     * Removes the loaded project from memory, so that the next call of {@link #getProject()} loads the annotations
+     * from the data files again.
+     */
+    void unloadProject() {
+        synchronized (projectLock) {
+            project = null;
+        }
+    }
+
     /**
      * Loads the results and wraps them in a weak reference that might get
      * removed by the garbage collector.
@@ -976,16 +1589,22 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         JavaProject result;
         try {
             JavaProject newProject = new JavaProject();
-            FileAnnotation[] annotations = (FileAnnotation[])getDataFile().read();
+            FileAnnotation[] annotations = readAnnotations();
             newProject.addAnnotations(annotations);
             attachLabelProvider(newProject);
 
-            LOGGER.log(Level.FINE, "Loaded data file " + getDataFile() + " for build " + getOwner().getNumber());
+            LOGGER.log(Level.FINE, "Loaded data file " + getSerializationFileName()
+                    + " for build " + getOwner().getNumber());
             result = newProject;
+            loadError = null;
         }
         catch (IOException exception) {
-            LOGGER.log(Level.WARNING, "Failed to load " + getDataFile(), exception);
+            LOGGER.log(Level.SEVERE, "Failed to load " + getSerializationFileName() + " of build "
+                    + getOwner().getNumber(), exception);
             result = new JavaProject();
+            loadError = Messages.BuildResult_Corrupted(getOwner().getNumber(), exception.getMessage());
+            result.setError(loadError);
+            attachLabelProvider(result);
         }
         project = new WeakReference<JavaProject>(result);
 
@@ -1043,7 +1662,7 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      * @return the fixed warnings of this build.
      */
     public Collection<FileAnnotation> getFixedWarnings() {
-        if (getFixedDataFile().exists()) {
+        if (getFixedDataFile().exists() || getBinaryFixedDataFile().exists()) {
             return getFixedWarningsAfterRelease72();
         }
         else {
@@ -1067,13 +1686,13 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
     private Collection<FileAnnotation> loadFixedWarningsAfterRelease72() {
         Set<FileAnnotation> fixedWarnings;
         try {
-            FileAnnotation[] annotations = (FileAnnotation[])getFixedDataFile().read();
+            FileAnnotation[] annotations = read(getFixedDataFile(), getBinaryFixedDataFile());
             fixedWarnings = Sets.newHashSet(annotations);
 
-            LOGGER.log(Level.FINE, "Loaded data file " + getFixedDataFile() + " for build " + getOwner().getNumber());
+            LOGGER.log(Level.FINE, "Loaded fixed warnings of build " + getOwner().getNumber());
         }
         catch (IOException exception) {
-            LOGGER.log(Level.WARNING, "Failed to load " + getFixedDataFile(), exception);
+            LOGGER.log(Level.WARNING, "Failed to load the fixed warnings of build " + getOwner().getNumber(), exception);
             fixedWarnings = new HashSet<FileAnnotation>();
         }
         fixedWarningsReference = new WeakReference<Collection<FileAnnotation>>(fixedWarnings);
@@ -1127,7 +1746,16 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
      */
     public Object getDynamic(final String link, final StaplerRequest request, final StaplerResponse response) {
         try {
-            return DetailFactory.create(getResultActionType()).createTrendDetails(link, getOwner(), getContainer(), getFixedWarnings(),
+            DetailFactory factory = DetailFactory.create(getResultActionType());
+            Object summaryDetails = factory.createSummaryDetails(link, this);
+            if (summaryDetails != null) {
+                return summaryDetails;
+            }
+            AnnotationContainer details = readDetails(factory, link);
+            if (details != null) {
+                return factory.createDetails(link, getOwner(), details, getDefaultEncoding(), getDisplayName());
+            }
+            return factory.createTrendDetails(link, getOwner(), getContainer(), getFixedWarnings(),
                     getNewWarnings(), getErrors(), getDefaultEncoding(), getDisplayName());
         }
         catch (NoSuchElementException exception) {
@@ -1141,6 +1769,98 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         }
     }
 
+    /**
+     * Reads only the annotations that are shown by the detail page with the specified link. This requires that the
+     * annotations are stored in a binary data file with index and are not already loaded.
+     *
+     * @param factory
+     *            the factory that creates the detail page
+     * @param link
+     *            the link to identify the sub page to show
+     * @return the annotations of the detail page, or <code>null</code> if the detail page requires all annotations
+     */
+    @CheckForNull
+    private AnnotationContainer readDetails(final DetailFactory factory, final String link) {
+        File indexFile = getIndexFile();
+        BinaryAnnotationFile dataFile = getBinaryDataFile();
+        if (isLoaded() || !indexFile.exists() || !dataFile.exists() || isContainerOverridden()) {
+            return null;
+        }
+        try {
+            int[] positions = factory.getPositions(link, AnnotationIndex.read(indexFile));
+            if (positions == null) {
+                return null;
+            }
+            JavaProject details = new JavaProject();
+            details.addAnnotations(dataFile.read(positions));
+            attachLabelProvider(details);
+
+            return details;
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.WARNING, "Failed to read index " + indexFile + " of build "
+                    + getOwner().getNumber() + ", reading all annotations", exception);
+            return null;
+        }
+    }
+
+    private boolean isLoaded() {
+        synchronized (projectLock) {
+            return project != null && project.get() != null;
+        }
+    }
+
+    /**
+     * Returns whether a subclass provides the annotations in a different way than by reading the data files.
+     */
+    private boolean isContainerOverridden() {
+        return Compatibility.isOverridden(BuildResult.class, getClass(), "getContainer")
+                || Compatibility.isOverridden(BuildResult.class, getClass(), "getProject");
+    }
+
+    /**
+     * Returns the summary of all warnings, i.e. the number of warnings per priority of each module, package, file,
+     * category, type, and author. The summary is read from its own small file so that the overview of this result
+     * can be rendered without loading all warnings. For results without such a file (e.g., of older builds) the
+     * summary is computed from the warnings once and then stored.
+     *
+     * @return the summary
+     * @since 1.97
+     */
+    public AnnotationSummary getAnnotationSummary() {
+        synchronized (projectLock) {
+            AnnotationSummary result = summary == null ? null : summary.get();
+            if (result == null) {
+                result = loadSummary();
+                JavaProject labels = result.createRepresentativeContainer();
+                attachLabelProvider(labels);
+                result.setLabelProvider(labels.getLabelProvider());
+                summary = new WeakReference<AnnotationSummary>(result);
+            }
+            return result;
+        }
+    }
+
+    private AnnotationSummary loadSummary() {
+        if (isContainerOverridden()) {
+            return new AnnotationSummary(getContainer());
+        }
+        XmlFile summaryFile = getSummaryFile();
+        if (summaryFile.exists()) {
+            try {
+                return (AnnotationSummary)summaryFile.read();
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Failed to read summary " + summaryFile + " of build "
+                        + getOwner().getNumber() + ", computing summary of all warnings", exception);
+            }
+        }
+        AnnotationSummary newSummary = new AnnotationSummary(getContainer());
+        writeSummary(newSummary);
+
+        return newSummary;
+    }
+
     /**
      * Returns all possible priorities.
      *
@@ -1688,6 +2408,53 @@ public abstract class BuildResult implements ModelObject, Serializable, Annotati
         return createHistory((Run<?, ?>) build);
     }
 
+    /**
+     * The files that store the annotations of a build: either the delta to the annotations of the reference build or
+     * all annotations in the XML or binary data file.
+     */
+    private final class AnnotationFiles {
+        private final XmlFile deltaFile;
+        private final XmlFile xmlFile;
+        private final BinaryAnnotationFile binaryFile;
+
+        /**
+         * Creates the files of this result, or the files of another build that are kept in the folder of this build.
+         *
+         * @param suffix
+         *            the suffix of the file names, empty for the files of this result
+         */
+        AnnotationFiles(final String suffix) {
+            deltaFile = new XmlFile(getXStream(), new File(getOwner().getRootDir(),
+                    getSerializationFileName().replace(".xml", suffix + "-delta.xml")));
+            xmlFile = new XmlFile(getXStream(), new File(getOwner().getRootDir(),
+                    getSerializationFileName().replace(".xml", suffix + ".xml")));
+            binaryFile = createBinaryDataFile(getSerializationFileName().replace(".xml", suffix + ".bin"));
+        }
+
+        boolean exists() {
+            return deltaFile.exists() || xmlFile.exists() || binaryFile.exists();
+        }
+
+        List<File> getFiles() {
+            return Lists.newArrayList(deltaFile.getFile(), xmlFile.getFile(), binaryFile.getFile());
+        }
+    }
+
+    /**
+     * Stores all annotations of the builds that store their annotations relative to a deleted build.
+     */
+    @Extension
+    public static class Cleaner extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            for (ResultAction<?> action : run.getActions(ResultAction.class)) {
+                if (action.getResult() != null) {
+                    action.getResult().materializeDependents();
+                }
+            }
+        }
+    }
+
     // Backward compatibility. Do not remove.
     // CHECKSTYLE:OFF
     @Deprecated
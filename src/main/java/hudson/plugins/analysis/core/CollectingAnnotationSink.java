@@ -0,0 +1,33 @@
+package hudson.plugins.analysis.core;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Collects all annotations in a list. Streaming parsers can use this sink to implement the collection based
+ * {@link AnnotationParser} methods.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class CollectingAnnotationSink implements AnnotationSink {
+    private final List<FileAnnotation> annotations = Lists.newArrayList();
+
+    @Override
+    public boolean add(final FileAnnotation annotation) {
+        return annotations.add(annotation);
+    }
+
+    /**
+     * Returns the collected annotations.
+     *
+     * @return the annotations
+     */
+    public Collection<FileAnnotation> getAnnotations() {
+        return annotations;
+    }
+}
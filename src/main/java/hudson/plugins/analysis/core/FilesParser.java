@@ -1,24 +1,41 @@
 package hudson.plugins.analysis.core;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jenkins.MasterToSlaveFileCallable;
 
 import hudson.FilePath;
+import hudson.Util;
 import hudson.plugins.analysis.Messages;
+import hudson.plugins.analysis.util.CacheFiles;
 import hudson.plugins.analysis.util.FileFinder;
+import hudson.plugins.analysis.util.ModuleDescriptorCache;
 import hudson.plugins.analysis.util.ModuleDetector;
 import hudson.plugins.analysis.util.NullModuleDetector;
+import hudson.plugins.analysis.util.PackageDetectors;
 import hudson.plugins.analysis.util.PluginLogger;
 import hudson.plugins.analysis.util.StringPluginLogger;
+import hudson.plugins.analysis.util.WorkerPool;
+import hudson.plugins.analysis.util.WorkspaceSnapshot;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.remoting.VirtualChannel;
 
@@ -50,6 +67,17 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
 
     private final boolean canResolveRelativePaths;
 
+    /** The maximum number of threads that parse the files in parallel. @since 1.97 */
+    private final int parallelism;
+    /** Determines whether the annotations of unchanged report files should be reused. @since 1.97 */
+    private boolean isIncremental;
+    /** Determines whether the context hash codes of the annotations are computed on the agent. @since 1.97 */
+    private boolean isClassifying;
+    /** Determines whether the package names of the annotations are detected on the agent. @since 1.97 */
+    private boolean shouldDetectPackages;
+    /** The default encoding of the source files, used to classify the annotations. @since 1.97 */
+    private String defaultEncoding;
+
     private FilesParser(final String filePattern, final AnnotationParser parser,
             final boolean isMavenBuild, final String moduleName) {
         this.filePattern = filePattern;
@@ -58,12 +86,13 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
         this.moduleName = moduleName;
         pluginId = "[ANALYSIS] ";
         canResolveRelativePaths = true;
+        parallelism = WorkerPool.SEQUENTIAL;
     }
 
     private FilesParser(final String pluginId, final String filePattern,
             final AnnotationParser parser, final boolean shouldDetectModules,
             final boolean isMavenBuild, final String moduleName,
-            final boolean canResolveRelativePaths) {
+            final boolean canResolveRelativePaths, final int parallelism) {
         this.pluginId = pluginId;
         this.filePattern = filePattern;
         this.parser = parser;
@@ -71,6 +100,7 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
         this.moduleName = moduleName;
         this.shouldDetectModules = shouldDetectModules;
         this.canResolveRelativePaths = canResolveRelativePaths;
+        this.parallelism = parallelism;
     }
 
     /**
@@ -86,7 +116,7 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
      *            the name of the module to use for all files
      */
     public FilesParser(final String pluginId, final AnnotationParser parser, final String moduleName) {
-        this(pluginId, "", parser, true, true, moduleName, true);
+        this(pluginId, "", parser, true, true, moduleName, true, WorkerPool.SEQUENTIAL);
     }
 
     /**
@@ -103,7 +133,7 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
      */
     public FilesParser(final String pluginId, final String filePattern,
             final AnnotationParser parser, final String moduleName) {
-        this(pluginId, filePattern, parser, true, true, moduleName, true);
+        this(pluginId, filePattern, parser, true, true, moduleName, true, WorkerPool.SEQUENTIAL);
     }
 
     /**
@@ -149,8 +179,71 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
     public FilesParser(final String pluginId, final String filePattern,
             final AnnotationParser parser, final boolean shouldDetectModules,
             final boolean isMavenBuild, final boolean canResolveRelativePaths) {
+        this(pluginId, filePattern, parser, shouldDetectModules, isMavenBuild, canResolveRelativePaths,
+                WorkerPool.SEQUENTIAL);
+    }
+
+    /**
+     * Creates a new instance of {@link FilesParser}.
+     *
+     * @param pluginId
+     *            the ID of the plug-in that uses this parser
+     * @param filePattern
+     *            ant file-set pattern to scan for files to parse
+     * @param parser
+     *            the parser to apply on the found files, must be thread safe if the files are parsed in parallel
+     * @param shouldDetectModules
+     *            determines whether modules should be detected from pom.xml or
+     *            build.xml files
+     * @param isMavenBuild
+     *            determines whether this build uses maven
+     * @param canResolveRelativePaths
+     *            determines whether relative paths in warnings should be
+     *            resolved using a time expensive operation that scans the whole
+     *            workspace for matching files.
+     * @param parallelism
+     *            the maximum number of threads that parse the files in parallel, a value of 1 parses the files
+     *            sequentially, see {@link PerformanceSettings#getParallelism()}
+     * @since 1.97
+     */
+    public FilesParser(final String pluginId, final String filePattern,
+            final AnnotationParser parser, final boolean shouldDetectModules,
+            final boolean isMavenBuild, final boolean canResolveRelativePaths, final int parallelism) {
         this(pluginId, filePattern, parser, shouldDetectModules, isMavenBuild, StringUtils.EMPTY,
-                canResolveRelativePaths);
+                canResolveRelativePaths, parallelism);
+    }
+
+    /**
+     * Enables or disables the incremental parsing. In incremental mode the annotations of all parsed report files are
+     * stored in a cache in the temporary directory of the workspace. Report files that have not been changed since
+     * the last build are not parsed again: their annotations are obtained from the cache and rebased onto the current
+     * workspace path and module name. Note that the parser must be serializable and must not depend on anything else
+     * than its configuration and the content of the report file.
+     *
+     * @param isIncremental
+     *            <code>true</code> if unchanged report files should not be parsed again
+     * @since 1.97
+     */
+    public void setIncremental(final boolean isIncremental) {
+        this.isIncremental = isIncremental;
+    }
+
+    /**
+     * Enables the classification of the parsed annotations on the agent. After parsing, the context hash codes of the
+     * annotations are computed in the same way as by {@link AnnotationsClassifier}. Optionally, the package names of
+     * all annotations that have no package name yet are detected. So the result crosses the remoting channel only
+     * once: plug-ins that enable the classification must not invoke an {@link AnnotationsClassifier} afterwards.
+     *
+     * @param defaultEncoding
+     *            the default encoding to be used when reading the source files
+     * @param shouldDetectPackages
+     *            determines whether the package names of the annotations should be detected from the source files
+     * @since 1.97
+     */
+    public void enableClassification(final String defaultEncoding, final boolean shouldDetectPackages) {
+        this.defaultEncoding = defaultEncoding;
+        this.shouldDetectPackages = shouldDetectPackages;
+        isClassifying = true;
     }
 
     /**
@@ -194,13 +287,18 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
     @Override
     public ParserResult invoke(final File workspace, final VirtualChannel channel)
             throws IOException {
-        ParserResult result = new ParserResult(new FilePath(workspace), canResolveRelativePaths);
+        long start = StageTimings.start();
+        WorkspaceSnapshot snapshot = createSnapshot(workspace);
+        ParserResult result = new ParserResult(new FilePath(workspace), canResolveRelativePaths, snapshot);
+        if (snapshot != null) {
+            result.getTimings().record("snapshot", start, snapshot.getNumberOfFiles());
+        }
         try {
             if (StringUtils.isBlank(filePattern)) {
                 parseSingleFile(workspace, result);
             }
             else {
-                parserCollectionOfFiles(workspace, result);
+                parserCollectionOfFiles(workspace, snapshot, result);
             }
         }
         catch (InterruptedException exception) {
@@ -214,12 +312,92 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
         for (FileAnnotation annotation : result.getAnnotations()) {
             annotation.setPathName(workspace.getAbsolutePath());
         }
+
+        if (isClassifying) {
+            classify(workspace, channel, result);
+        }
         return result;
     }
 
-    private void parserCollectionOfFiles(final File workspace, final ParserResult result) throws InterruptedException {
+    /**
+     * Detects the package names and computes the context hash codes of the parsed annotations.
+     *
+     * @param workspace
+     *            the workspace
+     * @param channel
+     *            the channel of the agent
+     * @param result
+     *            the result with the annotations to classify
+     * @throws IOException
+     *             if the context hash codes could not be computed
+     */
+    private void classify(final File workspace, final VirtualChannel channel, final ParserResult result)
+            throws IOException {
+        try {
+            if (shouldDetectPackages) {
+                detectPackageNames(result);
+            }
+            new AnnotationsClassifier(result, defaultEncoding, parallelism).invoke(workspace, channel);
+        }
+        catch (InterruptedException exception) {
+            StringPluginLogger logger = new StringPluginLogger(pluginId);
+            logger.log("Classification has been canceled.");
+            result.setLog(result.getLogMessages() + logger.toString());
+        }
+    }
+
+    private void detectPackageNames(final ParserResult result) throws InterruptedException {
+        long start = StageTimings.start();
+
+        List<AbstractAnnotation> withoutPackage = Lists.newArrayList();
+        for (FileAnnotation annotation : result.getAnnotations()) {
+            if (annotation instanceof AbstractAnnotation && !annotation.hasPackageName()
+                    && annotation.getFileName() != null) {
+                withoutPackage.add((AbstractAnnotation)annotation);
+            }
+        }
+        Set<String> fileNames = Sets.newLinkedHashSet();
+        for (AbstractAnnotation annotation : withoutPackage) {
+            fileNames.add(annotation.getFileName());
+        }
+        Map<String, String> packageNames = PackageDetectors.detectPackageNames(fileNames, defaultEncoding,
+                parallelism);
+        for (AbstractAnnotation annotation : withoutPackage) {
+            annotation.setPackageName(packageNames.get(annotation.getFileName()));
+        }
+
+        result.getTimings().record("packages", start, fileNames.size());
+    }
+
+    /**
+     * Creates a snapshot of the workspace files if the workspace needs to be scanned more than once, i.e. if report
+     * files are searched for and modules should be detected. Then all consumers obtain the files from a single
+     * traversal of the workspace.
+     *
+     * @param workspace
+     *            the workspace
+     * @return the snapshot, or <code>null</code> if the workspace should be scanned by each consumer
+     */
+    @CheckForNull
+    private WorkspaceSnapshot createSnapshot(final File workspace) {
+        if (StringUtils.isBlank(filePattern) || !shouldDetectModules) {
+            return null;
+        }
+        return WorkspaceSnapshot.create(workspace);
+    }
+
+    private void parserCollectionOfFiles(final File workspace, @CheckForNull final WorkspaceSnapshot snapshot,
+            final ParserResult result) throws InterruptedException {
         log("Searching for all files in " + workspace.getAbsolutePath() + " that match the pattern " + filePattern);
-        String[] fileNames = new FileFinder(filePattern).find(workspace);
+        long start = StageTimings.start();
+        String[] fileNames;
+        if (snapshot == null) {
+            fileNames = new FileFinder(filePattern).find(workspace);
+        }
+        else {
+            fileNames = new FileFinder(filePattern).find(snapshot);
+        }
+        result.getTimings().record("find", start, fileNames.length);
 
         if (fileNames.length == 0) {
             log("No files found. Configuration error?");
@@ -229,14 +407,14 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
         }
         else {
             log("Parsing " + plural(fileNames.length, "%d file") + " in " + workspace.getAbsolutePath());
-            parseFiles(workspace, fileNames, result);
+            parseFiles(workspace, fileNames, snapshot, result);
         }
     }
 
     private void parseSingleFile(final File workspace, final ParserResult result) throws InterruptedException {
         String[] fileNames = new String[] {workspace.getAbsolutePath()};
         log("Parsing file " + workspace.getAbsolutePath());
-        parseFiles(workspace, fileNames, result);
+        parseFiles(workspace, fileNames, null, result);
     }
 
     /**
@@ -247,46 +425,246 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
      *            the workspace root
      * @param fileNames
      *            the names of the file to parse
+     * @param snapshot
+     *            snapshot of the workspace files, or <code>null</code> if the workspace should be scanned again
      * @param result
      *            the result of the parsing
      * @throws InterruptedException
      *             if the user cancels the parsing
      */
     private void parseFiles(final File workspace, final String[] fileNames,
-            final ParserResult result) throws InterruptedException {
-        ModuleDetector detector = createModuleDetector(workspace);
+            @CheckForNull final WorkspaceSnapshot snapshot, final ParserResult result) throws InterruptedException {
+        ModuleDetector detector = createModuleDetector(workspace, snapshot, result);
+        ParsedReportCache cache = createCache(workspace);
 
-        for (String fileName : fileNames) {
-            File file = new File(fileName);
+        long start = StageTimings.start();
+        if (parallelism > WorkerPool.SEQUENTIAL && fileNames.length > 1) {
+            parseFilesInParallel(workspace, fileNames, detector, cache, result);
+        }
+        else {
+            parseFilesSequentially(workspace, fileNames, detector, cache, result);
+        }
+        result.getTimings().record("parse", start, fileNames.length, getLength(workspace, fileNames));
+
+        if (cache != null) {
+            cache.save();
+            log("Reused the warnings of " + plural(cache.getHits(), "%d unchanged file")
+                    + ", parsed " + plural(cache.getMisses(), "%d new or changed file"));
+        }
+    }
 
-            if (!file.isAbsolute()) {
-                file = new File(workspace, fileName);
+    private void parseFilesSequentially(final File workspace, final String[] fileNames, final ModuleDetector detector,
+            @CheckForNull final ParsedReportCache cache, final ParserResult result) throws InterruptedException {
+        ParserResultSink sink = new ParserResultSink(result);
+        try {
+            for (String fileName : fileNames) {
+                File file = getFile(workspace, fileName);
+                String module = getModuleName(detector, file);
+
+                if (!isValid(file)) {
+                    reportInvalidFile(file, module, result);
+                    continue;
+                }
+
+                parseFile(file, module, sink, cache, result);
+
+                result.addModule(module);
             }
+        }
+        finally {
+            sink.finish();
+        }
+    }
 
-            String module = getModuleName(detector, file);
+    /**
+     * Creates the cache of parsed report files if the incremental parsing is enabled. The cache is located in the
+     * temporary directory of the workspace. Each combination of plug-in, parser and file pattern uses its own cache
+     * file.
+     *
+     * @param workspace
+     *            the workspace
+     * @return the cache, or <code>null</code> if the annotations should not be cached
+     */
+    @CheckForNull
+    private ParsedReportCache createCache(final File workspace) {
+        String id = Util.getDigestOf(pluginId + ':' + parser.getClass().getName() + ':' + filePattern);
+        File cacheFile = getCacheFile(workspace, "parsed-reports/" + id + ".ser");
+        if (!isIncremental || cacheFile == null) {
+            return null;
+        }
+        return ParsedReportCache.load(cacheFile, parser, workspace);
+    }
 
-            if (!file.canRead()) {
-                String message = Messages.FilesParser_Error_NoPermission(module, file);
-                log(message);
-                result.addErrorMessage(module, message);
-                continue;
+    /**
+     * Returns a cache file in the temporary directory of the workspace.
+     *
+     * @param workspace
+     *            the workspace
+     * @param fileName
+     *            the name of the cache file, relative to the cache folder of this plug-in
+     * @return the cache file, or <code>null</code> if the workspace is not a directory
+     */
+    @CheckForNull
+    private File getCacheFile(final File workspace, final String fileName) {
+        return CacheFiles.getFile(workspace, "analysis-core/" + fileName);
+    }
+
+    /**
+     * Parses the specified collection of files in parallel and appends the results to the provided container. The
+     * parsed annotations (and the log messages) are added in the order of the files, so the result is the same as
+     * the result of the sequential parsing.
+     *
+     * @param workspace
+     *            the workspace root
+     * @param fileNames
+     *            the names of the file to parse
+     * @param detector
+     *            the module detector
+     * @param cache
+     *            the cache of parsed report files, or <code>null</code> if all files should be parsed
+     * @param result
+     *            the result of the parsing
+     * @throws InterruptedException
+     *             if the user cancels the parsing
+     */
+    private void parseFilesInParallel(final File workspace, final String[] fileNames,
+            final ModuleDetector detector, @CheckForNull final ParsedReportCache cache, final ParserResult result)
+            throws InterruptedException {
+        List<File> files = Lists.newArrayList();
+        List<String> modules = Lists.newArrayList();
+        List<Boolean> validFiles = Lists.newArrayList();
+        List<Callable<ParsedFile>> tasks = Lists.newArrayList();
+        for (String fileName : fileNames) {
+            final File file = getFile(workspace, fileName);
+            final String module = getModuleName(detector, file);
+            boolean isValid = isValid(file);
+
+            files.add(file);
+            modules.add(module);
+            validFiles.add(isValid);
+            if (isValid) {
+                tasks.add(new Callable<ParsedFile>() {
+                    @Override
+                    public ParsedFile call() {
+                        try {
+                            return new ParsedFile(parse(file, module, cache));
+                        }
+                        catch (InvocationTargetException exception) {
+                            return new ParsedFile(exception);
+                        }
+                    }
+                });
             }
-            if (file.length() <= 0) {
-                String message = Messages.FilesParser_Error_EmptyFile(module, file);
-                log(message);
-                result.addErrorMessage(module, message);
+        }
+
+        Iterator<ParsedFile> parsedFiles = parse(tasks).iterator();
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            String module = modules.get(i);
+
+            if (!validFiles.get(i)) {
+                reportInvalidFile(file, module, result);
                 continue;
             }
 
-            parseFile(file, module, result);
+            ParsedFile parsedFile = parsedFiles.next();
+            if (parsedFile.hasError()) {
+                reportParserError(file, module, parsedFile.getError(), result);
+            }
+            else {
+                addAnnotations(file, module, parsedFile.getAnnotations(), result);
+            }
 
             result.addModule(module);
         }
     }
 
-    private ModuleDetector createModuleDetector(final File workspace) {
+    private Collection<FileAnnotation> parse(final File file, final String module,
+            @CheckForNull final ParsedReportCache cache) throws InvocationTargetException {
+        String digest = cache == null ? null : cache.getDigest(file);
+        if (digest == null) {
+            return parser.parse(file, module);
+        }
+
+        Collection<FileAnnotation> annotations = cache.get(digest, module);
+        if (annotations == null) {
+            annotations = parser.parse(file, module);
+            cache.put(digest, module, annotations);
+        }
+        return annotations;
+    }
+
+    private List<ParsedFile> parse(final List<Callable<ParsedFile>> tasks) throws InterruptedException {
+        try {
+            return new WorkerPool("FilesParser", parallelism).invokeAll(tasks);
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private File getFile(final File workspace, final String fileName) {
+        File file = new File(fileName);
+
+        if (!file.isAbsolute()) {
+            file = new File(workspace, fileName);
+        }
+        return file;
+    }
+
+    private long getLength(final File workspace, final String[] fileNames) {
+        long length = 0;
+        for (String fileName : fileNames) {
+            length += getFile(workspace, fileName).length();
+        }
+        return length;
+    }
+
+    private boolean isValid(final File file) {
+        return file.canRead() && file.length() > 0;
+    }
+
+    private void reportInvalidFile(final File file, final String module, final ParserResult result) {
+        String message;
+        if (file.canRead()) {
+            message = Messages.FilesParser_Error_EmptyFile(module, file);
+        }
+        else {
+            message = Messages.FilesParser_Error_NoPermission(module, file);
+        }
+        log(message);
+        result.addErrorMessage(module, message);
+    }
+
+    /**
+     * Creates the module detector. The module names of the descriptors are cached in the temporary directory of the
+     * workspace, so only new or changed descriptors need to be parsed in the next build.
+     *
+     * @param workspace
+     *            the workspace
+     * @param snapshot
+     *            snapshot of the workspace files, or <code>null</code> if the workspace should be scanned again
+     * @param result
+     *            the result that records the timing of the module detection
+     * @return the module detector
+     */
+    private ModuleDetector createModuleDetector(final File workspace, @CheckForNull final WorkspaceSnapshot snapshot,
+            final ParserResult result) {
         if (shouldDetectModules) {
-            return new ModuleDetector(workspace);
+            long start = StageTimings.start();
+            ModuleDescriptorCache cache = ModuleDescriptorCache.load(getCacheFile(workspace, "module-descriptors.bin"));
+            ModuleDetector detector = new ModuleDetector(workspace, snapshot, cache, parallelism);
+            cache.save();
+            result.getTimings().record("modules", start, cache.getHits() + cache.getMisses());
+
+            return detector;
         }
         else {
             return new NullModuleDetector();
@@ -307,35 +685,129 @@ public class FilesParser extends MasterToSlaveFileCallable<ParserResult> {
     /**
      * Parses the specified file and stores all found annotations. If the file
      * could not be parsed then an error message is appended to the result.
+     * The annotations are streamed into the result if the parser supports it.
      *
      * @param file
      *            the file to parse
      * @param module
      *            the associated module
+     * @param sink
+     *            the sink that adds the annotations to the result
+     * @param cache
+     *            the cache of parsed report files, or <code>null</code> if the file should be parsed
      * @param result
      *            the result of the parser
      * @throws InterruptedException
      *             if the user cancels the parsing
      */
-    private void parseFile(final File file, final String module, final ParserResult result)
-            throws InterruptedException {
+    private void parseFile(final File file, final String module, final ParserResultSink sink,
+            @CheckForNull final ParsedReportCache cache, final ParserResult result) throws InterruptedException {
+        sink.reset();
         try {
-            Collection<FileAnnotation> annotations = parser.parse(file, module);
-            int duplicateCount = annotations.size() - result.addAnnotations(annotations);
-            int moduleCount = StringUtils.isBlank(module) ? 0 : 1;
+            String digest = cache == null ? null : cache.getDigest(file);
+            if (digest == null) {
+                StreamingParserAdapter.of(parser).parse(file, module, sink);
+            }
+            else {
+                parseFile(file, module, sink, cache, digest);
+            }
 
-            log("Successfully parsed file " + file + plural(moduleCount, " of module " + module) + " with "
-                    + plural(result.getNumberOfAnnotations(), "%d unique warning")
-                    + plural(duplicateCount, " and %d duplicate") + ".");
+            log(file, module, result, sink.getNumberOfDuplicates());
         }
         catch (InvocationTargetException exception) {
-            String errorMessage = Messages.FilesParser_Error_Exception(file)
-                    + "\n\n"
-                    + ExceptionUtils.getStackTrace((Throwable)ObjectUtils.defaultIfNull(
-                            exception.getCause(), exception));
-            result.addErrorMessage(module, errorMessage);
+            sink.discard();
+            reportParserError(file, module, exception, result);
+        }
+    }
+
+    private void parseFile(final File file, final String module, final AnnotationSink sink,
+            final ParsedReportCache cache, final String digest) throws InvocationTargetException {
+        Collection<FileAnnotation> cached = cache.get(digest, module);
+        if (cached == null) {
+            RecordingSink recorder = new RecordingSink(sink);
+            StreamingParserAdapter.of(parser).parse(file, module, recorder);
+            cache.put(digest, module, recorder.getAnnotations());
+        }
+        else {
+            for (FileAnnotation annotation : cached) {
+                sink.add(annotation);
+            }
+        }
+    }
+
+    private void addAnnotations(final File file, final String module, final Collection<FileAnnotation> annotations,
+            final ParserResult result) {
+        int duplicateCount = annotations.size() - result.addAnnotations(annotations);
+
+        log(file, module, result, duplicateCount);
+    }
+
+    private void log(final File file, final String module, final ParserResult result, final int duplicateCount) {
+        int moduleCount = StringUtils.isBlank(module) ? 0 : 1;
+
+        log("Successfully parsed file " + file + plural(moduleCount, " of module " + module) + " with "
+                + plural(result.getNumberOfAnnotations(), "%d unique warning")
+                + plural(duplicateCount, " and %d duplicate") + ".");
+    }
+
+    private void reportParserError(final File file, final String module, final InvocationTargetException exception,
+            final ParserResult result) {
+        String errorMessage = Messages.FilesParser_Error_Exception(file)
+                + "\n\n"
+                + ExceptionUtils.getStackTrace((Throwable)ObjectUtils.defaultIfNull(
+                        exception.getCause(), exception));
+        result.addErrorMessage(module, errorMessage);
+
+        log(errorMessage);
+    }
+
+    /**
+     * Records all annotations that are passed to the wrapped sink.
+     */
+    private static class RecordingSink extends CollectingAnnotationSink {
+        private final AnnotationSink wrapped;
+
+        RecordingSink(final AnnotationSink wrapped) {
+            super();
+
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public boolean add(final FileAnnotation annotation) {
+            super.add(annotation);
+
+            return wrapped.add(annotation);
+        }
+    }
+
+    /**
+     * The outcome of parsing a single file in a worker thread: either the found annotations or the parser error.
+     */
+    private static class ParsedFile {
+        private final Collection<FileAnnotation> annotations;
+        private final InvocationTargetException error;
+
+        ParsedFile(final Collection<FileAnnotation> annotations) {
+            this.annotations = annotations;
+            error = null;
+        }
+
+        ParsedFile(final InvocationTargetException error) {
+            annotations = null;
+            this.error = error;
+        }
+
+        boolean hasError() {
+            return error != null;
+        }
+
+        Collection<FileAnnotation> getAnnotations() {
+            return annotations;
+        }
 
-            log(errorMessage);
+        InvocationTargetException getError() {
+            return error;
         }
     }
 
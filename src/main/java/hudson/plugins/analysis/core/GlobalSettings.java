@@ -1,6 +1,7 @@
 package hudson.plugins.analysis.core;
 
 import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import jenkins.model.Jenkins;
@@ -11,6 +12,8 @@ import hudson.model.Describable;
 import hudson.model.Descriptor;
 import hudson.model.Run;
 import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.util.WorkerPool;
+import hudson.util.FormValidation;
 
 /**
  * Global settings common to all static analysis plug-ins. The actual extension point {@link RunListener} is not used
@@ -39,17 +42,35 @@ public class GlobalSettings extends RunListener<Run<?, ?>> implements Describabl
         return findDescriptor();
     }
 
+    /**
+     * Returns the global settings, including the settings that tune the performance.
+     *
+     * @return the global settings
+     * @since 1.97
+     */
+    public static PerformanceSettings getPerformanceSettings() {
+        return findDescriptor();
+    }
+
     /**
      * Descriptor for {@link GlobalSettings}.
      *
      * @author Ulli Hafner
      */
     @Extension
-    public static class DescriptorImpl extends Descriptor<GlobalSettings> implements Settings {
+    public static class DescriptorImpl extends Descriptor<GlobalSettings> implements PerformanceSettings {
         private Boolean isQuiet;
         private Boolean failOnCorrupt;
         /** @Since 1.88 */
         private Boolean noAuthors;
+        /** @Since 1.97 */
+        private Integer parallelism;
+        /** @Since 1.97 */
+        private Boolean compressSources;
+        /** @Since 1.97 */
+        private Boolean binaryResults;
+        /** @Since 1.97 */
+        private Boolean deltaResults;
 
         @Override
         public String getDisplayName() {
@@ -115,6 +136,76 @@ public class GlobalSettings extends RunListener<Run<?, ?>> implements Describabl
             noAuthors = value;
         }
 
+        @Override
+        public Integer getParallelism() {
+            if (parallelism == null || parallelism < WorkerPool.SEQUENTIAL) {
+                return WorkerPool.SEQUENTIAL;
+            }
+            return parallelism;
+        }
+
+        /**
+         * Sets the maximum number of worker threads that should be used on an agent.
+         *
+         * @param value the value to set
+         */
+        public void setParallelism(final Integer value) {
+            parallelism = value;
+        }
+
+        /**
+         * Performs on-the-fly validation on the maximum number of worker threads.
+         *
+         * @param parallelism
+         *            the maximum number of threads
+         * @return the validation result
+         */
+        public FormValidation doCheckParallelism(@QueryParameter final String parallelism) {
+            return FormValidation.validatePositiveInteger(parallelism);
+        }
+
+        @Override
+        public Boolean getCompressSources() {
+            return getValidBoolean(compressSources);
+        }
+
+        /**
+         * Sets the value of the compress sources boolean property.
+         *
+         * @param value the value to set
+         */
+        public void setCompressSources(final Boolean value) {
+            compressSources = value;
+        }
+
+        @Override
+        public Boolean getBinaryResults() {
+            return getValidBoolean(binaryResults);
+        }
+
+        /**
+         * Sets the value of the binary results boolean property.
+         *
+         * @param value the value to set
+         */
+        public void setBinaryResults(final Boolean value) {
+            binaryResults = value;
+        }
+
+        @Override
+        public Boolean getDeltaResults() {
+            return getValidBoolean(deltaResults);
+        }
+
+        /**
+         * Sets the value of the delta results boolean property.
+         *
+         * @param value the value to set
+         */
+        public void setDeltaResults(final Boolean value) {
+            deltaResults = value;
+        }
+
         private Boolean getValidBoolean(final Boolean value) {
             return value == null ? Boolean.FALSE : value;
         }
@@ -45,7 +45,8 @@ public abstract class HealthAwarePublisher extends HealthAwareRecorder {
     /**
      * Callback method that is invoked after the build where this recorder can collect the results. This default
      * implementation provides a template method that updates the build status based on the results and copies all files
-     * with warnings to the build folder on the master.
+     * with warnings to the build folder on the master. Afterwards, the timings of the individual stages are logged
+     * and attached to the build, see {@link TimingAction}.
      *
      * @param run
      *            current build
@@ -88,7 +89,12 @@ public abstract class HealthAwarePublisher extends HealthAwareRecorder {
             updateBuildResult(result, logger);
         }
 
+        long start = StageTimings.start();
         copyFilesWithAnnotationsToBuildFolder(run.getRootDir(), launcher.getChannel(), result.getAnnotations());
+        SourceStore.absorb(run);
+        result.getTimings().record("copy", start, result.getNumberOfAnnotations());
+
+        logger.log(TimingAction.addTimings(run, getDescriptor().getPluginName(), result.getTimings()).toString());
 
         return true;
     }
@@ -105,8 +111,13 @@ public abstract class HealthAwarePublisher extends HealthAwareRecorder {
         if (GlobalSettings.instance().getNoAuthors()) {
             return;
         }
+        long start = StageTimings.start();
         Blamer blamer = BlameFactory.createBlamer(run, workspace, getListener());
         blamer.blame(annotations);
+
+        StageTimings timings = new StageTimings();
+        timings.record("blame", start, annotations.size());
+        TimingAction.addTimings(run, getDescriptor().getPluginName(), timings);
     }
 
     /**
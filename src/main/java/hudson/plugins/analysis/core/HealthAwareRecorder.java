@@ -348,7 +348,8 @@ public abstract class HealthAwareRecorder extends Recorder implements HealthDesc
     protected void copyFilesWithAnnotationsToBuildFolder(final File rootDir,
             final VirtualChannel channel, final Collection<FileAnnotation> annotations)
             throws IOException, FileNotFoundException, InterruptedException {
-        new Files().copyFilesWithAnnotationsToBuildFolder(channel, new FilePath(rootDir), annotations,
+        Files files = new Files(GlobalSettings.getPerformanceSettings().getCompressSources());
+        files.copyFilesWithAnnotationsToBuildFolder(channel, new FilePath(rootDir), annotations,
                 EncodingValidator.getEncoding(getDefaultEncoding()));
     }
 
@@ -520,6 +521,18 @@ public abstract class HealthAwareRecorder extends Recorder implements HealthDesc
         this.defaultEncoding = defaultEncoding;
     }
 
+    /**
+     * Returns the maximum number of threads that analyze the files of a workspace in parallel, see
+     * {@link PerformanceSettings#getParallelism()}. Sub classes should pass this value to the {@link FilesParser} and
+     * {@link AnnotationsClassifier} they create, otherwise the files are analyzed sequentially.
+     *
+     * @return the maximum number of threads
+     * @since 1.97
+     */
+    protected int getParallelism() {
+        return GlobalSettings.getPerformanceSettings().getParallelism();
+    }
+
     /**
      * Returns whether the current build uses maven.
      *
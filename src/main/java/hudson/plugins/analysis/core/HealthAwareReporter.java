@@ -27,7 +27,9 @@ import hudson.plugins.analysis.util.EncodingValidator;
 import hudson.plugins.analysis.util.Files;
 import hudson.plugins.analysis.util.LoggerFactory;
 import hudson.plugins.analysis.util.PluginLogger;
+import hudson.plugins.analysis.util.SourceStore;
 import hudson.plugins.analysis.util.StringPluginLogger;
+import hudson.plugins.analysis.util.WorkerPool;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 import hudson.remoting.VirtualChannel;
@@ -66,6 +68,8 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
     private String thresholdLimit;
     /** The default encoding to be used when reading and parsing files. */
     private String defaultEncoding;
+    /** The maximum number of threads received from the master, see {@link #getParallelism()}. @since 1.97 */
+    private transient int parallelism;
     /** Determines whether the plug-in should run for failed builds, too. @since 1.6 */
     private final boolean canRunOnFailed;
 
@@ -324,7 +328,9 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
         }
 
         Result currentResult = getCurrentResult(build);
-        PluginLogger logger = new LoggerFactory(receiveSettingsFromMaster(build)).createLogger(listener.getLogger(), pluginName);
+        PerformanceSettings settings = receiveSettingsFromMaster(build);
+        parallelism = settings.getParallelism();
+        PluginLogger logger = new LoggerFactory(settings).createLogger(listener.getLogger(), pluginName);
 
         if (!canContinue(currentResult)) {
             logger.log("Skipping reporter since build result is " + currentResult);
@@ -353,11 +359,35 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
 
         setEncoding(pom, result, logger);
         registerResultsOnMaster(build, result, logger);
-        copyFilesWithAnnotationsToBuildFolder(logger, build.getRootDir(), result.getAnnotations());
+
+        long start = StageTimings.start();
+        copyFilesWithAnnotationsToBuildFolder(build.getRootDir(), result.getAnnotations(),
+                settings.getCompressSources());
+        StageTimings timings = new StageTimings();
+        timings.record("copy", start, result.getNumberOfAnnotations());
+        finishOnMaster(build, timings, logger);
 
         return true;
     }
 
+    private void finishOnMaster(final MavenBuildProxy build, final StageTimings timings,
+            final PluginLogger logger) throws IOException, InterruptedException {
+        @SuppressWarnings("serial")
+        String timingsLog = build.execute(new BuildCallable<String, IOException>() {
+            @Override
+            public String call(final MavenBuild mavenBuild) throws IOException, InterruptedException {
+                SourceStore.absorb(mavenBuild);
+
+                return TimingAction.addTimings(mavenBuild, getPluginId(), timings).toString();
+            }
+        });
+        logger.log(timingsLog);
+    }
+
+    private String getPluginId() {
+        return getDescriptor().getPublisherDescriptor().getPluginName();
+    }
+
     private void registerResultsOnMaster(final MavenBuildProxy build, final ParserResult result, final PluginLogger logger)
             throws IOException, InterruptedException {
         @SuppressWarnings("serial")
@@ -379,16 +409,18 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
     }
 
     @SuppressWarnings("serial")
-    private Settings receiveSettingsFromMaster(final MavenBuildProxy build) throws IOException, InterruptedException {
-        return build.execute(new BuildCallable<Settings, IOException>() {
+    private PerformanceSettings receiveSettingsFromMaster(final MavenBuildProxy build)
+            throws IOException, InterruptedException {
+        return build.execute(new BuildCallable<PerformanceSettings, IOException>() {
             @Override
-            public Settings call(final MavenBuild mavenBuild) throws IOException, InterruptedException {
+            public PerformanceSettings call(final MavenBuild mavenBuild) throws IOException, InterruptedException {
                 return new SerializableSettings(GlobalSettings.instance());
             }});
     }
 
     private String registerResults(final ParserResult result, final MavenBuild mavenBuild) {
         T buildResult = createResult(mavenBuild, result);
+        TimingAction.addTimings(mavenBuild, getPluginId(), buildResult.getTimings());
 
         StringPluginLogger pluginLogger = new StringPluginLogger(pluginName);
         if (new NullHealthDescriptor(this).isThresholdEnabled()) {
@@ -480,12 +512,12 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
     /**
      * Copies all files with annotations from the workspace to the build folder.
      *
-     * @param logger
-     *            logger to log any problems
      * @param buildRoot
      *            directory to store the copied files in
      * @param annotations
      *            annotations determining the actual files to copy
+     * @param isCompressing
+     *            determines whether the copies should be stored compressed
      * @throws IOException
      *             if the files could not be written
      * @throws FileNotFoundException
@@ -493,10 +525,10 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
      * @throws InterruptedException
      *             if the user cancels the processing
      */
-    private void copyFilesWithAnnotationsToBuildFolder(final PluginLogger logger, final FilePath buildRoot,
-            final Collection<FileAnnotation> annotations) throws IOException,
+    private void copyFilesWithAnnotationsToBuildFolder(final FilePath buildRoot,
+            final Collection<FileAnnotation> annotations, final boolean isCompressing) throws IOException,
             FileNotFoundException, InterruptedException {
-        new Files().copyFilesWithAnnotationsToBuildFolder(null, buildRoot, annotations,
+        new Files(isCompressing).copyFilesWithAnnotationsToBuildFolder(null, buildRoot, annotations,
                 EncodingValidator.getEncoding(getDefaultEncoding()));
     }
 
@@ -571,6 +603,20 @@ public abstract class HealthAwareReporter<T extends BuildResult> extends MavenRe
         return defaultEncoding;
     }
 
+    /**
+     * Returns the maximum number of threads that analyze the files of a module in parallel, see
+     * {@link PerformanceSettings#getParallelism()}. The value is received from the master before
+     * {@link #perform(MavenBuildProxy, MavenProject, MojoInfo, PluginLogger)} is invoked. Sub classes should pass this
+     * value to the {@link FilesParser} and {@link AnnotationsClassifier} they create, otherwise the files are analyzed
+     * sequentially.
+     *
+     * @return the maximum number of threads
+     * @since 1.97
+     */
+    protected int getParallelism() {
+        return parallelism < WorkerPool.SEQUENTIAL ? WorkerPool.SEQUENTIAL : parallelism;
+    }
+
     /**
      * Returns whether we already have a result for this build.
      *
@@ -1,13 +1,22 @@
 package hudson.plugins.analysis.core;
 
 import javax.annotation.CheckForNull;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+
 import hudson.plugins.analysis.util.model.FileAnnotation;
 
 /**
- * Computes old, new, and fixed issues based on two set of issues.
+ * Computes old, new, and fixed issues based on two set of issues. An issue of the current build is considered
+ * as an old issue if the reference build contains an equal issue. Otherwise, if the reference build contains an issue
+ * with the same context hash code, then this issue is considered as an old issue as well. Both lookups use
+ * hash indexes on the still unmatched reference issues so that the difference is computed in linear time.
  *
  * @author Ulli Hafner
  */
@@ -15,11 +24,29 @@ public class IssueDifference {
     private final Set<FileAnnotation> newIssues;
     private final Set<FileAnnotation> fixedIssues;
 
+    /** Unmatched reference issues, indexed by the equality key of the issues. */
+    private final Map<FileAnnotation, FileAnnotation> referencesByEquals;
+    /** Unmatched reference issues, indexed by context hash code (in the iteration order of {@link #fixedIssues}). */
+    private final SetMultimap<Long, FileAnnotation> referencesByContext;
+
+    /**
+     * Creates a new instance of {@link IssueDifference}.
+     *
+     * @param currentIssues
+     *            the issues of the current build
+     * @param referenceIssues
+     *            the issues of the reference build
+     */
     public IssueDifference(final Set<FileAnnotation> currentIssues, final Set<FileAnnotation> referenceIssues) {
         newIssues = new HashSet<FileAnnotation>(currentIssues);
         fixedIssues = new HashSet<FileAnnotation>(referenceIssues);
-        
-        Set<FileAnnotation> oldIssues = new HashSet<FileAnnotation>(); // TODO: do we need old issues?
+
+        referencesByEquals = new HashMap<FileAnnotation, FileAnnotation>(fixedIssues.size() * 2);
+        referencesByContext = LinkedHashMultimap.create();
+        for (FileAnnotation reference : fixedIssues) {
+            referencesByEquals.put(reference, reference);
+            referencesByContext.put(reference.getContextHashCode(), reference);
+        }
 
         for (FileAnnotation current : currentIssues) {
             FileAnnotation referenceToRemove = findReferenceByEquals(current);
@@ -29,9 +56,10 @@ public class IssueDifference {
             }
 
             if (referenceToRemove != null) {
-                oldIssues.add(current);
                 newIssues.remove(current);
                 fixedIssues.remove(referenceToRemove);
+                referencesByEquals.remove(referenceToRemove);
+                referencesByContext.remove(referenceToRemove.getContextHashCode(), referenceToRemove);
 
                 current.setBuild(referenceToRemove.getBuild());
             }
@@ -40,30 +68,33 @@ public class IssueDifference {
 
     @CheckForNull
     private FileAnnotation findReferenceByContext(final FileAnnotation current) {
-        for (FileAnnotation reference : fixedIssues) {
-            if (current.getContextHashCode() == reference.getContextHashCode()) {
-                return reference;
-            }
+        Iterator<FileAnnotation> candidates = referencesByContext.get(current.getContextHashCode()).iterator();
+        if (candidates.hasNext()) {
+            return candidates.next();
         }
         return null;
     }
 
     @CheckForNull
     private FileAnnotation findReferenceByEquals(final FileAnnotation current) {
-        for (FileAnnotation reference : fixedIssues) {
-            if (current.equals(reference)) {
-                return reference;
-            }
-        }
-        return null;
+        return referencesByEquals.get(current);
     }
 
+    /**
+     * Returns the issues of the current build that have no matching issue in the reference build.
+     *
+     * @return the new issues
+     */
     public Set<FileAnnotation> getNewIssues() {
-        return newIssues;   
+        return newIssues;
     }
 
+    /**
+     * Returns the issues of the reference build that have no matching issue in the current build.
+     *
+     * @return the fixed issues
+     */
     public Set<FileAnnotation> getFixedIssues() {
         return fixedIssues;
     }
 }
-
@@ -29,6 +29,7 @@ import hudson.model.HealthReport;
 import hudson.model.Result;
 
 import hudson.plugins.analysis.util.PluginLogger;
+import hudson.plugins.analysis.util.SourceStore;
 import hudson.plugins.analysis.util.StringPluginLogger;
 import hudson.plugins.analysis.util.ToolTipProvider;
 import hudson.plugins.analysis.util.model.AbstractAnnotation;
@@ -122,6 +123,8 @@ public abstract class MavenResultAction<T extends BuildResult> implements Staple
     }
 
     private void copySourceFilesToModuleBuildFolder(final MavenBuild newBuild) {
+        SourceStore.of(getOwner()).addReferences(SourceStore.getFolder(newBuild), SourceStore.getFolder(getOwner()));
+
         FilePath filePath = new FilePath(new File(newBuild.getRootDir(), AbstractAnnotation.WORKSPACE_FILES));
         try {
             filePath.copyRecursiveTo("*.tmp", new FilePath(new File(getOwner().getRootDir(), AbstractAnnotation.WORKSPACE_FILES)));
@@ -0,0 +1,348 @@
+package hudson.plugins.analysis.core;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import hudson.Util;
+import hudson.plugins.analysis.util.CacheFiles;
+import hudson.plugins.analysis.util.TreeString;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.LineRange;
+import hudson.plugins.analysis.util.model.LineRangeList;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Persistent cache of the annotations of parsed report files. The annotations are mapped by the digest of the report
+ * file, so the annotations of a report that has not been changed since the last build can be reused without parsing
+ * the report again. Reused annotations are rebased onto the current workspace path and module name and get new keys.
+ *
+ * <p>
+ * The cache is bound to the version of the parser: if the class of the parser, its serial version UID, or the
+ * implementation version of its plug-in changes, then the cached annotations are discarded. The cache file accepts
+ * only annotation classes and the few classes used by their fields, all other classes are rejected. The cache stores
+ * only the reports of the latest build, all reports that have not been parsed or reused in the latest build are
+ * removed when the cache is saved. This class is thread safe.
+ * </p>
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class ParsedReportCache {
+    private static final Logger LOGGER = Logger.getLogger(ParsedReportCache.class.getName());
+
+    /** File format version, increment if the format changes. */
+    private static final int VERSION = 1;
+    private static final String SLASH = "/";
+
+    /** The classes besides the annotation classes that are accepted in the cache file. */
+    private static final Set<String> ACCEPTED_CLASSES = ImmutableSet.of(
+            CachedReport.class.getName(), ArrayList.class.getName(), HashMap.class.getName(),
+            LinkedHashMap.class.getName(), Enum.class.getName(), Number.class.getName(), Integer.class.getName(),
+            Long.class.getName(), Boolean.class.getName(), Priority.class.getName(), TreeString.class.getName(),
+            LineRange.class.getName(), LineRangeList.class.getName());
+    /** Arrays of primitive types are accepted as well. */
+    private static final Pattern PRIMITIVE_ARRAY = Pattern.compile("\\[+[ZBCSIJFD]");
+
+    /** Reports of the previous build that have not been reused yet, mapped by digest. */
+    private final Map<String, CachedReport> previousReports = Maps.newHashMap();
+    /** Reports of the current build, mapped by digest. */
+    private final Map<String, CachedReport> currentReports = Maps.newLinkedHashMap();
+
+    @CheckForNull
+    private final File cacheFile;
+    private final String parserVersion;
+    private final String workspacePath;
+
+    private int hits;
+    private int misses;
+
+    /**
+     * Loads the cache from the specified file. If the file does not exist, could not be read, contains classes that
+     * are not accepted, or has been written for a different version of the parser, then the cache starts empty.
+     *
+     * @param cacheFile
+     *            the file that stores the cache, or <code>null</code> if the cache should not be persisted
+     * @param parser
+     *            the parser that creates the annotations
+     * @param workspace
+     *            the workspace of the current build
+     * @return the cache
+     */
+    public static ParsedReportCache load(@CheckForNull final File cacheFile, final AnnotationParser parser,
+            final File workspace) {
+        ParsedReportCache cache = new ParsedReportCache(cacheFile, getVersion(parser), workspace.getAbsolutePath());
+        if (cacheFile != null && cacheFile.isFile()) {
+            try {
+                cache.read(parser.getClass().getClassLoader());
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.FINE, "Can't read parsed report cache " + cacheFile, exception);
+
+                cache.previousReports.clear();
+            }
+            catch (ClassNotFoundException exception) {
+                LOGGER.log(Level.FINE, "Can't read parsed report cache " + cacheFile, exception);
+
+                cache.previousReports.clear();
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the version of the specified parser: the name of the parser class, its serial version UID and the
+     * implementation version of the plug-in that provides the parser.
+     */
+    private static String getVersion(final AnnotationParser parser) {
+        Class<? extends AnnotationParser> type = parser.getClass();
+        StringBuilder version = new StringBuilder(type.getName());
+        ObjectStreamClass description = ObjectStreamClass.lookup(type);
+        if (description != null) {
+            version.append(':').append(description.getSerialVersionUID());
+        }
+        Package definition = type.getPackage();
+        if (definition != null && definition.getImplementationVersion() != null) {
+            version.append(':').append(definition.getImplementationVersion());
+        }
+        return version.toString();
+    }
+
+    private ParsedReportCache(@CheckForNull final File cacheFile, final String parserVersion,
+            final String workspacePath) {
+        this.cacheFile = cacheFile;
+        this.parserVersion = parserVersion;
+        this.workspacePath = normalize(workspacePath);
+    }
+
+    private static String normalize(final String path) {
+        return StringUtils.removeEnd(path.replace('\\', '/'), SLASH);
+    }
+
+    /**
+     * Returns the digest of the specified report file.
+     *
+     * @param report
+     *            the report file
+     * @return the digest, or <code>null</code> if the report could not be read
+     */
+    @CheckForNull
+    public String getDigest(final File report) {
+        try {
+            return Util.getDigestOf(report);
+        }
+        catch (IOException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the annotations of an unchanged report file. The annotations are rebased onto the current workspace
+     * path and the specified module name, and get new keys. Each cached report is returned only once, so the annotations of two reports
+     * with the same content are not shared.
+     *
+     * @param digest
+     *            the digest of the report file
+     * @param moduleName
+     *            the module of the report file
+     * @return the annotations of the report, or <code>null</code> if the report is not in the cache
+     */
+    @CheckForNull
+    public synchronized Collection<FileAnnotation> get(final String digest, final String moduleName) {
+        CachedReport report = previousReports.remove(digest);
+        if (report == null || currentReports.containsKey(digest)) {
+            misses++;
+            return null;
+        }
+        hits++;
+
+        report.rebase(workspacePath, StringUtils.defaultString(moduleName));
+        currentReports.put(digest, report);
+
+        return report.getAnnotations();
+    }
+
+    /**
+     * Stores the annotations of a parsed report file.
+     *
+     * @param digest
+     *            the digest of the report file
+     * @param moduleName
+     *            the module of the report file
+     * @param annotations
+     *            the annotations of the report
+     */
+    public synchronized void put(final String digest, final String moduleName,
+            final Collection<FileAnnotation> annotations) {
+        currentReports.put(digest, new CachedReport(workspacePath, StringUtils.defaultString(moduleName), annotations));
+    }
+
+    /**
+     * Returns the number of reports that have been found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of reports that have not been found in the cache.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void read(final ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        ObjectInputStream input = new ClassLoaderObjectInputStream(
+                new BufferedInputStream(new FileInputStream(cacheFile)), classLoader);
+        try {
+            if (input.readInt() != VERSION || !parserVersion.equals(input.readUTF())) {
+                return;
+            }
+            previousReports.putAll((Map<String, CachedReport>)input.readObject());
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Saves the reports of the current build to the cache file, see {@link CacheFiles#save(File, CacheFiles.Content)}.
+     */
+    public synchronized void save() {
+        if (cacheFile != null) {
+            CacheFiles.save(cacheFile, new CacheFiles.Content() {
+                @Override
+                public void write(final File file) throws IOException {
+                    ParsedReportCache.this.write(file);
+                }
+            });
+        }
+    }
+
+    private void write(final File file) throws IOException {
+        ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            output.writeInt(VERSION);
+            output.writeUTF(parserVersion);
+            output.writeObject(Maps.newLinkedHashMap(currentReports));
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * The annotations of a report file, along with the workspace path and module name they have been created for.
+     */
+    private static class CachedReport implements Serializable {
+        private static final long serialVersionUID = 2826478406297466741L;
+
+        private final List<FileAnnotation> annotations;
+        private String workspacePath;
+        private String moduleName;
+
+        CachedReport(final String workspacePath, final String moduleName,
+                final Collection<FileAnnotation> annotations) {
+            this.workspacePath = workspacePath;
+            this.moduleName = moduleName;
+            this.annotations = Lists.newArrayList(annotations);
+        }
+
+        List<FileAnnotation> getAnnotations() {
+            return annotations;
+        }
+
+        /**
+         * Replaces the workspace path and the module name of all annotations. Since the annotations are reused in
+         * another build, each annotation gets a new key.
+         *
+         * @param currentWorkspacePath
+         *            the workspace path of the current build
+         * @param currentModuleName
+         *            the module name of the current build
+         */
+        void rebase(final String currentWorkspacePath, final String currentModuleName) {
+            boolean isWorkspaceChanged = !workspacePath.equals(currentWorkspacePath);
+            boolean isModuleChanged = !moduleName.equals(currentModuleName);
+            for (FileAnnotation annotation : annotations) {
+                String fileName = annotation.getFileName();
+                if (isWorkspaceChanged && fileName != null && fileName.startsWith(workspacePath + SLASH)) {
+                    annotation.setFileName(currentWorkspacePath + fileName.substring(workspacePath.length()));
+                }
+                if (isModuleChanged && moduleName.equals(StringUtils.defaultString(annotation.getModuleName()))) {
+                    annotation.setModuleName(currentModuleName);
+                }
+                if (annotation instanceof AbstractAnnotation) {
+                    ((AbstractAnnotation)annotation).assignNewKey();
+                }
+            }
+            workspacePath = currentWorkspacePath;
+            moduleName = currentModuleName;
+        }
+    }
+
+    /**
+     * Resolves the classes of the cached annotations using the class loader of the parser, since the annotation
+     * classes are usually defined in the plug-in that provides the parser. Only annotation classes and the classes
+     * in {@link #ACCEPTED_CLASSES} are resolved, all other classes are rejected. Since the names of the annotation
+     * classes are not known in advance, a class that is not in {@link #ACCEPTED_CLASSES} needs to be loaded to check
+     * whether it is an annotation class. The class is loaded without initialization, so the static initializer of a
+     * rejected class is never run.
+     */
+    private static class ClassLoaderObjectInputStream extends ObjectInputStream {
+        private final ClassLoader classLoader;
+
+        ClassLoaderObjectInputStream(final InputStream input, final ClassLoader classLoader) throws IOException {
+            super(input);
+
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass description)
+                throws IOException, ClassNotFoundException {
+            String name = description.getName();
+            if (ACCEPTED_CLASSES.contains(name) || PRIMITIVE_ARRAY.matcher(name).matches()) {
+                return Class.forName(name, false, ParsedReportCache.class.getClassLoader());
+            }
+            Class<?> type = Class.forName(name, false, classLoader);
+            if (FileAnnotation.class.isAssignableFrom(type)) {
+                return type;
+            }
+            throw new InvalidClassException(name, "Class is not accepted in a parsed report cache");
+        }
+    }
+}
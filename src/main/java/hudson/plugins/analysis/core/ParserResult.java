@@ -1,7 +1,9 @@
 package hudson.plugins.analysis.core;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -9,6 +11,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,11 +27,17 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.infradna.tool.bridge_method_injector.WithBridgeMethods;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jenkins.MasterToSlaveFileCallable;
+
 import hudson.FilePath;
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.util.FileFinder;
+import hudson.plugins.analysis.util.WorkspaceSnapshot;
+import hudson.plugins.analysis.util.model.CompactAnnotationFormat;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
+import hudson.remoting.VirtualChannel;
 
 /**
  * Stores the collection of parsed annotations and associated error messages. This class is not thread safe.
@@ -40,9 +49,9 @@ public class ParserResult implements Serializable {
     private static final Logger LOGGER = Logger.getLogger(ParserResult.class.getName());
     private static final String SLASH = "/";
 
-    /** The parsed annotations. */
+    /** The parsed annotations, serialized by {@link #writeObject(ObjectOutputStream)}. */
     @SuppressWarnings("Se")
-    private final Set<FileAnnotation> annotations = new HashSet<FileAnnotation>();
+    private transient Set<FileAnnotation> annotations = new HashSet<FileAnnotation>();
     /** The collection of error messages. */
     @SuppressWarnings("Se")
     private final List<String> errorMessages = new ArrayList<String>();
@@ -57,6 +66,12 @@ public class ParserResult implements Serializable {
     /** A mapping of relative file names to absolute file names. */
     @SuppressWarnings("Se")
     private transient Multimap<String, String> fileNameCache = HashMultimap.create();
+    /**
+     * The resolved absolute file names of relative file names, <code>null</code> values mark file names that could not
+     * be resolved. @since 1.97
+     */
+    @SuppressWarnings("Se")
+    private transient Map<String, String> resolvedFileNames = new HashMap<String, String>();
     /** The log messages. @since 1.20 **/
     private String logMessage;
     /** Total number of modules. @since 1.31 **/
@@ -68,6 +83,8 @@ public class ParserResult implements Serializable {
      * @since 1.55
      */
     private final boolean canResolveRelativePaths;
+    /** The timings of the stages that created this result. @since 1.97 */
+    private StageTimings timings = new StageTimings();
 
     /**
      * Creates a new instance of {@link ParserResult}.
@@ -121,6 +138,19 @@ public class ParserResult implements Serializable {
         }
     }
 
+    /**
+     * Creates a new instance of {@link ParserResult}. Relative paths in warnings are resolved using the files of the
+     * specified snapshot, so the workspace is not scanned again.
+     *
+     * @param workspace               the workspace to find the files in
+     * @param canResolveRelativePaths determines whether relative paths in warnings should be resolved using the files
+     *                                of the workspace snapshot
+     * @param snapshot                snapshot of the workspace files
+     */
+    ParserResult(final FilePath workspace, final boolean canResolveRelativePaths, final WorkspaceSnapshot snapshot) {
+        this(new SnapshotAdapter(workspace, snapshot), canResolveRelativePaths);
+    }
+
     private static FilePathAdapter asWorkspace(final FilePath workspace) {
         return new FilePathAdapter(workspace);
     }
@@ -146,6 +176,7 @@ public class ParserResult implements Serializable {
         addAnnotations(additionalProject.getAnnotations());
         addErrors(additionalProject.getErrorMessages());
         addModules(additionalProject.getModules());
+        timings.addAll(additionalProject.getTimings());
     }
 
     /**
@@ -153,70 +184,132 @@ public class ParserResult implements Serializable {
      *
      * @param annotation the annotation
      */
-    // TODO: when used on a slave then for each file a remote call is initiated
     private void expandRelativePaths(final FileAnnotation annotation) {
+        if (hasRelativeFileName(annotation)) {
+            String fileName = annotation.getFileName();
+            if (!resolvedFileNames.containsKey(fileName)) {
+                resolveRelativePaths(Collections.singleton(fileName));
+            }
+            String absoluteFileName = resolvedFileNames.get(fileName);
+            if (absoluteFileName != null) {
+                annotation.setFileName(absoluteFileName);
+            }
+        }
+    }
+
+    /**
+     * Resolves the relative file names of the specified annotations that have not been resolved yet. The existence
+     * of all files in the workspace is checked with a single (remote) call, so the number of calls does not depend
+     * on the number of annotations. The resolved file names are cached, each relative file name is resolved only once.
+     *
+     * @param newAnnotations the annotations to resolve the relative file names for
+     */
+    private void resolveRelativePaths(final Collection<? extends FileAnnotation> newAnnotations) {
+        Set<String> fileNames = new LinkedHashSet<String>();
+        for (FileAnnotation annotation : newAnnotations) {
+            if (hasRelativeFileName(annotation) && !resolvedFileNames.containsKey(annotation.getFileName())) {
+                fileNames.add(annotation.getFileName());
+            }
+        }
+        if (!fileNames.isEmpty()) {
+            resolveRelativePaths(fileNames);
+        }
+    }
+
+    private void resolveRelativePaths(final Set<String> fileNames) {
         try {
-            if (hasRelativeFileName(annotation)) {
-                Workspace remoteFile = workspace.child(annotation.getFileName());
-                if (remoteFile.exists()) {
-                    annotation.setFileName(remoteFile.getPath());
-                }
-                else if (canResolveRelativePaths) {
-                    findFileByScanningAllWorkspaceFiles(annotation);
+            Map<String, String> existingFiles = findExistingFiles(fileNames);
+            for (String fileName : fileNames) {
+                String absoluteFileName = existingFiles.get(fileName);
+                if (absoluteFileName == null && canResolveRelativePaths) {
+                    absoluteFileName = findFileByScanningAllWorkspaceFiles(fileName);
                 }
+                resolvedFileNames.put(fileName, absoluteFileName);
             }
         }
         catch (IOException exception) {
-            // ignore
+            markAsUnresolved(fileNames);
         }
         catch (InterruptedException exception) {
-            // ignore
+            markAsUnresolved(fileNames);
+        }
+    }
+
+    private void markAsUnresolved(final Set<String> fileNames) {
+        for (String fileName : fileNames) {
+            if (!resolvedFileNames.containsKey(fileName)) {
+                resolvedFileNames.put(fileName, null);
+            }
+        }
+    }
+
+    /**
+     * Returns the absolute file names of all files that exist in the workspace.
+     *
+     * @param fileNames the relative file names
+     * @return the absolute file names of the existing files, mapped by relative file name
+     * @throws IOException          signals that an I/O exception has occurred.
+     * @throws InterruptedException If the user cancels this action
+     */
+    private Map<String, String> findExistingFiles(final Set<String> fileNames) throws IOException, InterruptedException {
+        if (workspace instanceof FilePathAdapter) {
+            return ((FilePathAdapter)workspace).findExistingFiles(fileNames);
+        }
+
+        Map<String, String> existingFiles = new HashMap<String, String>();
+        for (String fileName : fileNames) {
+            Workspace remoteFile = workspace.child(fileName);
+            if (remoteFile.exists()) {
+                existingFiles.put(fileName, remoteFile.getPath());
+            }
         }
+        return existingFiles;
     }
 
     /**
      * Returns the file name from the cache of all workspace files. The cache will be built only once.
      *
-     * @param annotation the annotation to get the filename for
+     * @param fileName the relative file name to get the absolute filename for
+     * @return the absolute file name, or <code>null</code> if there is no unique match
      * @throws IOException          signals that an I/O exception has occurred.
      * @throws InterruptedException If the user cancels this action
      */
-    private void findFileByScanningAllWorkspaceFiles(final FileAnnotation annotation) throws IOException, InterruptedException {
+    private String findFileByScanningAllWorkspaceFiles(final String fileName) throws IOException, InterruptedException {
         if (fileNameCache.isEmpty()) {
             populateFileNameCache();
         }
 
-        String baseName = FilenameUtils.getName(annotation.getFileName());
+        String baseName = FilenameUtils.getName(fileName);
         if (fileNameCache.containsKey(baseName)) {
             int matchesCount = 0;
             String absoluteFileName = null;
+            String strippedFileName = stripRelativePrefix(fileName);
             for (String match : fileNameCache.get(baseName)) {
-                String annotationFileName = annotation.getFileName();
-                String strippedFileName = stripRelativePrefix(annotationFileName);
                 if (match.contains(strippedFileName)) {
                     absoluteFileName = workspace.getPath() + SLASH + match;
                     matchesCount++;
                 }
             }
             if (matchesCount == 1) {
-                annotation.setFileName(absoluteFileName);
+                return absoluteFileName;
             }
             else if (matchesCount == 0) {
                 LOGGER.log(Level.FINE, String.format(
                         "Absolute filename could not be resolved for: %s. Found no matches in cache: %s. ",
-                        annotation.getFileName(), fileNameCache.get(baseName)));
+                        fileName, fileNameCache.get(baseName)));
             }
             else {
                 LOGGER.log(Level.FINE, String.format(
                         "Absolute filename could not be resolved for: %s. Found multiple matches in cache: %s. ",
-                        annotation.getFileName(), fileNameCache.get(baseName)));
+                        fileName, fileNameCache.get(baseName)));
             }
         }
         else {
             LOGGER.log(Level.FINE, String.format(
                     "Absolute filename could not be resolved for: %s. No such file in workspace: %s. ",
-                    annotation.getFileName(), workspace.getPath()));
+                    fileName, workspace.getPath()));
         }
+        return null;
     }
 
     String stripRelativePrefix(final String annotationFileName) {
@@ -268,6 +361,18 @@ public class ParserResult implements Serializable {
         return 0;
     }
 
+    /**
+     * Removes the specified annotation from this container.
+     *
+     * @param annotation the annotation to remove
+     */
+    void removeAnnotation(final FileAnnotation annotation) {
+        if (annotations.remove(annotation)) {
+            Integer count = annotationCountByPriority.get(annotation.getPriority());
+            annotationCountByPriority.put(annotation.getPriority(), count - 1);
+        }
+    }
+
     /**
      * Adds the specified annotations to this container.
      *
@@ -276,6 +381,8 @@ public class ParserResult implements Serializable {
      */
     @WithBridgeMethods(value = void.class) // JENKINS-25405
     public final int addAnnotations(final Collection<? extends FileAnnotation> newAnnotations) {
+        resolveRelativePaths(newAnnotations);
+
         int count = 0;
         for (FileAnnotation annotation : newAnnotations) {
             count += addAnnotation(annotation);
@@ -458,13 +565,39 @@ public class ParserResult implements Serializable {
         return StringUtils.defaultString(logMessage);
     }
 
+    /**
+     * Returns the timings of the stages that created this result, e.g. finding and parsing the report files.
+     *
+     * @return the timings
+     * @since 1.97
+     */
+    public StageTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Writes the annotations in the {@link CompactAnnotationFormat} to the stream of the remoting channel, so the
+     * classes of the annotations are resolved and filtered by the channel.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        CompactAnnotationFormat.write(out, annotations);
+    }
+
     /**
      * repopulate the transient fileNameCache
      */
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
 
+        this.annotations = new HashSet<FileAnnotation>();
+        CompactAnnotationFormat.read(in, annotations);
+
         this.fileNameCache = HashMultimap.create();
+        this.resolvedFileNames = new HashMap<String, String>();
+        if (timings == null) {
+            timings = new StageTimings();
+        }
     }
 
     /**
@@ -516,6 +649,86 @@ public class ParserResult implements Serializable {
         public String[] findFiles(final String pattern) throws IOException, InterruptedException {
             return wrapped.act(new FileFinder(pattern));
         }
+
+        /**
+         * Returns the absolute file names of all files that exist in the workspace. The existence of all files is
+         * checked with a single remote call.
+         *
+         * @param fileNames the relative file names
+         * @return the absolute file names of the existing files, mapped by relative file name
+         * @throws IOException          signals that an I/O exception has occurred.
+         * @throws InterruptedException If the user cancels this action
+         * @since 1.97
+         */
+        Map<String, String> findExistingFiles(final Collection<String> fileNames)
+                throws IOException, InterruptedException {
+            return wrapped.act(new ExistingFilesFinder(fileNames));
+        }
+    }
+
+    /**
+     * Checks the existence of a set of files relative to the workspace root. Runs on the machine that contains the
+     * workspace.
+     */
+    private static class ExistingFilesFinder extends MasterToSlaveFileCallable<Map<String, String>> {
+        private static final long serialVersionUID = 3818207463466391702L;
+
+        private final List<String> fileNames;
+
+        /**
+         * Creates a new instance of {@link ExistingFilesFinder}.
+         *
+         * @param fileNames the relative file names
+         */
+        ExistingFilesFinder(final Collection<String> fileNames) {
+            this.fileNames = new ArrayList<String>(fileNames);
+        }
+
+        @Override
+        public Map<String, String> invoke(final File root, final VirtualChannel channel)
+                throws IOException, InterruptedException {
+            FilePath workspace = new FilePath(root);
+
+            HashMap<String, String> existingFiles = new HashMap<String, String>();
+            for (String fileName : fileNames) {
+                FilePath file = workspace.child(fileName);
+                if (file.exists()) {
+                    existingFiles.put(fileName, file.getRemote());
+                }
+            }
+            return existingFiles;
+        }
+    }
+
+    /**
+     * Finds the files of the workspace in a {@link WorkspaceSnapshot}. The snapshot is not serialized, so a
+     * de-serialized instance scans the workspace again.
+     */
+    private static class SnapshotAdapter extends FilePathAdapter {
+        private static final long serialVersionUID = -3298214768462937624L;
+
+        @SuppressFBWarnings("Se")
+        private final transient WorkspaceSnapshot snapshot;
+
+        /**
+         * Creates a new instance of {@link SnapshotAdapter}.
+         *
+         * @param workspace the {@link FilePath} to wrap
+         * @param snapshot  snapshot of the workspace files
+         */
+        SnapshotAdapter(final FilePath workspace, final WorkspaceSnapshot snapshot) {
+            super(workspace);
+
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String[] findFiles(final String pattern) throws IOException, InterruptedException {
+            if (snapshot == null) {
+                return super.findFiles(pattern);
+            }
+            return new FileFinder(pattern).find(snapshot);
+        }
     }
 
     /**
@@ -0,0 +1,98 @@
+package hudson.plugins.analysis.core;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import hudson.plugins.analysis.util.TreeStringBuilder;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Adds the received annotations to a {@link ParserResult}. Each annotation is interned, its relative path is expanded
+ * and duplicates are skipped as soon as the annotation has been received. The annotations of a file that could not
+ * be parsed completely can be removed again with {@link #discard()}. This class is not thread safe.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class ParserResultSink implements AnnotationSink {
+    private final ParserResult result;
+    private final TreeStringBuilder stringPool = new TreeStringBuilder();
+    /** The annotations that have been added to the result since the last call of {@link #reset()}. */
+    private final List<FileAnnotation> added = Lists.newArrayList();
+
+    private int numberOfAnnotations;
+    private int numberOfDuplicates;
+
+    /**
+     * Creates a new instance of {@link ParserResultSink}.
+     *
+     * @param result
+     *            the result to add the annotations to
+     */
+    public ParserResultSink(final ParserResult result) {
+        this.result = result;
+    }
+
+    @Override
+    public boolean add(final FileAnnotation annotation) {
+        if (annotation instanceof AbstractAnnotation) {
+            ((AbstractAnnotation)annotation).intern(stringPool);
+        }
+
+        numberOfAnnotations++;
+        if (result.addAnnotation(annotation) == 0) {
+            numberOfDuplicates++;
+            return false;
+        }
+        added.add(annotation);
+        return true;
+    }
+
+    /**
+     * Returns the number of received annotations since the last call of {@link #reset()}.
+     *
+     * @return the number of annotations
+     */
+    public int getNumberOfAnnotations() {
+        return numberOfAnnotations;
+    }
+
+    /**
+     * Returns the number of received annotations that have been skipped since the last call of {@link #reset()},
+     * since the result already contained an equal annotation.
+     *
+     * @return the number of duplicates
+     */
+    public int getNumberOfDuplicates() {
+        return numberOfDuplicates;
+    }
+
+    /**
+     * Resets the number of received annotations and duplicates.
+     */
+    public void reset() {
+        numberOfAnnotations = 0;
+        numberOfDuplicates = 0;
+        added.clear();
+    }
+
+    /**
+     * Removes the annotations that have been added to the result since the last call of {@link #reset()}. Call this
+     * method if a file could not be parsed completely, so that the result contains no annotations of this file.
+     */
+    public void discard() {
+        for (FileAnnotation annotation : added) {
+            result.removeAnnotation(annotation);
+        }
+        reset();
+    }
+
+    /**
+     * Finishes the interning of the received annotations. Call this method after all annotations have been added.
+     */
+    public void finish() {
+        stringPool.dedup();
+    }
+}
@@ -0,0 +1,42 @@
+package hudson.plugins.analysis.core;
+
+/**
+ * Global settings that tune the performance of all static code analysis plug-ins. These settings are provided by a
+ * separate interface, so that existing implementations of {@link Settings} remain compatible: if settings don't
+ * implement this interface, then the defaults are used.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public interface PerformanceSettings extends Settings {
+    /**
+     * Returns the maximum number of worker threads that should be used on an agent to analyze the files of the
+     * workspace in parallel.
+     *
+     * @return the maximum number of threads, a value of 1 disables the parallel analysis
+     */
+    Integer getParallelism();
+
+    /**
+     * Returns whether the source files that are copied to the build folders should be stored compressed.
+     *
+     * @return on <code>true</code> the copies are compressed with gzip, on <code>false</code> plain copies are stored
+     */
+    Boolean getCompressSources();
+
+    /**
+     * Returns whether the annotations of a build should be stored in a binary file rather than in an XML file. XML
+     * files of existing builds are still read.
+     *
+     * @return on <code>true</code> the annotations are stored in a binary file, on <code>false</code> in an XML file
+     */
+    Boolean getBinaryResults();
+
+    /**
+     * Returns whether the annotations of a build should be stored relative to the annotations of the reference build.
+     * Full snapshots are still stored periodically to bound the number of builds that need to be read.
+     *
+     * @return on <code>true</code> only the new and fixed annotations are stored, on <code>false</code> all annotations
+     */
+    Boolean getDeltaResults();
+}
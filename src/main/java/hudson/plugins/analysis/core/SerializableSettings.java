@@ -2,21 +2,32 @@ package hudson.plugins.analysis.core;
 
 import java.io.Serializable;
 
+import hudson.plugins.analysis.util.WorkerPool;
+
 /**
  * Serializable settings that could be transferred to slaves.
  *
  * @author Ulli Hafner
  */
-public class SerializableSettings implements Settings, Serializable {
+public class SerializableSettings implements PerformanceSettings, Serializable {
     private static final long serialVersionUID = 2078877884081589761L;
 
     private final boolean failOnCorrupt;
     private final boolean quietMode;
     /** @Since 1.88 */
     private final Boolean noAuthors;
+    /** @Since 1.97 */
+    private final Integer parallelism;
+    /** @Since 1.97 */
+    private final Boolean compressSources;
+    /** @Since 1.97 */
+    private final Boolean binaryResults;
+    /** @Since 1.97 */
+    private final Boolean deltaResults;
 
     /**
-     * Creates a new instance of {@link SerializableSettings}.
+     * Creates a new instance of {@link SerializableSettings}. If the original settings don't implement
+     * {@link PerformanceSettings}, then the default performance settings are used.
      *
      * @param original
      *            the original settings
@@ -25,6 +36,19 @@ public class SerializableSettings implements Settings, Serializable {
         failOnCorrupt = original.getFailOnCorrupt();
         quietMode = original.getQuietMode();
         noAuthors = original.getNoAuthors();
+        if (original instanceof PerformanceSettings) {
+            PerformanceSettings performance = (PerformanceSettings)original;
+            parallelism = performance.getParallelism();
+            compressSources = performance.getCompressSources();
+            binaryResults = performance.getBinaryResults();
+            deltaResults = performance.getDeltaResults();
+        }
+        else {
+            parallelism = null;
+            compressSources = null;
+            binaryResults = null;
+            deltaResults = null;
+        }
     }
 
     @Override
@@ -41,5 +65,28 @@ public class SerializableSettings implements Settings, Serializable {
     public Boolean getNoAuthors() {
         return noAuthors;
     }
+
+    @Override
+    public Integer getParallelism() {
+        if (parallelism == null || parallelism < WorkerPool.SEQUENTIAL) {
+            return WorkerPool.SEQUENTIAL;
+        }
+        return parallelism;
+    }
+
+    @Override
+    public Boolean getCompressSources() {
+        return compressSources == null ? Boolean.FALSE : compressSources;
+    }
+
+    @Override
+    public Boolean getBinaryResults() {
+        return binaryResults == null ? Boolean.FALSE : binaryResults;
+    }
+
+    @Override
+    public Boolean getDeltaResults() {
+        return deltaResults == null ? Boolean.FALSE : deltaResults;
+    }
 }
 
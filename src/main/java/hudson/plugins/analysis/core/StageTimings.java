@@ -0,0 +1,202 @@
+package hudson.plugins.analysis.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Records the wall time, the number of processed items and the number of processed bytes of the stages of the
+ * publisher pipeline (e.g., finding and parsing the report files, computing the new warnings or copying the source
+ * files). The timings are serializable, so the stages that run on the agent are transferred to the master together
+ * with the {@link ParserResult}. This class is thread safe.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class StageTimings implements Serializable {
+    private static final long serialVersionUID = -3176458163127457392L;
+
+    private final List<Stage> stages = new ArrayList<Stage>();
+
+    /**
+     * Returns the current time that marks the start of a stage.
+     *
+     * @return the start time in nanoseconds, see {@link #record(String, long, int, long)}
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a stage that has been started at the specified time and that has been finished right now.
+     *
+     * @param name
+     *            the name of the stage
+     * @param start
+     *            the start time of the stage, see {@link #start()}
+     * @param items
+     *            the number of processed items (files, warnings, etc.)
+     * @param bytes
+     *            the number of processed bytes, or 0 if the stage does not read or write any files
+     */
+    public void record(final String name, final long start, final int items, final long bytes) {
+        add(new Stage(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), items, bytes));
+    }
+
+    /**
+     * Records a stage that has been started at the specified time and that has been finished right now.
+     *
+     * @param name
+     *            the name of the stage
+     * @param start
+     *            the start time of the stage, see {@link #start()}
+     * @param items
+     *            the number of processed items (files, warnings, etc.)
+     */
+    public void record(final String name, final long start, final int items) {
+        record(name, start, items, 0);
+    }
+
+    /**
+     * Appends all stages of the specified timings.
+     *
+     * @param other
+     *            the timings to add
+     */
+    public void addAll(final StageTimings other) {
+        for (Stage stage : other.getStages()) {
+            add(stage);
+        }
+    }
+
+    private synchronized void add(final Stage stage) {
+        stages.add(stage);
+    }
+
+    /**
+     * Returns the recorded stages in the order of their completion.
+     *
+     * @return the stages
+     */
+    public synchronized List<Stage> getStages() {
+        return Collections.unmodifiableList(new ArrayList<Stage>(stages));
+    }
+
+    /**
+     * Returns the total duration of all stages.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDuration() {
+        long duration = 0;
+        for (Stage stage : getStages()) {
+            duration += stage.getDuration();
+        }
+        return duration;
+    }
+
+    /**
+     * Returns whether no stage has been recorded yet.
+     *
+     * @return <code>true</code> if there are no stages
+     */
+    public synchronized boolean isEmpty() {
+        return stages.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder("Timings:");
+        for (Stage stage : getStages()) {
+            summary.append(' ').append(stage).append(',');
+        }
+        summary.append(" total ").append(getDuration()).append(" ms");
+        return summary.toString();
+    }
+
+    /**
+     * A single stage of the publisher pipeline. Instances of this class are immutable.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class Stage implements Serializable {
+        private static final long serialVersionUID = 6925126307271658839L;
+
+        private final String name;
+        private final long duration;
+        private final int items;
+        private final long bytes;
+
+        /**
+         * Creates a new instance of {@link Stage}.
+         *
+         * @param name
+         *            the name of the stage
+         * @param duration
+         *            the wall time of the stage in milliseconds
+         * @param items
+         *            the number of processed items
+         * @param bytes
+         *            the number of processed bytes
+         */
+        public Stage(final String name, final long duration, final int items, final long bytes) {
+            this.name = name;
+            this.duration = duration;
+            this.items = items;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Returns the name of this stage.
+         *
+         * @return the name
+         */
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the wall time of this stage.
+         *
+         * @return the duration in milliseconds
+         */
+        @Exported
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Returns the number of processed items.
+         *
+         * @return the number of items
+         */
+        @Exported
+        public int getItems() {
+            return items;
+        }
+
+        /**
+         * Returns the number of processed bytes.
+         *
+         * @return the number of bytes
+         */
+        @Exported
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            String summary = String.format("%s %d ms (%d items", name, duration, items);
+            if (bytes > 0) {
+                summary += String.format(", %d bytes", bytes);
+            }
+            return summary + ")";
+        }
+    }
+}
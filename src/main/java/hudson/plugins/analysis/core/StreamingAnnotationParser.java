@@ -0,0 +1,31 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A parser for annotations that pushes the found annotations into an {@link AnnotationSink} rather than returning a
+ * collection of annotations. So the memory consumption of the parser does not depend on the number of annotations in
+ * the parsed file.
+ *
+ * @author agent
+ * @see StreamingParserAdapter
+ * @since 1.97
+ */
+public interface StreamingAnnotationParser extends AnnotationParser {
+    /**
+     * Parses the specified file and adds all found annotations to the specified sink. If the file could not be
+     * parsed, then the annotations that have been found so far are already part of the sink: the
+     * {@link FilesParser} removes them again, so no annotations of a broken file are reported.
+     *
+     * @param file
+     *            the file to parse
+     * @param moduleName
+     *            name of the maven module
+     * @param sink
+     *            the sink that receives the found annotations
+     * @throws InvocationTargetException
+     *             if the file could not be parsed (wrap your exception in this exception)
+     */
+    void parse(File file, String moduleName, AnnotationSink sink) throws InvocationTargetException;
+}
@@ -0,0 +1,63 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+
+import hudson.plugins.analysis.util.model.FileAnnotation;
+
+/**
+ * Adapts an {@link AnnotationParser} that returns a collection of annotations to the {@link StreamingAnnotationParser}
+ * interface. The annotations are added to the sink after the whole file has been parsed.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public final class StreamingParserAdapter implements StreamingAnnotationParser {
+    private static final long serialVersionUID = -3035707622733539357L;
+
+    private final AnnotationParser wrapped;
+
+    /**
+     * Returns a streaming parser for the specified parser.
+     *
+     * @param parser
+     *            the parser to adapt
+     * @return the specified parser if it already is a streaming parser, or an adapter of the parser otherwise
+     */
+    public static StreamingAnnotationParser of(final AnnotationParser parser) {
+        if (parser instanceof StreamingAnnotationParser) {
+            return (StreamingAnnotationParser) parser;
+        }
+        return new StreamingParserAdapter(parser);
+    }
+
+    private StreamingParserAdapter(final AnnotationParser wrapped) {
+        this.wrapped = wrapped;
+    }
+
+    @Override
+    public void parse(final File file, final String moduleName, final AnnotationSink sink)
+            throws InvocationTargetException {
+        addAll(parse(file, moduleName), sink);
+    }
+
+    @Override
+    public Collection<FileAnnotation> parse(final File file, final String moduleName) throws InvocationTargetException {
+        return wrapped.parse(file, moduleName);
+    }
+
+    /**
+     * Adds all specified annotations to the sink.
+     *
+     * @param annotations
+     *            the annotations to add
+     * @param sink
+     *            the sink that receives the annotations
+     */
+    static void addAll(final Collection<FileAnnotation> annotations, final AnnotationSink sink) {
+        for (FileAnnotation annotation : annotations) {
+            sink.add(annotation);
+        }
+    }
+}
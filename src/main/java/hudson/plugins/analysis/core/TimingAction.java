@@ -0,0 +1,163 @@
+package hudson.plugins.analysis.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import com.google.common.collect.Maps;
+
+import hudson.model.Action;
+import hudson.model.Api;
+import hudson.model.Run;
+
+/**
+ * Stores the {@link StageTimings} of all analysis plug-ins that have been run in a build. The action has no side panel
+ * link, the timings are available as remote API below the URL {@value #URL_NAME}, e.g.
+ * {@code job/name/42/analysis-timings/api/json}. So the timings can be charted across builds.
+ *
+ * @author agent
+ * @since 1.97
+ */
+@ExportedBean
+public class TimingAction implements Action {
+    /** URL of this action. */
+    public static final String URL_NAME = "analysis-timings";
+
+    private static final Object LOCK = new Object();
+
+    private final Map<String, StageTimings> timingsByPlugin = Maps.newLinkedHashMap();
+
+    /**
+     * Adds the specified timings of a plug-in to the timing action of the specified build. If the build has no timing
+     * action yet, then a new action is attached.
+     *
+     * @param run
+     *            the build
+     * @param pluginId
+     *            the ID of the plug-in that recorded the timings
+     * @param timings
+     *            the timings to add
+     * @return all timings of the plug-in in the specified build
+     */
+    public static StageTimings addTimings(final Run<?, ?> run, final String pluginId, final StageTimings timings) {
+        synchronized (LOCK) {
+            TimingAction action = run.getAction(TimingAction.class);
+            if (action == null) {
+                action = new TimingAction();
+                run.addAction(action);
+            }
+            return action.add(pluginId, timings);
+        }
+    }
+
+    private synchronized StageTimings add(final String pluginId, final StageTimings timings) {
+        StageTimings existing = timingsByPlugin.get(pluginId);
+        if (existing == null) {
+            existing = new StageTimings();
+            timingsByPlugin.put(pluginId, existing);
+        }
+        existing.addAll(timings);
+        return existing;
+    }
+
+    /**
+     * Returns the timings of the specified plug-in.
+     *
+     * @param pluginId
+     *            the ID of the plug-in
+     * @return the timings, might be empty
+     */
+    public synchronized StageTimings getTimings(final String pluginId) {
+        StageTimings timings = timingsByPlugin.get(pluginId);
+        if (timings == null) {
+            return new StageTimings();
+        }
+        return timings;
+    }
+
+    /**
+     * Returns the timings of all plug-ins.
+     *
+     * @return the timings of all plug-ins
+     */
+    @Exported
+    public synchronized List<PluginTimings> getPlugins() {
+        List<PluginTimings> plugins = new ArrayList<PluginTimings>();
+        for (Entry<String, StageTimings> timings : timingsByPlugin.entrySet()) {
+            plugins.add(new PluginTimings(timings.getKey(), timings.getValue()));
+        }
+        return plugins;
+    }
+
+    /**
+     * Gets the remote API for this action.
+     *
+     * @return the remote API
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Static Analysis Timings";
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * The timings of a single plug-in.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class PluginTimings {
+        private final String id;
+        private final StageTimings timings;
+
+        PluginTimings(final String id, final StageTimings timings) {
+            this.id = id;
+            this.timings = timings;
+        }
+
+        /**
+         * Returns the ID of the plug-in.
+         *
+         * @return the ID
+         */
+        @Exported
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Returns the total duration of all stages.
+         *
+         * @return the duration in milliseconds
+         */
+        @Exported
+        public long getDuration() {
+            return timings.getDuration();
+        }
+
+        /**
+         * Returns the recorded stages.
+         *
+         * @return the stages
+         */
+        @Exported
+        public List<StageTimings.Stage> getStages() {
+            return timings.getStages();
+        }
+    }
+}
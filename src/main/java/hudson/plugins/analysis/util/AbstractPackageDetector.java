@@ -1,28 +1,88 @@
 package hudson.plugins.analysis.util;
 
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 
 import org.apache.commons.io.IOUtils;
 
 /**
- * Base class for package detectors.
+ * Base class for package detectors. The package or namespace declaration is expected in the header of a file, so
+ * only the lines within the first {@link #getMaximumBytes()} bytes are read.
  *
  * @author Ulli Hafner
  */
-// FIXME: Add method that uses the specified encoding when reading the files
 public abstract class AbstractPackageDetector implements PackageDetector {
     /** Identifies an unknown package. */
     protected static final String UNKNOWN_PACKAGE = "-";
 
+    /**
+     * Default number of bytes that are read to find the declaration, might be overridden by the system property
+     * {@code hudson.plugins.analysis.util.AbstractPackageDetector.maximumBytes}.
+     *
+     * @since 1.97
+     */
+    public static final int DEFAULT_MAXIMUM_BYTES = Integer.getInteger(
+            AbstractPackageDetector.class.getName() + ".maximumBytes", 64 * 1024);
+
+    private final int maximumBytes;
+
+    /**
+     * Creates a new instance of {@link AbstractPackageDetector} that reads at most {@link #DEFAULT_MAXIMUM_BYTES}.
+     */
+    public AbstractPackageDetector() {
+        this(DEFAULT_MAXIMUM_BYTES);
+    }
+
+    /**
+     * Creates a new instance of {@link AbstractPackageDetector}.
+     *
+     * @param maximumBytes
+     *            the number of bytes to read to find the declaration, the line that contains the last byte is
+     *            completed
+     * @since 1.97
+     */
+    public AbstractPackageDetector(final int maximumBytes) {
+        this.maximumBytes = maximumBytes;
+    }
+
+    /**
+     * Returns the number of bytes that are read to find the declaration.
+     *
+     * @return the number of bytes
+     * @since 1.97
+     */
+    public int getMaximumBytes() {
+        return maximumBytes;
+    }
+
     @Override
     public String detectPackageName(final String fileName) {
-        FileInputStream input = null;
+        return detectPackageName(fileName, null);
+    }
+
+    /**
+     * Detects the package or namespace name of the specified file.
+     *
+     * @param fileName
+     *            the file name of the file to scan
+     * @param encoding
+     *            the encoding of the file, or <code>null</code> to use the default encoding of this detector
+     * @return the detected package or namespace name
+     * @since 1.97
+     */
+    public String detectPackageName(final String fileName, @CheckForNull final String encoding) {
+        InputStream input = null;
         try {
             if (accepts(fileName)) {
-                input = new FileInputStream(new File(fileName));
-                return detectPackageName(input);
+                input = new HeaderInputStream(new FileInputStream(new File(fileName)), maximumBytes);
+                return detectPackageName(input, getCharset(encoding));
             }
         }
         catch (FileNotFoundException exception) {
@@ -33,4 +93,118 @@ public abstract class AbstractPackageDetector implements PackageDetector {
         }
         return UNKNOWN_PACKAGE;
     }
+
+    private Charset getCharset(@CheckForNull final String encoding) {
+        try {
+            if (encoding != null && Charset.isSupported(encoding)) {
+                return Charset.forName(encoding);
+            }
+        }
+        catch (IllegalArgumentException exception) {
+            // use the default charset
+        }
+        return getDefaultCharset();
+    }
+
+    /**
+     * Returns the charset to read files with if no encoding has been specified.
+     *
+     * @return the default charset
+     * @since 1.97
+     */
+    protected Charset getDefaultCharset() {
+        return Charset.defaultCharset();
+    }
+
+    /**
+     * Detects the package or namespace name of the specified input stream. The stream must be closed afterwards.
+     * This default implementation ignores the charset and delegates to {@link #detectPackageName(InputStream)}.
+     *
+     * @param stream
+     *            the content of the file to scan
+     * @param charset
+     *            the charset of the content
+     * @return the detected package or namespace name
+     * @since 1.97
+     */
+    protected String detectPackageName(final InputStream stream, final Charset charset) {
+        return detectPackageName(stream);
+    }
+
+    /**
+     * Reads the header of a file: the stream ends at the end of the line that contains the last byte of the header.
+     * So the last line is not truncated.
+     */
+    private static class HeaderInputStream extends FilterInputStream {
+        private static final int LINE_FEED = '\n';
+
+        private final int maximumBytes;
+        private int position;
+        private boolean isFinished;
+
+        HeaderInputStream(final InputStream input, final int maximumBytes) {
+            super(new BufferedInputStream(input));
+
+            this.maximumBytes = maximumBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (isFinished) {
+                return -1;
+            }
+            int character = super.read();
+            if (character < 0 || position >= maximumBytes && character == LINE_FEED) {
+                isFinished = true;
+            }
+            position++;
+            return character;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (isFinished) {
+                return -1;
+            }
+            if (position < maximumBytes) {
+                int count = super.read(buffer, offset, Math.min(length, maximumBytes - position));
+                if (count > 0) {
+                    position += count;
+                    isFinished = position >= maximumBytes && buffer[offset + count - 1] == LINE_FEED;
+                }
+                else {
+                    isFinished = true;
+                }
+                return count;
+            }
+            int count = 0;
+            while (count < length && !isFinished) {
+                int character = read();
+                if (character < 0) {
+                    break;
+                }
+                buffer[offset + count] = (byte)character;
+                count++;
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        @Override
+        public long skip(final long count) throws IOException {
+            return 0;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
 }
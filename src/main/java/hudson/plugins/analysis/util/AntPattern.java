@@ -0,0 +1,176 @@
+package hudson.plugins.analysis.util;
+
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A compiled Ant-style file pattern, e.g. {@code **}{@code /target/*.xml}. The pattern is split into path
+ * segments once, wildcard segments are compiled into regular expressions. The matching follows the rules of Ant's
+ * {@code DirectoryScanner}: {@code **} matches zero or more directories, {@code *} matches zero or more characters
+ * and {@code ?} matches exactly one character of a path segment. Patterns that end with a slash match everything
+ * below the directory. Matching is case sensitive.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public final class AntPattern {
+    private static final String DEEP = "**";
+    private static final String SLASH = "/";
+
+    private final String[] segments;
+    /** The compiled segments, <code>null</code> for literal segments and {@link #DEEP}. */
+    private final Pattern[] wildcards;
+
+    /**
+     * Compiles a list of patterns that are separated by commas or spaces, like the includes and excludes of an Ant
+     * file set.
+     *
+     * @param patterns
+     *            the patterns, separated by commas or spaces
+     * @return the compiled patterns
+     */
+    public static List<AntPattern> compile(final String patterns) {
+        List<AntPattern> compiled = Lists.newArrayList();
+        if (patterns != null) {
+            StringTokenizer tokenizer = new StringTokenizer(patterns, ", ", false);
+            while (tokenizer.hasMoreTokens()) {
+                String pattern = tokenizer.nextToken().trim();
+                if (pattern.length() > 0) {
+                    compiled.add(new AntPattern(pattern));
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Creates a new instance of {@link AntPattern}.
+     *
+     * @param pattern
+     *            the pattern to compile
+     */
+    public AntPattern(final String pattern) {
+        String normalized = pattern.replace('\\', '/');
+        if (normalized.endsWith(SLASH)) {
+            normalized += DEEP;
+        }
+
+        List<String> tokens = Lists.newArrayList();
+        for (String segment : StringUtils.split(normalized, SLASH)) {
+            if (!DEEP.equals(segment) || tokens.isEmpty() || !DEEP.equals(tokens.get(tokens.size() - 1))) {
+                tokens.add(segment);
+            }
+        }
+        segments = tokens.toArray(new String[tokens.size()]);
+
+        wildcards = new Pattern[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            if (!DEEP.equals(segments[i]) && StringUtils.containsAny(segments[i], "*?")) {
+                wildcards[i] = compileSegment(segments[i]);
+            }
+        }
+    }
+
+    private static Pattern compileSegment(final String segment) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char character : segment.toCharArray()) {
+            if (character == '*' || character == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(character == '*' ? ".*" : ".");
+            }
+            else {
+                literal.append(character);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * Returns whether this pattern matches the specified path.
+     *
+     * @param path
+     *            the segments of the relative path
+     * @return <code>true</code> if the pattern matches the path, <code>false</code> otherwise
+     */
+    public boolean matches(final String[] path) {
+        return matches(0, path, 0, segments.length);
+    }
+
+    /**
+     * Returns whether the segments of this pattern in the range [segment, end) match the path segments starting at
+     * the specified index.
+     */
+    private boolean matches(final int segment, final String[] path, final int index, final int end) {
+        if (segment == end) {
+            return index == path.length;
+        }
+        if (DEEP.equals(segments[segment])) {
+            for (int next = index; next <= path.length; next++) {
+                if (matches(segment + 1, path, next, end)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return index < path.length && matches(segment, path[index]) && matches(segment + 1, path, index + 1, end);
+    }
+
+    private boolean matches(final int segment, final String name) {
+        if (wildcards[segment] == null) {
+            return segments[segment].equals(name);
+        }
+        return wildcards[segment].matcher(name).matches();
+    }
+
+    /**
+     * Returns whether this pattern might match files below the specified directory. If not, then the directory does
+     * not need to be scanned.
+     *
+     * @param directory
+     *            the segments of the relative path of the directory
+     * @return <code>true</code> if the pattern might match files below the directory, <code>false</code> otherwise
+     */
+    public boolean matchesStart(final String[] directory) {
+        int segment = 0;
+        int index = 0;
+        while (segment < segments.length && index < directory.length && !DEEP.equals(segments[segment])) {
+            if (!matches(segment, directory[index])) {
+                return false;
+            }
+            segment++;
+            index++;
+        }
+        return index == directory.length || segment < segments.length;
+    }
+
+    /**
+     * Returns whether this pattern matches all files below the specified directory, i.e. the pattern ends with
+     * {@code **} and the remaining segments match the directory.
+     *
+     * @param directory
+     *            the segments of the relative path of the directory
+     * @return <code>true</code> if the pattern matches all files below the directory, <code>false</code> otherwise
+     */
+    public boolean matchesContents(final String[] directory) {
+        int last = segments.length - 1;
+
+        return last >= 0 && DEEP.equals(segments[last]) && matches(0, directory, 0, last);
+    }
+
+    @Override
+    public String toString() {
+        return StringUtils.join(segments, SLASH);
+    }
+}
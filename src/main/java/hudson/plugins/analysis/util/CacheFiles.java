@@ -0,0 +1,95 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.FilePath;
+import hudson.slaves.WorkspaceList;
+
+/**
+ * Locates and saves the cache files that are stored in the temporary directory of a workspace on the agent.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public final class CacheFiles {
+    private static final Logger LOGGER = Logger.getLogger(CacheFiles.class.getName());
+
+    /**
+     * Writes the content of a cache.
+     */
+    public interface Content {
+        /**
+         * Writes the content of the cache to the specified file.
+         *
+         * @param file
+         *            the file to write
+         * @throws IOException
+         *             if the file could not be written
+         */
+        void write(File file) throws IOException;
+    }
+
+    /**
+     * Returns a cache file in the temporary directory of the specified workspace, see
+     * {@link WorkspaceList#tempDir(FilePath)}.
+     *
+     * @param workspace
+     *            the workspace
+     * @param fileName
+     *            the name of the cache file, relative to the temporary directory
+     * @return the cache file, or <code>null</code> if the workspace is not a directory
+     */
+    @CheckForNull
+    public static File getFile(final File workspace, final String fileName) {
+        if (!workspace.isDirectory()) {
+            return null;
+        }
+        FilePath tempDirectory = WorkspaceList.tempDir(new FilePath(workspace));
+        if (tempDirectory == null) {
+            return null;
+        }
+        return new File(tempDirectory.getRemote(), fileName);
+    }
+
+    /**
+     * Saves a cache to the specified file. The content is written to a unique temporary file in the same folder that
+     * atomically replaces the cache file afterwards. So concurrent or interrupted saves do not corrupt the cache: the
+     * cache file either contains the previous or one of the new contents. Errors are logged only, since a missing
+     * cache just makes the next build slower.
+     *
+     * @param cacheFile
+     *            the cache file
+     * @param content
+     *            writes the content of the cache
+     */
+    public static void save(final File cacheFile, final Content content) {
+        File directory = cacheFile.getAbsoluteFile().getParentFile();
+        if (!directory.mkdirs() && !directory.isDirectory()) {
+            LOGGER.log(Level.FINE, "Can't create cache folder " + directory);
+            return;
+        }
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+            content.write(tempFile);
+            java.nio.file.Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Can't write cache file " + cacheFile, exception);
+        }
+        finally {
+            if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+                LOGGER.log(Level.FINE, "Can't delete temporary file " + tempFile);
+            }
+        }
+    }
+
+    private CacheFiles() {
+        // prevents instantiation
+    }
+}
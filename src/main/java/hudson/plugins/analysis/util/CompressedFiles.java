@@ -0,0 +1,94 @@
+package hudson.plugins.analysis.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads and writes the copies of the source files in the build folders. The copies are either stored as plain files or
+ * compressed with gzip. Since source files do not start with the gzip magic number, the format of a copy is detected
+ * when it is read: so compressed copies and plain copies (e.g., of older builds) are transparently readable.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public final class CompressedFiles {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAGIC_LENGTH = 2;
+
+    /**
+     * Opens the specified copy of a source file.
+     *
+     * @param file
+     *            the plain or compressed file
+     * @return the stream with the uncompressed content, must be closed by the caller
+     * @throws IOException
+     *             if the file could not be opened
+     */
+    public static InputStream open(final File file) throws IOException {
+        return decompress(new FileInputStream(file));
+    }
+
+    /**
+     * Decompresses the specified stream if it starts with the gzip magic number.
+     *
+     * @param input
+     *            the plain or compressed stream
+     * @return the stream with the uncompressed content, must be closed by the caller
+     * @throws IOException
+     *             if the stream could not be read
+     */
+    public static InputStream decompress(final InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        try {
+            if (isCompressed(buffered)) {
+                return new GZIPInputStream(buffered, BUFFER_SIZE);
+            }
+            return buffered;
+        }
+        catch (IOException exception) {
+            IOUtils.closeQuietly(buffered);
+
+            throw exception;
+        }
+    }
+
+    private static boolean isCompressed(final BufferedInputStream input) throws IOException {
+        input.mark(MAGIC_LENGTH);
+        int first = input.read();
+        int second = input.read();
+        input.reset();
+
+        return first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == GZIPInputStream.GZIP_MAGIC >> 8;
+    }
+
+    /**
+     * Returns a stream that writes a copy of a source file.
+     *
+     * @param output
+     *            the stream of the copy
+     * @param isCompressing
+     *            determines whether the content should be compressed
+     * @return the stream to write the uncompressed content to, must be closed by the caller
+     * @throws IOException
+     *             if the stream could not be created
+     */
+    public static OutputStream create(final OutputStream output, final boolean isCompressing) throws IOException {
+        if (isCompressing) {
+            return new GZIPOutputStream(new BufferedOutputStream(output, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return output;
+    }
+
+    private CompressedFiles() {
+        // prevents instantiation
+    }
+}
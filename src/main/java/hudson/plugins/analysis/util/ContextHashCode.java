@@ -1,8 +1,23 @@
 package hudson.plugins.analysis.util;
 
+import javax.annotation.CheckForNull;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.commons.io.LineIterator;
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 /**
  * Creates a hash code from the source code of the warning line and the
@@ -29,21 +44,7 @@ public class ContextHashCode {
      */
     @Deprecated
     public int create(final String fileName, final int line, final String encoding) throws IOException {
-        LineIterator lineIterator = EncodingValidator.readFile(fileName, encoding);
-
-        StringBuilder context = new StringBuilder(BUFFER_SIZE);
-        for (int i = 0; lineIterator.hasNext(); i++) {
-            String currentLine = lineIterator.nextLine();
-            if (i >= line - LINES_LOOK_AHEAD) {
-                context.append(currentLine);
-            }
-            if (i > line + LINES_LOOK_AHEAD) {
-                break;
-            }
-        }
-        lineIterator.close();
-
-        return context.toString().hashCode();
+        return create(fileName, Collections.singletonList(line), encoding).get(line);
     }
 
     /**
@@ -65,5 +66,141 @@ public class ContextHashCode {
             return fileName.hashCode();
         }
     }
-}
 
+    /**
+     * Creates the hash codes of all specified warning lines of a file. The file is read only once: if the encoding
+     * is supported by {@link MappedSourceFile} then the lines of the file are indexed and only the context lines are
+     * decoded, otherwise the context of all lines is collected while streaming through the lines of the file. The
+     * resulting hash codes are the same as the ones computed by {@link #compute(String, int, String)} for each line.
+     *
+     * @param fileName the absolute path of the file to read
+     * @param lines    the lines of the warnings in the file
+     * @param encoding the encoding of the file, if <code>null</code> or empty then the default encoding of the platform
+     *                 is used
+     * @return the hash codes of the source code, mapped by line number
+     */
+    public Map<Integer, Integer> compute(final String fileName, final Collection<Integer> lines, final String encoding) {
+        try {
+            return create(fileName, lines, encoding);
+        }
+        catch (IOException e) {
+            Map<Integer, Integer> hashCodes = new HashMap<Integer, Integer>();
+            for (Integer line : lines) {
+                hashCodes.put(line, fileName.hashCode());
+            }
+            return hashCodes;
+        }
+    }
+
+    private Map<Integer, Integer> create(final String fileName, final Collection<Integer> lines, final String encoding)
+            throws IOException {
+        Charset charset = getCharset(encoding);
+        if (charset != null && MappedSourceFile.isSupported(charset)) {
+            return create(new MappedSourceFile(new File(fileName), charset), lines);
+        }
+
+        LineIterator lineIterator = EncodingValidator.readFile(fileName, encoding);
+        try {
+            return create(lineIterator, lines);
+        }
+        finally {
+            lineIterator.close();
+        }
+    }
+
+    /**
+     * Returns the charset for the specified encoding.
+     *
+     * @param encoding the encoding of the file, if <code>null</code> or empty then the default encoding of the platform
+     *                 is used
+     * @return the charset or <code>null</code> if the encoding is not valid
+     */
+    @CheckForNull
+    private Charset getCharset(@CheckForNull final String encoding) {
+        try {
+            if (StringUtils.isBlank(encoding)) {
+                return Charset.defaultCharset();
+            }
+            return Charset.forName(encoding);
+        }
+        catch (IllegalArgumentException exception) {
+            return null; // the line iterator will report the invalid encoding
+        }
+    }
+
+    /**
+     * Creates the hash codes of all specified warning lines using the line index of the specified file.
+     *
+     * @param file  the lines of the file
+     * @param lines the lines of the warnings in the file
+     * @return the hash codes of the source code, mapped by line number
+     * @throws IOException if a line of the file could not be decoded
+     */
+    private Map<Integer, Integer> create(final MappedSourceFile file, final Collection<Integer> lines) throws IOException {
+        Map<Integer, Integer> hashCodes = new HashMap<Integer, Integer>();
+        for (Integer line : lines) {
+            if (!hashCodes.containsKey(line)) {
+                hashCodes.put(line, create(file, line));
+            }
+        }
+        return hashCodes;
+    }
+
+    /**
+     * Creates the hash code of the context of the specified line. The context starts at {@link #LINES_LOOK_AHEAD}
+     * lines before the warning line and ends {@link #LINES_LOOK_AHEAD} + 1 lines after the warning line. Note that
+     * the line number of the warning is used as zero based line index, just like in the original implementation. So
+     * the hash codes are compatible with the hash codes of previous builds.
+     *
+     * @param file the lines of the file
+     * @param line the line of the warning
+     * @return the hash code of the context
+     * @throws IOException if a line of the file could not be decoded
+     */
+    private int create(final MappedSourceFile file, final int line) throws IOException {
+        int first = Math.max(0, line - LINES_LOOK_AHEAD);
+        int last = Math.max(0, line + LINES_LOOK_AHEAD + 1);
+
+        return file.hashCode(first, last);
+    }
+
+    /**
+     * Creates the hash codes of all specified warning lines in a single pass over the lines of a file.
+     *
+     * @param lineIterator the lines of the file
+     * @param lines        the lines of the warnings in the file
+     * @return the hash codes of the source code, mapped by line number
+     */
+    private Map<Integer, Integer> create(final Iterator<String> lineIterator, final Collection<Integer> lines) {
+        List<Integer> sortedLines = Lists.newArrayList(Sets.newTreeSet(lines));
+        Map<Integer, Integer> hashCodes = new HashMap<Integer, Integer>();
+
+        Iterator<Integer> pending = sortedLines.iterator();
+        Integer next = pending.hasNext() ? pending.next() : null;
+        Map<Integer, StringBuilder> contexts = new LinkedHashMap<Integer, StringBuilder>();
+        for (int i = 0; lineIterator.hasNext() && (next != null || !contexts.isEmpty()); i++) {
+            String currentLine = lineIterator.next();
+            while (next != null && i >= next - LINES_LOOK_AHEAD) {
+                contexts.put(next, new StringBuilder(BUFFER_SIZE));
+                next = pending.hasNext() ? pending.next() : null;
+            }
+            Iterator<Entry<Integer, StringBuilder>> active = contexts.entrySet().iterator();
+            while (active.hasNext()) {
+                Entry<Integer, StringBuilder> context = active.next();
+                context.getValue().append(currentLine);
+                if (i > context.getKey() + LINES_LOOK_AHEAD) {
+                    hashCodes.put(context.getKey(), context.getValue().toString().hashCode());
+                    active.remove();
+                }
+            }
+        }
+        for (Entry<Integer, StringBuilder> context : contexts.entrySet()) {
+            hashCodes.put(context.getKey(), context.getValue().toString().hashCode());
+        }
+        while (next != null) {
+            hashCodes.put(next, 0);
+            next = pending.hasNext() ? pending.next() : null;
+        }
+        return hashCodes;
+    }
+}
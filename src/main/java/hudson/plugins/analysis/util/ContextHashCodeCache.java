@@ -0,0 +1,252 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.collect.Lists;
+
+import hudson.Util;
+
+/**
+ * Persistent cache of context hash codes. The hash codes are mapped by the digest of the file content, the encoding
+ * and the line number. So the hash codes of a file that has not been changed since the last build can be obtained
+ * without reading the file line by line. The cache is bounded: if the number of stored hash codes exceeds the limit
+ * then the hash codes of the least recently used files are evicted.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class ContextHashCodeCache {
+    private static final Logger LOGGER = Logger.getLogger(ContextHashCodeCache.class.getName());
+
+    /** File format version, increment if the format or the hash code algorithm changes. */
+    private static final int VERSION = 1;
+    /** Maximum number of stored hash codes. */
+    private static final int DEFAULT_CAPACITY = 250000;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** Hash codes mapped by file key (digest and encoding), ordered by the last access. */
+    private final LinkedHashMap<String, Map<Integer, Integer>> hashCodesByFile
+            = new LinkedHashMap<String, Map<Integer, Integer>>(16, LOAD_FACTOR, true);
+    @CheckForNull
+    private final File cacheFile;
+    private final int capacity;
+
+    private int size;
+    private int hits;
+    private int misses;
+
+    /**
+     * Loads the cache from the specified file. If the file does not exist or could not be read, then the cache
+     * starts empty.
+     *
+     * @param cacheFile
+     *            the file that stores the cache, or <code>null</code> if the cache should not be persisted
+     * @return the cache
+     */
+    public static ContextHashCodeCache load(@CheckForNull final File cacheFile) {
+        ContextHashCodeCache cache = new ContextHashCodeCache(cacheFile, DEFAULT_CAPACITY);
+        if (cacheFile != null && cacheFile.isFile()) {
+            try {
+                cache.read();
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.FINE, "Can't read context hash code cache " + cacheFile, exception);
+
+                cache.clear();
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Creates a new instance of {@link ContextHashCodeCache}.
+     *
+     * @param cacheFile
+     *            the file that stores the cache, or <code>null</code> if the cache should not be persisted
+     * @param capacity
+     *            the maximum number of stored hash codes
+     */
+    public ContextHashCodeCache(@CheckForNull final File cacheFile, final int capacity) {
+        this.cacheFile = cacheFile;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the hash codes of all specified warning lines of a file. Hash codes that are not found in the cache are
+     * computed using the specified {@link ContextHashCode} instance and added to the cache.
+     *
+     * @param contextHashCode
+     *            computes the hash codes that are not in the cache
+     * @param fileName
+     *            the absolute path of the file to read
+     * @param lines
+     *            the lines of the warnings in the file
+     * @param encoding
+     *            the encoding of the file, if <code>null</code> or empty then the default encoding of the platform is
+     *            used
+     * @return the hash codes of the source code, mapped by line number
+     */
+    public Map<Integer, Integer> compute(final ContextHashCode contextHashCode, final String fileName,
+            final Collection<Integer> lines, final String encoding) {
+        String key;
+        try {
+            key = Util.getDigestOf(new File(fileName)) + ':' + EncodingValidator.defaultCharset(encoding).name();
+        }
+        catch (IOException exception) {
+            return contextHashCode.compute(fileName, lines, encoding);
+        }
+
+        Map<Integer, Integer> hashCodes = new HashMap<Integer, Integer>();
+        List<Integer> missingLines = Lists.newArrayList();
+        synchronized (this) {
+            Map<Integer, Integer> cached = hashCodesByFile.get(key);
+            for (Integer line : lines) {
+                Integer hashCode = cached == null ? null : cached.get(line);
+                if (hashCode == null) {
+                    missingLines.add(line);
+                }
+                else {
+                    hashCodes.put(line, hashCode);
+                }
+            }
+            hits += lines.size() - missingLines.size();
+            misses += missingLines.size();
+        }
+
+        if (!missingLines.isEmpty()) {
+            Map<Integer, Integer> computed = contextHashCode.compute(fileName, missingLines, encoding);
+            hashCodes.putAll(computed);
+            put(key, computed);
+        }
+        return hashCodes;
+    }
+
+    private synchronized void put(final String key, final Map<Integer, Integer> computed) {
+        Map<Integer, Integer> cached = hashCodesByFile.get(key);
+        if (cached == null) {
+            cached = new HashMap<Integer, Integer>();
+            hashCodesByFile.put(key, cached);
+        }
+        size -= cached.size();
+        cached.putAll(computed);
+        size += cached.size();
+
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map<Integer, Integer>> leastRecentlyUsed = hashCodesByFile.values().iterator();
+        while (size > capacity && leastRecentlyUsed.hasNext()) {
+            size -= leastRecentlyUsed.next().size();
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    private void clear() {
+        hashCodesByFile.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the number of hash codes that have been found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of hash codes that have not been found in the cache.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of hash codes that are stored in the cache.
+     *
+     * @return the number of stored hash codes
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void read() throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+        try {
+            if (input.readInt() != VERSION) {
+                return;
+            }
+            int files = input.readInt();
+            for (int file = 0; file < files; file++) {
+                String key = input.readUTF();
+                int lines = input.readInt();
+                Map<Integer, Integer> hashCodes = new HashMap<Integer, Integer>(lines * 2);
+                for (int line = 0; line < lines; line++) {
+                    hashCodes.put(input.readInt(), input.readInt());
+                }
+                hashCodesByFile.put(key, hashCodes);
+                size += hashCodes.size();
+            }
+            evict();
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Saves the cache to the cache file, see {@link CacheFiles#save(File, CacheFiles.Content)}.
+     */
+    public synchronized void save() {
+        if (cacheFile != null) {
+            CacheFiles.save(cacheFile, new CacheFiles.Content() {
+                @Override
+                public void write(final File file) throws IOException {
+                    ContextHashCodeCache.this.write(file);
+                }
+            });
+        }
+    }
+
+    private void write(final File file) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            output.writeInt(VERSION);
+            output.writeInt(hashCodesByFile.size());
+            for (Entry<String, Map<Integer, Integer>> hashCodes : hashCodesByFile.entrySet()) {
+                output.writeUTF(hashCodes.getKey());
+                output.writeInt(hashCodes.getValue().size());
+                for (Entry<Integer, Integer> line : hashCodes.getValue().entrySet()) {
+                    output.writeInt(line.getKey());
+                    output.writeInt(line.getValue());
+                }
+            }
+        }
+        finally {
+            output.close();
+        }
+    }
+}
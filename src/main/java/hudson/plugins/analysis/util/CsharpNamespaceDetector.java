@@ -1,7 +1,8 @@
 package hudson.plugins.analysis.util;
 
-import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
@@ -14,16 +15,44 @@ import org.apache.commons.lang.StringUtils;
  */
 // CHECKSTYLE:CONSTANTS-OFF
 public class CsharpNamespaceDetector extends AbstractPackageDetector {
+    /**
+     * Creates a new instance of {@link CsharpNamespaceDetector}.
+     */
+    public CsharpNamespaceDetector() {
+        this(DEFAULT_MAXIMUM_BYTES);
+    }
+
+    /**
+     * Creates a new instance of {@link CsharpNamespaceDetector}.
+     *
+     * @param maximumBytes
+     *            the number of bytes to read to find the namespace declaration
+     * @since 1.97
+     */
+    public CsharpNamespaceDetector(final int maximumBytes) {
+        super(maximumBytes);
+    }
+
     @Override
     public boolean accepts(final String fileName) {
         return fileName.endsWith(".cs");
     }
 
+    @Override
+    protected Charset getDefaultCharset() {
+        return Charset.forName("UTF-8");
+    }
+
     /** {@inheritDoc}*/
     @Override
     public String detectPackageName(final InputStream stream) {
+        return detectPackageName(stream, getDefaultCharset());
+    }
+
+    @Override
+    protected String detectPackageName(final InputStream stream, final Charset charset) {
         try {
-            LineIterator iterator = IOUtils.lineIterator(stream, "UTF-8");
+            LineIterator iterator = new LineIterator(new InputStreamReader(stream, charset));
             while (iterator.hasNext()) {
                 String line = iterator.nextLine();
                 if (line.matches("^namespace .*$")) {
@@ -36,9 +65,6 @@ public class CsharpNamespaceDetector extends AbstractPackageDetector {
                 }
             }
         }
-        catch (IOException exception) {
-            // ignore
-        }
         finally {
             IOUtils.closeQuietly(stream);
         }
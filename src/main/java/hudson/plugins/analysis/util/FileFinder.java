@@ -2,17 +2,28 @@ package hudson.plugins.analysis.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 
 import jenkins.MasterToSlaveFileCallable;
 
-import org.apache.tools.ant.BuildException;
-import org.apache.tools.ant.Project;
-import org.apache.tools.ant.types.FileSet;
+import com.google.common.collect.Lists;
 
 import hudson.remoting.VirtualChannel;
 
 /**
- * Scans the workspace and finds all files matching a give pattern.
+ * Scans the workspace and finds all files matching a give pattern. The workspace is traversed using
+ * {@link Files#walkFileTree}, directories that can't contain matching files or that are excluded completely are
+ * skipped. The found files are the same as the included files of an Ant {@code DirectoryScanner}, i.e. the Ant default
+ * excludes are applied and symbolic links are followed. In contrast to Ant, each directory of a symbolic link cycle is
+ * visited only once and dangling symbolic links are skipped.
  *
  * @author Ulli Hafner
  */
@@ -23,6 +34,8 @@ public class FileFinder extends MasterToSlaveFileCallable<String[]> {
     private static final String JAVA_PATTERN = "**/*.java";
     /** The pattern to scan for. */
     private final String pattern;
+    /** The pattern of the files to exclude. @since 1.97 */
+    private final String excludePattern;
 
     /**
      * Creates a new instance of <code>FileFinder</code>. This instance will scan
@@ -38,8 +51,19 @@ public class FileFinder extends MasterToSlaveFileCallable<String[]> {
      * @param pattern the ant file pattern to scan for
      */
     public FileFinder(final String pattern) {
-        this.pattern = pattern;
+        this(pattern, "");
+    }
 
+    /**
+     * Creates a new instance of {@link FileFinder}.
+     *
+     * @param pattern the ant file pattern to scan for
+     * @param excludePattern the ant file pattern of the files to exclude
+     * @since 1.97
+     */
+    public FileFinder(final String pattern, final String excludePattern) {
+        this.pattern = pattern;
+        this.excludePattern = excludePattern;
     }
 
     /**
@@ -67,18 +91,75 @@ public class FileFinder extends MasterToSlaveFileCallable<String[]> {
      *            root directory of the workspace
      * @return the filenames of all found files
      */
-    public String[] find(final File workspace)  {
+    public String[] find(final File workspace) {
+        if (!workspace.isDirectory()) {
+            return new String[0];
+        }
         try {
-            FileSet fileSet = new FileSet();
-            Project antProject = new Project();
-            fileSet.setProject(antProject);
-            fileSet.setDir(workspace);
-            fileSet.setIncludes(pattern);
+            Scanner scanner = new Scanner(workspace.toPath(), pattern, excludePattern);
+            Files.walkFileTree(workspace.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    scanner);
 
-            return fileSet.getDirectoryScanner(antProject).getIncludedFiles();
+            return scanner.getIncludedFiles();
         }
-        catch (BuildException exception) {
+        catch (IOException exception) {
             return new String[0];
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns an array with the filenames of the specified file pattern that have been found in the specified
+     * snapshot of the workspace. The workspace is not scanned again.
+     *
+     * @param snapshot
+     *            snapshot of the workspace files
+     * @return the filenames of all found files
+     * @since 1.97
+     */
+    public String[] find(final WorkspaceSnapshot snapshot) {
+        return snapshot.find(pattern, excludePattern);
+    }
+
+    /**
+     * Visits all files of the workspace and collects the relative paths of the included files.
+     */
+    private static class Scanner extends SimpleFileVisitor<Path> {
+        private final Path root;
+        private final PatternFilter filter;
+        private final List<String> includedFiles = Lists.newArrayList();
+
+        Scanner(final Path root, final String pattern, final String excludePattern) {
+            super();
+
+            this.root = root;
+            filter = new PatternFilter(pattern, excludePattern);
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) {
+            if (filter.isSkipped(PatternFilter.getSegments(root, directory))) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+            if (attributes.isRegularFile() && filter.isIncluded(PatternFilter.getSegments(root, file))) {
+                includedFiles.add(root.relativize(file).toString());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(final Path file, final IOException exception) {
+            return FileVisitResult.CONTINUE; // skip unreadable files and symbolic link cycles
+        }
+
+        String[] getIncludedFiles() {
+            Collections.sort(includedFiles);
+
+            return includedFiles.toArray(new String[includedFiles.size()]);
+        }
+    }
+}
@@ -1,23 +1,44 @@
 package hudson.plugins.analysis.util;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarInputStream;
+import org.apache.tools.tar.TarOutputStream;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import jenkins.security.MasterToSlaveCallable;
 
 import hudson.FilePath;
 import hudson.plugins.analysis.util.model.AbstractAnnotation;
-import hudson.plugins.analysis.util.model.AnnotationContainer;
-import hudson.plugins.analysis.util.model.DefaultAnnotationContainer;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.WorkspaceFile;
+import hudson.remoting.LocalChannel;
+import hudson.remoting.Pipe;
 import hudson.remoting.VirtualChannel;
 
 /**
- * Provides a method to copy all files affected by warnings to the build folder.
+ * Provides a method to copy all files affected by warnings to the build folder. Files that are already in the build
+ * folder are not copied again. The files of an agent are transferred as a single compressed archive. Optionally,
+ * the copies are stored compressed, see {@link CompressedFiles}.
  *
  * @author Ullrich Hafner
  * @since 1.69
@@ -25,6 +46,26 @@ import hudson.remoting.VirtualChannel;
 public class Files {
     private static final String SLASH = "/";
 
+    private final boolean isCompressing;
+
+    /**
+     * Creates a new instance of {@link Files} that stores plain copies of the files.
+     */
+    public Files() {
+        this(false);
+    }
+
+    /**
+     * Creates a new instance of {@link Files}.
+     *
+     * @param isCompressing
+     *            determines whether the copies should be stored compressed
+     * @since 1.97
+     */
+    public Files(final boolean isCompressing) {
+        this.isCompressing = isCompressing;
+    }
+
     /**
      * Copies all files with annotations from the workspace to the build folder.
      *
@@ -72,17 +113,162 @@ public class Files {
             }
         }
 
-        AnnotationContainer container = new DefaultAnnotationContainer(annotations);
-        for (WorkspaceFile file : container.getFiles()) {
-            FilePath masterFile = directory.child(file.getTempName());
-            if (!masterFile.exists()) {
+        Map<String, String> sources = getMissingSources(directory, annotations);
+        if (sources.isEmpty()) {
+            return;
+        }
+        if (channel == null || channel instanceof LocalChannel) {
+            copyLocalSources(directory, sources, defaultEncoding);
+        }
+        else {
+            copyRemoteSources(channel, directory, sources, defaultEncoding);
+        }
+    }
+
+    /**
+     * Returns the source files of the specified annotations that have not been copied to the build folder yet. The
+     * existing files are obtained with a single listing of the build folder and the index of the copies that have
+     * been moved to the {@link SourceStore}.
+     *
+     * @param directory
+     *            the folder with the copied source files
+     * @param annotations
+     *            the annotations
+     * @return the absolute file names of the source files, mapped by the name of the copy in the build folder
+     */
+    private Map<String, String> getMissingSources(final FilePath directory,
+            final Collection<FileAnnotation> annotations) throws IOException, InterruptedException {
+        Set<String> existingFiles = Sets.newHashSet(SourceStore.getStoredFiles(directory));
+        for (FilePath file : directory.list()) {
+            existingFiles.add(file.getName());
+        }
+
+        Map<String, String> sources = Maps.newLinkedHashMap();
+        for (FileAnnotation annotation : annotations) {
+            if (annotation.getFileName() != null) {
+                String fileName = annotation.getFileName().replace('\\', '/');
+                String tempName = WorkspaceFile.createTempName(fileName);
+                if (!existingFiles.contains(tempName) && !sources.containsKey(tempName)) {
+                    sources.put(tempName, fileName);
+                }
+            }
+        }
+        return sources;
+    }
+
+    private void copyLocalSources(final FilePath directory, final Map<String, String> sources,
+            final String defaultEncoding) throws InterruptedException {
+        for (Entry<String, String> source : sources.entrySet()) {
+            FilePath masterFile = directory.child(source.getKey());
+            try {
+                InputStream input = new FileInputStream(new File(source.getValue()));
                 try {
-                    new FilePath(channel, file.getName()).copyTo(masterFile);
+                    write(input, masterFile);
                 }
-                catch (IOException exception) {
-                    logExceptionToFile(exception, masterFile, file.getName(), defaultEncoding);
+                finally {
+                    IOUtils.closeQuietly(input);
                 }
             }
+            catch (IOException exception) {
+                logExceptionToFile(exception, masterFile, source.getValue(), defaultEncoding);
+            }
+        }
+    }
+
+    /**
+     * Copies the specified source files of an agent to the build folder. The agent streams all files as a single
+     * compressed tar archive that is extracted while it is received.
+     */
+    private void copyRemoteSources(final VirtualChannel channel, final FilePath directory,
+            final Map<String, String> sources, final String defaultEncoding) throws IOException, InterruptedException {
+        Pipe pipe = Pipe.createRemoteToLocal();
+        Future<Map<String, IOException>> archiver = channel.callAsync(new SourceArchiver(sources, pipe));
+        copyArchivedSources(pipe.getIn(), archiver, directory, sources, defaultEncoding);
+    }
+
+    /**
+     * Extracts the archive of the source files to the build folder. Files that could not be archived, or that are
+     * missing in the archive, are replaced by a note with the cause.
+     *
+     * @param input
+     *            the archive, see {@link #writeArchive(Map, OutputStream)}
+     * @param archiver
+     *            the task that writes the archive, returns the files that could not be read
+     * @param directory
+     *            the folder to store the copied files in
+     * @param sources
+     *            the absolute file names of the source files, mapped by the name of the copy in the build folder
+     * @param defaultEncoding
+     *            the encoding of the notes
+     */
+    void copyArchivedSources(final InputStream input, final Future<Map<String, IOException>> archiver,
+            final FilePath directory, final Map<String, String> sources, final String defaultEncoding)
+            throws IOException, InterruptedException {
+        Map<String, IOException> failures;
+        try {
+            Set<String> extractedFiles = extract(input, directory, sources.keySet());
+            failures = Maps.newHashMap(archiver.get());
+            for (String tempName : sources.keySet()) {
+                if (!extractedFiles.contains(tempName) && !failures.containsKey(tempName)) {
+                    failures.put(tempName, new IOException("Missing file in source archive: " + tempName));
+                }
+            }
+        }
+        catch (ExecutionException exception) {
+            failures = getMissingCopies(directory, sources,
+                    new IOException("Can't copy the source files from the agent", exception.getCause()));
+        }
+        catch (IOException exception) {
+            failures = getMissingCopies(directory, sources, exception);
+        }
+        finally {
+            archiver.cancel(true);
+        }
+        for (Entry<String, IOException> failure : failures.entrySet()) {
+            logExceptionToFile(failure.getValue(), directory.child(failure.getKey()),
+                    sources.get(failure.getKey()), defaultEncoding);
+        }
+    }
+
+    private Map<String, IOException> getMissingCopies(final FilePath directory, final Map<String, String> sources,
+            final IOException exception) throws IOException, InterruptedException {
+        Map<String, IOException> failures = Maps.newHashMap();
+        for (String tempName : sources.keySet()) {
+            if (!directory.child(tempName).exists()) {
+                failures.put(tempName, exception);
+            }
+        }
+        return failures;
+    }
+
+    private Set<String> extract(final InputStream input, final FilePath directory, final Set<String> expectedFiles)
+            throws IOException, InterruptedException {
+        Set<String> extractedFiles = Sets.newHashSet();
+        TarInputStream archive = null;
+        try {
+            archive = new TarInputStream(new GZIPInputStream(input));
+            for (TarEntry entry = archive.getNextEntry(); entry != null; entry = archive.getNextEntry()) {
+                if (!expectedFiles.contains(entry.getName())) {
+                    throw new IOException("Unexpected file in source archive: " + entry.getName());
+                }
+                write(archive, directory.child(entry.getName()));
+                extractedFiles.add(entry.getName());
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(archive);
+            IOUtils.closeQuietly(input);
+        }
+        return extractedFiles;
+    }
+
+    private void write(final InputStream input, final FilePath masterFile) throws IOException, InterruptedException {
+        OutputStream output = CompressedFiles.create(masterFile.write(), isCompressing);
+        try {
+            IOUtils.copy(input, output);
+        }
+        finally {
+            output.close();
         }
     }
 
@@ -128,4 +314,72 @@ public class Files {
             final Object... arguments) throws IOException {
         IOUtils.write(String.format(message, arguments), outputStream, defaultEncoding);
     }
+
+    /**
+     * Writes the specified source files as a compressed tar archive to the output stream. Each entry is named like
+     * the copy in the build folder. The files are streamed, so they are never held in memory as a whole.
+     *
+     * @param sources
+     *            the absolute file names of the source files, mapped by the name of the copy in the build folder
+     * @param output
+     *            the stream to write the archive to, it is closed afterwards
+     * @return the files that could not be read, mapped to the cause
+     * @throws IOException
+     *             if the archive could not be written
+     */
+    static Map<String, IOException> writeArchive(final Map<String, String> sources, final OutputStream output)
+            throws IOException {
+        Map<String, IOException> failures = Maps.newHashMap();
+        TarOutputStream archive = new TarOutputStream(new GZIPOutputStream(new BufferedOutputStream(output)));
+        try {
+            for (Entry<String, String> source : sources.entrySet()) {
+                File file = new File(source.getValue());
+                InputStream input;
+                try {
+                    input = new FileInputStream(file);
+                }
+                catch (IOException exception) {
+                    failures.put(source.getKey(), exception);
+                    continue;
+                }
+                try {
+                    TarEntry entry = new TarEntry(source.getKey());
+                    entry.setSize(file.length());
+                    archive.putNextEntry(entry);
+                    IOUtils.copyLarge(input, archive, 0, entry.getSize());
+                    archive.closeEntry();
+                }
+                finally {
+                    input.close();
+                }
+            }
+        }
+        finally {
+            archive.close();
+        }
+        return failures;
+    }
+
+    /**
+     * Writes the source files of the agent as a compressed tar archive to a pipe. Files that could not be read are
+     * skipped and returned with the cause.
+     */
+    private static class SourceArchiver extends MasterToSlaveCallable<Map<String, IOException>, IOException> {
+        private static final long serialVersionUID = -2466958702926385946L;
+
+        private final Map<String, String> sources;
+        private final Pipe pipe;
+
+        SourceArchiver(final Map<String, String> sources, final Pipe pipe) {
+            super();
+
+            this.sources = sources;
+            this.pipe = pipe;
+        }
+
+        @Override
+        public Map<String, IOException> call() throws IOException {
+            return writeArchive(sources, pipe.getOut());
+        }
+    }
 }
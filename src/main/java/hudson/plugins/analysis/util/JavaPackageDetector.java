@@ -6,7 +6,6 @@ import java.nio.charset.Charset;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
 
@@ -23,7 +22,18 @@ public class JavaPackageDetector extends AbstractPackageDetector {
      * Creates a new instance of {@link JavaPackageDetector}.
      */
     public JavaPackageDetector() {
-        super();
+        this(DEFAULT_MAXIMUM_BYTES);
+    }
+
+    /**
+     * Creates a new instance of {@link JavaPackageDetector}.
+     *
+     * @param maximumBytes
+     *            the number of bytes to read to find the package declaration
+     * @since 1.97
+     */
+    public JavaPackageDetector(final int maximumBytes) {
+        super(maximumBytes);
 
         pattern = Pattern.compile("^\\s*package\\s*([a-z]+(\\.[a-zA-Z_][a-zA-Z0-9_]*)*)\\s*;.*");
     }
@@ -31,9 +41,13 @@ public class JavaPackageDetector extends AbstractPackageDetector {
     /** {@inheritDoc}*/
     @Override
     public String detectPackageName(final InputStream stream) {
+        return detectPackageName(stream, getDefaultCharset());
+    }
+
+    @Override
+    protected String detectPackageName(final InputStream stream, final Charset charset) {
         try {
-            LineIterator iterator = new LineIterator(new InputStreamReader(stream,
-                    Charsets.toCharset(Charset.defaultCharset())));
+            LineIterator iterator = new LineIterator(new InputStreamReader(stream, charset));
 
             while (iterator.hasNext()) {
                 String line = iterator.nextLine();
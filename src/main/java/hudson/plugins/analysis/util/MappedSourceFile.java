@@ -0,0 +1,191 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Provides random access to the lines of a source file. The file is mapped into memory and the start and end offsets
+ * of all lines are indexed in a single pass over the bytes of the file. Characters are decoded only for the lines that
+ * are actually requested.
+ *
+ * <p>
+ * Lines are terminated by a line feed, a carriage return, or a carriage return followed by a line feed, i.e., the
+ * lines are the same as the lines returned by {@link java.io.BufferedReader#readLine()}. Since the line terminators
+ * are detected on the byte level, only charsets that encode each character with a single byte, and UTF-8 are
+ * supported, see {@link #isSupported(Charset)}.
+ * </p>
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class MappedSourceFile {
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final int INITIAL_CAPACITY = 1024;
+    /** Files smaller than this size are read into the heap rather than mapped into memory. */
+    private static final long MAPPING_THRESHOLD = 64 * 1024;
+    /** Mapped files are locked on Windows until the buffer is garbage collected, so we do not map them there. */
+    private static final boolean CAN_MAP = File.pathSeparatorChar != ';';
+
+    private final ByteBuffer content;
+    private final CharsetDecoder decoder;
+
+    private int[] lineStarts = new int[INITIAL_CAPACITY];
+    private int[] lineEnds = new int[INITIAL_CAPACITY];
+    private int numberOfLines;
+
+    /**
+     * Returns whether the lines of files with the specified charset can be indexed by this class.
+     *
+     * @param charset
+     *            the charset to check
+     * @return <code>true</code> if the charset is supported, <code>false</code> otherwise
+     */
+    public static boolean isSupported(final Charset charset) {
+        if (!charset.canEncode()) {
+            return false;
+        }
+        if ("UTF-8".equals(charset.name())) {
+            return true;
+        }
+        return charset.newEncoder().maxBytesPerChar() == 1
+                && Arrays.equals(new byte[] {CR, LF}, "\r\n".getBytes(charset));
+    }
+
+    /**
+     * Creates a new instance of {@link MappedSourceFile}.
+     *
+     * @param file
+     *            the file to read
+     * @param charset
+     *            the charset of the file, must be supported
+     * @throws IOException
+     *             if the file could not be read
+     * @see #isSupported(Charset)
+     */
+    public MappedSourceFile(final File file, final Charset charset) throws IOException {
+        content = read(file);
+        decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        createIndex();
+    }
+
+    private ByteBuffer read(final File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to be mapped: " + file);
+            }
+            if (CAN_MAP && size >= MAPPING_THRESHOLD) {
+                return channel.map(MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int)size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read until the buffer is filled
+            }
+            buffer.flip();
+            return buffer;
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private void createIndex() {
+        int limit = content.limit();
+        int start = 0;
+        for (int position = 0; position < limit; position++) {
+            byte current = content.get(position);
+            if (current == LF || current == CR) {
+                addLine(start, position);
+                if (current == CR && position + 1 < limit && content.get(position + 1) == LF) {
+                    position++;
+                }
+                start = position + 1;
+            }
+        }
+        if (start < limit) {
+            addLine(start, limit);
+        }
+    }
+
+    private void addLine(final int start, final int end) {
+        if (numberOfLines == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, numberOfLines * 2);
+            lineEnds = Arrays.copyOf(lineEnds, numberOfLines * 2);
+        }
+        lineStarts[numberOfLines] = start;
+        lineEnds[numberOfLines] = end;
+        numberOfLines++;
+    }
+
+    /**
+     * Returns the number of lines in the file.
+     *
+     * @return the number of lines
+     */
+    public int getNumberOfLines() {
+        return numberOfLines;
+    }
+
+    /**
+     * Returns the content of the specified line (without the line terminator).
+     *
+     * @param line
+     *            the zero based line number
+     * @return the content of the line
+     * @throws CharacterCodingException
+     *             if the line could not be decoded
+     */
+    public String getLine(final int line) throws CharacterCodingException {
+        return decode(line).toString();
+    }
+
+    /**
+     * Computes the hash code of the concatenated content of the specified range of lines. The hash code is the same
+     * as the hash code of the {@link String} that contains all lines of the range (without line terminators). Lines
+     * of the range that are not part of the file are skipped.
+     *
+     * @param from
+     *            the first zero based line number of the range
+     * @param to
+     *            the last zero based line number of the range (inclusive)
+     * @return the hash code
+     * @throws CharacterCodingException
+     *             if a line could not be decoded
+     */
+    public int hashCode(final int from, final int to) throws CharacterCodingException {
+        int hashCode = 0;
+        for (int line = Math.max(0, from); line <= to && line < numberOfLines; line++) {
+            CharBuffer characters = decode(line);
+            while (characters.hasRemaining()) {
+                hashCode = 31 * hashCode + characters.get();
+            }
+        }
+        return hashCode;
+    }
+
+    private CharBuffer decode(final int line) throws CharacterCodingException {
+        ByteBuffer bytes = content.duplicate();
+        bytes.limit(lineEnds[line]);
+        bytes.position(lineStarts[line]);
+
+        return decoder.decode(bytes);
+    }
+}
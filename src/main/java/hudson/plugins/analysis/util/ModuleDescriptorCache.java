@@ -0,0 +1,198 @@
+package hudson.plugins.analysis.util;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Persistent cache of the module names of module descriptors (Maven pom.xml, Ant build.xml or OSGi MANIFEST.MF
+ * files). The module names are mapped by the file name of the descriptor. Each module name is stored together with a
+ * stamp of the descriptor, i.e. the modification time and size of the descriptor and of all other files that
+ * contribute to the module name. So only descriptors that have been changed since the last build need to be parsed
+ * again. The cache stores only the descriptors of the latest build. This class is thread safe.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class ModuleDescriptorCache {
+    private static final Logger LOGGER = Logger.getLogger(ModuleDescriptorCache.class.getName());
+
+    /** File format version, increment if the format or the way module names are obtained changes. */
+    private static final int VERSION = 1;
+
+    /** Descriptors of the previous build, mapped by file name. */
+    private final Map<String, CachedModule> previousModules = Maps.newHashMap();
+    /** Descriptors of the current build, mapped by file name. */
+    private final Map<String, CachedModule> currentModules = Maps.newLinkedHashMap();
+    @CheckForNull
+    private final File cacheFile;
+
+    private int hits;
+    private int misses;
+
+    /**
+     * Loads the cache from the specified file. If the file does not exist or could not be read, then the cache
+     * starts empty.
+     *
+     * @param cacheFile
+     *            the file that stores the cache, or <code>null</code> if the cache should not be persisted
+     * @return the cache
+     */
+    public static ModuleDescriptorCache load(@CheckForNull final File cacheFile) {
+        ModuleDescriptorCache cache = new ModuleDescriptorCache(cacheFile);
+        if (cacheFile != null && cacheFile.isFile()) {
+            try {
+                cache.read();
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.FINE, "Can't read module descriptor cache " + cacheFile, exception);
+
+                cache.previousModules.clear();
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Creates a new instance of {@link ModuleDescriptorCache} that is not persisted.
+     */
+    public ModuleDescriptorCache() {
+        this(null);
+    }
+
+    private ModuleDescriptorCache(@CheckForNull final File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Returns the module name of the specified descriptor, if the descriptor has not been changed.
+     *
+     * @param fileName
+     *            the absolute file name of the descriptor
+     * @param stamp
+     *            the current stamp of the descriptor
+     * @return the module name, or <code>null</code> if the descriptor is not in the cache or has been changed
+     */
+    @CheckForNull
+    public synchronized String get(final String fileName, final String stamp) {
+        CachedModule module = currentModules.get(fileName);
+        if (module == null) {
+            module = previousModules.get(fileName);
+        }
+        if (module == null || !module.stamp.equals(stamp)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        currentModules.put(fileName, module);
+
+        return module.moduleName;
+    }
+
+    /**
+     * Stores the module name of the specified descriptor.
+     *
+     * @param fileName
+     *            the absolute file name of the descriptor
+     * @param stamp
+     *            the current stamp of the descriptor
+     * @param moduleName
+     *            the module name, might be empty
+     */
+    public synchronized void put(final String fileName, final String stamp, final String moduleName) {
+        currentModules.put(fileName, new CachedModule(stamp, moduleName));
+    }
+
+    /**
+     * Returns the number of module names that have been found in the cache.
+     *
+     * @return the number of cache hits
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of module names that have not been found in the cache.
+     *
+     * @return the number of cache misses
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private void read() throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+        try {
+            if (input.readInt() != VERSION) {
+                return;
+            }
+            int modules = input.readInt();
+            for (int module = 0; module < modules; module++) {
+                String fileName = input.readUTF();
+                previousModules.put(fileName, new CachedModule(input.readUTF(), input.readUTF()));
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Saves the descriptors of the current build to the cache file, see
+     * {@link CacheFiles#save(File, CacheFiles.Content)}.
+     */
+    public synchronized void save() {
+        if (cacheFile != null) {
+            CacheFiles.save(cacheFile, new CacheFiles.Content() {
+                @Override
+                public void write(final File file) throws IOException {
+                    ModuleDescriptorCache.this.write(file);
+                }
+            });
+        }
+    }
+
+    private void write(final File file) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            output.writeInt(VERSION);
+            output.writeInt(currentModules.size());
+            for (Entry<String, CachedModule> module : currentModules.entrySet()) {
+                output.writeUTF(module.getKey());
+                output.writeUTF(module.getValue().stamp);
+                output.writeUTF(module.getValue().moduleName);
+            }
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * The module name of a descriptor, along with the stamp of the descriptor.
+     */
+    private static class CachedModule {
+        private final String stamp;
+        private final String moduleName;
+
+        CachedModule(final String stamp, final String moduleName) {
+            this.stamp = stamp;
+            this.moduleName = moduleName;
+        }
+    }
+}
@@ -1,5 +1,12 @@
 package hudson.plugins.analysis.util;
 
+import javax.annotation.CheckForNull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -11,16 +18,21 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
-import org.xml.sax.SAXException;
 
 /**
  * Detects module names by parsing the name of a source file, the Maven pom.xml
- * file or the ANT build.xml file.
+ * file or the ANT build.xml file. The module descriptors are parsed with a
+ * single streaming pass per file, optionally in parallel and with a
+ * {@link ModuleDescriptorCache} that skips descriptors that have not been
+ * changed since the last build.
  *
  * @author Ulli Hafner
  * @author Christoph Laeubrich (support for OSGi-Bundles)
@@ -35,6 +47,8 @@ public class ModuleDetector {
     private static final String BUNDLE_SYMBOLIC_NAME = "Bundle-SymbolicName";
     private static final String BUNDLE_NAME = "Bundle-Name";
     private static final String REPLACEMENT_CHAR = "%";
+    private static final String PROJECT = "project";
+    private static final String[] BUNDLE_PROPERTIES = {"plugin.properties", "OSGI-INF/l10n/bundle.properties"};
 
     static final String MAVEN_POM = "pom.xml";
     static final String ANT_PROJECT = "build.xml";
@@ -48,15 +62,26 @@ public class ModuleDetector {
     private FileInputStreamFactory factory = new DefaultFileInputStreamFactory();
     /** Maps file names to module names. */
     private final Map<String, String> fileNameToModuleName;
-    /** Sorted list of file name prefixes. */
-    private final List<String> prefixes;
+    /** Sorted list of file name prefixes that do not end with a slash, typically empty. @since 1.97 */
+    private final List<String> irregularPrefixes;
+    /** Caches the longest file name prefix that ends with a slash for each directory. @since 1.97 */
+    private final Map<String, String> prefixByDirectory = new ConcurrentHashMap<String, String>();
+    /** Caches the module names of unchanged descriptors, might be <code>null</code>. @since 1.97 */
+    @CheckForNull
+    private final ModuleDescriptorCache cache;
+    /** The number of descriptors to parse in parallel. @since 1.97 */
+    private final int parallelism;
+    /** Creates the StAX parsers for pom.xml and build.xml files. @since 1.97 */
+    private final XMLInputFactory xmlInputFactory = createXmlInputFactory();
 
     /**
      * Creates a new instance of {@link ModuleDetector}.
      */
     protected ModuleDetector() {
         fileNameToModuleName = new HashMap<String, String>();
-        prefixes = new ArrayList<String>();
+        irregularPrefixes = new ArrayList<String>();
+        cache = null;
+        parallelism = WorkerPool.SEQUENTIAL;
     }
 
     /**
@@ -69,6 +94,42 @@ public class ModuleDetector {
         this(workspace, new DefaultFileInputStreamFactory());
     }
 
+    /**
+     * Creates a new instance of {@link ModuleDetector}. The Maven pom.xml or Ant build.xml files are obtained from the
+     * specified snapshot, so the workspace is not scanned again.
+     *
+     * @param workspace
+     *            the workspace to scan for Maven pom.xml or Ant build.xml files
+     * @param snapshot
+     *            snapshot of the workspace files
+     * @since 1.97
+     */
+    public ModuleDetector(final File workspace, final WorkspaceSnapshot snapshot) {
+        this(workspace, new DefaultFileInputStreamFactory(snapshot));
+    }
+
+    /**
+     * Creates a new instance of {@link ModuleDetector}. The module names of
+     * descriptors that have not been changed since they have been stored in
+     * the specified cache are not parsed again. All other descriptors are
+     * parsed using the specified number of threads.
+     *
+     * @param workspace
+     *            the workspace to scan for Maven pom.xml or Ant build.xml files
+     * @param snapshot
+     *            snapshot of the workspace files, or <code>null</code> if the
+     *            workspace should be scanned
+     * @param cache
+     *            the cache of the module names
+     * @param parallelism
+     *            the number of descriptors to parse in parallel
+     * @since 1.97
+     */
+    public ModuleDetector(final File workspace, @CheckForNull final WorkspaceSnapshot snapshot,
+            final ModuleDescriptorCache cache, final int parallelism) {
+        this(workspace, new DefaultFileInputStreamFactory(snapshot), cache, parallelism);
+    }
+
     /**
      * Creates a new instance of {@link ModuleDetector}.
      *
@@ -78,10 +139,35 @@ public class ModuleDetector {
      *            factory to load files
      */
     ModuleDetector(final File workspace, final FileInputStreamFactory fileInputStreamFactory) {
+        this(workspace, fileInputStreamFactory, null, WorkerPool.SEQUENTIAL);
+    }
+
+    /**
+     * Creates a new instance of {@link ModuleDetector}.
+     *
+     * @param workspace
+     *            the workspace to scan for Maven pom.xml or ant build.xml files
+     * @param fileInputStreamFactory
+     *            factory to load files
+     * @param cache
+     *            the cache of the module names, or <code>null</code> if all
+     *            descriptors should be parsed
+     * @param parallelism
+     *            the number of descriptors to parse in parallel
+     */
+    ModuleDetector(final File workspace, final FileInputStreamFactory fileInputStreamFactory,
+            @CheckForNull final ModuleDescriptorCache cache, final int parallelism) {
         factory = fileInputStreamFactory;
+        this.cache = cache;
+        this.parallelism = parallelism;
         fileNameToModuleName = createFilesToModuleMapping(workspace);
-        prefixes = new ArrayList<String>(fileNameToModuleName.keySet());
-        Collections.sort(prefixes);
+        irregularPrefixes = new ArrayList<String>();
+        for (String prefix : fileNameToModuleName.keySet()) {
+            if (!prefix.endsWith(SLASH)) {
+                irregularPrefixes.add(prefix);
+            }
+        }
+        Collections.sort(irregularPrefixes);
     }
 
     /**
@@ -95,23 +181,126 @@ public class ModuleDetector {
         Map<String, String> mapping = new HashMap<String, String>();
 
         String[] projects = find(workspace);
-        for (String fileName : projects) {
-            if (fileName.endsWith(ANT_PROJECT)) {
-                addMapping(mapping, fileName, ANT_PROJECT, parseBuildXml(fileName));
+        List<String> descriptors = new ArrayList<String>();
+        List<String> suffixes = new ArrayList<String>();
+        for (String suffix : new String[] {ANT_PROJECT, MAVEN_POM, OSGI_BUNDLE}) {
+            for (String fileName : projects) {
+                if (fileName.endsWith(suffix)) {
+                    descriptors.add(fileName);
+                    suffixes.add(suffix);
+                }
             }
         }
-        for (String fileName : projects) {
-            if (fileName.endsWith(MAVEN_POM)) {
-                addMapping(mapping, fileName, MAVEN_POM, parsePom(fileName));
+
+        List<String> moduleNames = getModuleNames(descriptors);
+        for (int i = 0; i < moduleNames.size(); i++) {
+            addMapping(mapping, descriptors.get(i), suffixes.get(i), moduleNames.get(i));
+        }
+
+        return mapping;
+    }
+
+    /**
+     * Returns the module names of the specified descriptors. The descriptors
+     * are parsed in parallel, the results are returned in the order of the
+     * descriptors.
+     *
+     * @param descriptors
+     *            the absolute file names of the descriptors
+     * @return the module names, or an empty list if the detection has been
+     *         canceled
+     */
+    private List<String> getModuleNames(final List<String> descriptors) {
+        List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+        for (final String descriptor : descriptors) {
+            tasks.add(new Callable<String>() {
+                @Override
+                public String call() {
+                    return getModuleName(descriptor);
+                }
+            });
+        }
+
+        try {
+            return new WorkerPool("ModuleDetector", parallelism).invokeAll(tasks);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+
+            return Collections.emptyList();
+        }
+        catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)exception.getCause();
             }
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
+    /**
+     * Returns the module name of the specified descriptor. If the descriptor
+     * has not been changed since it has been stored in the cache, then the
+     * cached module name is returned.
+     *
+     * @param descriptor
+     *            the absolute file name of the descriptor
+     * @return the module name or an empty string if the name could not be
+     *         resolved
+     */
+    private String getModuleName(final String descriptor) {
+        String stamp = getStamp(descriptor);
+        if (cache == null || stamp == null) {
+            return parseDescriptor(descriptor);
+        }
+
+        String moduleName = cache.get(descriptor, stamp);
+        if (moduleName == null) {
+            moduleName = parseDescriptor(descriptor);
+            cache.put(descriptor, stamp, moduleName);
+        }
+        return moduleName;
+    }
+
+    private String parseDescriptor(final String descriptor) {
+        if (descriptor.endsWith(ANT_PROJECT)) {
+            return parseBuildXml(descriptor);
+        }
+        else if (descriptor.endsWith(MAVEN_POM)) {
+            return parsePom(descriptor);
         }
-        for (String fileName : projects) {
-            if (fileName.endsWith(OSGI_BUNDLE)) {
-                addMapping(mapping, fileName, OSGI_BUNDLE, parseManifest(fileName));
+        else {
+            return parseManifest(descriptor);
+        }
+    }
+
+    /**
+     * Returns the stamp of the specified descriptor, i.e. the modification
+     * time and size of all files that contribute to the module name.
+     *
+     * @param descriptor
+     *            the absolute file name of the descriptor
+     * @return the stamp, or <code>null</code> if the descriptor is not a file
+     */
+    @CheckForNull
+    private String getStamp(final String descriptor) {
+        File file = new File(descriptor);
+        if (cache == null || !file.isFile()) {
+            return null;
+        }
+
+        StringBuilder stamp = new StringBuilder();
+        appendStamp(stamp, file);
+        if (descriptor.endsWith(OSGI_BUNDLE)) {
+            String path = StringUtils.substringBefore(descriptor, OSGI_BUNDLE);
+            for (String properties : BUNDLE_PROPERTIES) {
+                appendStamp(stamp, new File(path, properties));
             }
         }
+        return stamp.toString();
+    }
 
-        return mapping;
+    private void appendStamp(final StringBuilder stamp, final File file) {
+        stamp.append(file.lastModified()).append(':').append(file.length()).append(';');
     }
 
     private void addMapping(final Map<String, String> mapping, final String fileName, final String suffix, final String moduleName) {
@@ -122,7 +311,10 @@ public class ModuleDetector {
 
     /**
      * Uses the path prefixes of pom.xml or build.xml files to guess a module
-     * name for the specified file.
+     * name for the specified file. The module of the longest matching prefix is
+     * returned. Since the prefixes end with a slash, only the parent directories
+     * of the file need to be looked up. The result for each directory is cached,
+     * so other files in the same directory are resolved in constant time.
      *
      * @param originalFileName
      *            file name to guess a module for, must be an absolute path
@@ -130,14 +322,36 @@ public class ModuleDetector {
      */
     public String guessModuleName(final String originalFileName) {
         String fullPath = originalFileName.replace('\\', '/');
+        String directory = fullPath.substring(0, fullPath.lastIndexOf(SLASH) + 1);
 
-        String guessedModule = StringUtils.EMPTY;
-        for (String path : prefixes) {
-            if (fullPath.startsWith(path)) {
-                guessedModule = fileNameToModuleName.get(path);
+        String longestPrefix = prefixByDirectory.get(directory);
+        if (longestPrefix == null) {
+            longestPrefix = findLongestPrefix(directory);
+            prefixByDirectory.put(directory, longestPrefix);
+        }
+        for (String path : irregularPrefixes) {
+            if (path.length() > longestPrefix.length() && fullPath.startsWith(path)) {
+                longestPrefix = path;
             }
         }
-        return guessedModule;
+        return StringUtils.defaultString(fileNameToModuleName.get(longestPrefix));
+    }
+
+    /**
+     * Returns the longest prefix of the specified directory that ends with a slash and is mapped to a module.
+     *
+     * @param directory
+     *            the directory, ends with a slash
+     * @return the longest prefix or an empty string if there is no such prefix
+     */
+    private String findLongestPrefix(final String directory) {
+        for (int end = directory.length(); end > 0; end = directory.lastIndexOf(SLASH, end - 2) + 1) {
+            String prefix = directory.substring(0, end);
+            if (fileNameToModuleName.containsKey(prefix)) {
+                return prefix;
+            }
+        }
+        return StringUtils.EMPTY;
     }
 
     /**
@@ -178,32 +392,39 @@ public class ModuleDetector {
      */
     private String parseBuildXml(final String buildXml) {
         InputStream file = null;
+        XMLStreamReader reader = null;
         try {
             file = factory.create(buildXml);
-            SecureDigester digester = new SecureDigester(ModuleDetector.class);
-
-            digester.push(new StringBuffer());
-            String xPath = "project";
-            digester.addCallMethod(xPath, "append", 1);
-            digester.addCallParam(xPath, 0, "name");
-
-            StringBuffer result = (StringBuffer)digester.parse(file);
-            return result.toString();
+            reader = createReader(file);
+
+            String name = null;
+            boolean isRoot = true;
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    if (isRoot && PROJECT.equals(getElementName(reader))) {
+                        name = reader.getAttributeValue(null, "name");
+                    }
+                    isRoot = false;
+                }
+            }
+            return StringUtils.defaultString(name);
         }
         catch (IOException exception) {
             // ignore
         }
-        catch (SAXException exception) {
+        catch (XMLStreamException exception) {
             // ignore
         }
         finally {
+            close(reader);
             IOUtils.closeQuietly(file);
         }
         return StringUtils.EMPTY;
     }
 
     /**
-     * Returns the project name stored in the POM.
+     * Returns the project name stored in the POM. The name and the artifact ID
+     * are read in a single pass.
      *
      * @param pom
      *            Maven POM file name
@@ -211,34 +432,108 @@ public class ModuleDetector {
      *         resolved
      */
     private String parsePom(final String pom) {
-        String name = parsePomAttribute(pom, "name");
-        return StringUtils.defaultIfBlank(name, parsePomAttribute(pom, "artifactId"));
-    }
-
-    private String parsePomAttribute(final String pom, final String tagName) {
         InputStream file = null;
+        XMLStreamReader reader = null;
         try {
             file = factory.create(pom);
-            SecureDigester digester = new SecureDigester(ModuleDetector.class);
-
-            digester.push(new StringBuffer());
-            digester.addCallMethod("project/" + tagName, "append", 0);
-
-            StringBuffer result = digester.parse(file);
-            return result.toString();
+            reader = createReader(file);
+
+            StringBuilder name = new StringBuilder();
+            StringBuilder artifactId = new StringBuilder();
+            StringBuilder text = null;
+            StringBuilder value = null;
+            int depth = 0;
+            boolean isProject = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String element = getElementName(reader);
+                    if (depth == 1) {
+                        isProject = PROJECT.equals(element);
+                    }
+                    else if (depth == 2 && isProject && "name".equals(element)) {
+                        value = name;
+                        text = new StringBuilder();
+                    }
+                    else if (depth == 2 && isProject && "artifactId".equals(element)) {
+                        value = artifactId;
+                        text = new StringBuilder();
+                    }
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2 && text != null) {
+                        value.append(text.toString().trim());
+                        text = null;
+                    }
+                    depth--;
+                }
+                else if (depth == 2 && text != null && reader.hasText()) {
+                    text.append(reader.getText());
+                }
+            }
+            return StringUtils.defaultIfBlank(name.toString(), artifactId.toString());
         }
         catch (IOException exception) {
             // ignore
         }
-        catch (SAXException exception) {
+        catch (XMLStreamException exception) {
             // ignore
         }
         finally {
+            close(reader);
             IOUtils.closeQuietly(file);
         }
         return StringUtils.EMPTY;
     }
 
+    private XMLStreamReader createReader(final InputStream file) throws XMLStreamException {
+        return xmlInputFactory.createXMLStreamReader(file);
+    }
+
+    /**
+     * Returns the qualified name of the current element, i.e. namespaces are not resolved.
+     */
+    private String getElementName(final XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        if (StringUtils.isEmpty(prefix)) {
+            return reader.getLocalName();
+        }
+        return prefix + ':' + reader.getLocalName();
+    }
+
+    private void close(@CheckForNull final XMLStreamReader reader) {
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException exception) {
+            // ignore
+        }
+    }
+
+    /**
+     * Creates a StAX input factory that does not resolve external entities or
+     * external DTDs (see {@link SecureDigester}).
+     *
+     * @return the factory
+     */
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlInputFactory.setXMLResolver(new XMLResolver() {
+            @Override
+            public Object resolveEntity(final String publicId, final String systemId, final String baseUri,
+                    final String namespace) {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+        });
+        return xmlInputFactory;
+    }
+
     /**
      * Scans a Manifest file for OSGi Bundle Information.
      *
@@ -279,8 +574,9 @@ public class ModuleDetector {
 
     private Properties readProperties(final String path) {
         Properties properties = new Properties();
-        readProperties(path, properties, "plugin.properties");
-        readProperties(path, properties, "OSGI-INF/l10n/bundle.properties");
+        for (String fileName : BUNDLE_PROPERTIES) {
+            readProperties(path, properties, fileName);
+        }
 
         return properties;
     }
@@ -319,6 +615,17 @@ public class ModuleDetector {
      * An input stream factory based on a {@link FileInputStream}.
      */
     private static final class DefaultFileInputStreamFactory implements FileInputStreamFactory {
+        @CheckForNull
+        private final WorkspaceSnapshot snapshot;
+
+        DefaultFileInputStreamFactory() {
+            this(null);
+        }
+
+        DefaultFileInputStreamFactory(@CheckForNull final WorkspaceSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
         @Override
         public InputStream create(final String fileName) throws FileNotFoundException {
             return new FileInputStream(new File(fileName));
@@ -326,6 +633,9 @@ public class ModuleDetector {
 
         @Override
         public String[] find(final File root, final String pattern) {
+            if (snapshot != null) {
+                return new FileFinder(PATTERN).find(snapshot);
+            }
             return new FileFinder(PATTERN).find(root);
         }
     }
@@ -1,7 +1,15 @@
 package hudson.plugins.analysis.util;
 
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Provides convenient methods to determine the package or namespace names of a
@@ -25,14 +33,76 @@ public final class PackageDetectors {
      * @return the package name or an empty string
      */
     public static String detectPackageName(final String fileName) {
-        for (PackageDetector detector : DETECTORS) {
+        return detectPackageName(fileName, null);
+    }
+
+    /**
+     * Detects the package name of the specified file based on several detector
+     * strategies. Only the header of the file is read.
+     *
+     * @param fileName
+     *            the filename of the file to scan
+     * @param encoding
+     *            the encoding of the file, or <code>null</code> to use the
+     *            default encoding of the detector
+     * @return the package name or an empty string
+     * @since 1.97
+     */
+    public static String detectPackageName(final String fileName, @CheckForNull final String encoding) {
+        for (AbstractPackageDetector detector : DETECTORS) {
             if (detector.accepts(fileName)) {
-                return detector.detectPackageName(fileName);
+                return detector.detectPackageName(fileName, encoding);
             }
         }
         return UNDEFINED_PACKAGE;
     }
 
+    /**
+     * Detects the package names of the specified files. Each file is scanned
+     * only once, the files are scanned in parallel.
+     *
+     * @param fileNames
+     *            the filenames of the files to scan
+     * @param encoding
+     *            the encoding of the files, or <code>null</code> to use the
+     *            default encoding of the detector
+     * @param parallelism
+     *            the maximum number of files to scan in parallel
+     * @return the package names, mapped by file name
+     * @throws InterruptedException
+     *             if the user cancels the detection
+     * @since 1.97
+     */
+    public static Map<String, String> detectPackageNames(final Collection<String> fileNames,
+            @CheckForNull final String encoding, final int parallelism) throws InterruptedException {
+        List<String> distinctFileNames = new ArrayList<String>(new LinkedHashSet<String>(fileNames));
+        List<Callable<String>> tasks = new ArrayList<Callable<String>>(distinctFileNames.size());
+        for (final String fileName : distinctFileNames) {
+            tasks.add(new Callable<String>() {
+                @Override
+                public String call() {
+                    return detectPackageName(fileName, encoding);
+                }
+            });
+        }
+
+        try {
+            List<String> packageNames = new WorkerPool("PackageDetectors", parallelism).invokeAll(tasks);
+
+            Map<String, String> packageNamesByFile = new LinkedHashMap<String, String>();
+            for (int i = 0; i < distinctFileNames.size(); i++) {
+                packageNamesByFile.put(distinctFileNames.get(i), packageNames.get(i));
+            }
+            return packageNamesByFile;
+        }
+        catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)exception.getCause();
+            }
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
     /**
      * Creates a new instance of {@link PackageDetectors}.
      */
@@ -0,0 +1,106 @@
+package hudson.plugins.analysis.util;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Filters the relative paths of workspace files using Ant include and exclude patterns. The Ant default excludes are
+ * always applied.
+ *
+ * @author agent
+ * @since 1.97
+ */
+class PatternFilter {
+    /** The Ant default excludes, see {@code org.apache.tools.ant.DirectoryScanner#getDefaultExcludes()}. */
+    static final String DEFAULT_EXCLUDES = "**/*~, **/#*#, **/.#*, **/%*%, **/._*, "
+            + "**/CVS, **/CVS/**, **/.cvsignore, **/SCCS, **/SCCS/**, **/vssver.scc, **/.svn, **/.svn/**, "
+            + "**/.git, **/.git/**, **/.gitattributes, **/.gitignore, **/.gitmodules, "
+            + "**/.hg, **/.hg/**, **/.hgignore, **/.hgsub, **/.hgsubstate, **/.hgtags, "
+            + "**/.bzr, **/.bzr/**, **/.bzrignore, **/.DS_Store";
+    private static final String ALL_FILES = "**";
+
+    private final List<AntPattern> includes;
+    private final List<AntPattern> excludes;
+
+    /**
+     * Creates a new instance of {@link PatternFilter}.
+     *
+     * @param pattern
+     *            the Ant pattern of the files to include, all files are included if the pattern is empty
+     * @param excludePattern
+     *            the Ant pattern of the files to exclude, might be empty
+     */
+    PatternFilter(final String pattern, final String excludePattern) {
+        includes = AntPattern.compile(pattern);
+        if (includes.isEmpty()) {
+            includes.add(new AntPattern(ALL_FILES));
+        }
+        excludes = AntPattern.compile(DEFAULT_EXCLUDES);
+        excludes.addAll(AntPattern.compile(excludePattern));
+    }
+
+    /**
+     * Returns whether the specified directory can be skipped, since no file below this directory will be included.
+     *
+     * @param directory
+     *            the segments of the relative path of the directory
+     * @return <code>true</code> if the directory can be skipped, <code>false</code> otherwise
+     */
+    boolean isSkipped(final String[] directory) {
+        if (directory.length == 0) {
+            return false;
+        }
+        for (AntPattern exclude : excludes) {
+            if (exclude.matchesContents(directory)) {
+                return true;
+            }
+        }
+        for (AntPattern include : includes) {
+            if (include.matchesStart(directory)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the specified file is included.
+     *
+     * @param file
+     *            the segments of the relative path of the file
+     * @return <code>true</code> if the file is included, <code>false</code> otherwise
+     */
+    boolean isIncluded(final String[] file) {
+        return matchesAny(includes, file) && !matchesAny(excludes, file);
+    }
+
+    private boolean matchesAny(final List<AntPattern> patterns, final String[] segments) {
+        for (AntPattern pattern : patterns) {
+            if (pattern.matches(segments)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the segments of the path of the specified file relative to the specified root.
+     *
+     * @param root
+     *            the root directory
+     * @param path
+     *            the path of the file
+     * @return the segments of the relative path
+     */
+    static String[] getSegments(final Path root, final Path path) {
+        Path relative = root.relativize(path);
+        if (relative.toString().isEmpty()) {
+            return new String[0];
+        }
+        String[] segments = new String[relative.getNameCount()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = relative.getName(i).toString();
+        }
+        return segments;
+    }
+}
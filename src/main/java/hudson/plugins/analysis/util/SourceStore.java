@@ -0,0 +1,552 @@
+package hudson.plugins.analysis.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+
+/**
+ * Content addressed store of the source files that are copied to the build folders. Each build copies the source
+ * files with warnings to its folder {@value AbstractAnnotation#WORKSPACE_FILES}. These copies are moved to a store
+ * in the folder of the job where each distinct content is stored only once, named by the SHA-256 digest of the
+ * uncompressed content (see {@link CompressedFiles}). The folder of each build gets an index {@value #INDEX_FILE}
+ * that maps the names of the copies to the digests. The store counts the builds that reference a content: if a build
+ * is deleted, then the contents that are no longer referenced are deleted as well. The builds of Maven modules use
+ * the store of the Maven job.
+ * <p>
+ * Copies that are not part of an index (e.g., copies of builds that have been recorded before the store has been
+ * introduced) are still resolved in the folder of the build.
+ * </p>
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class SourceStore {
+    private static final Logger LOGGER = Logger.getLogger(SourceStore.class.getName());
+
+    /** Name of the folder of the store in the root folder of a job. */
+    public static final String STORE_FOLDER = "workspace-files-store";
+    /** Name of the index of the stored copies in the workspace files folder of a build. */
+    public static final String INDEX_FILE = "index.properties";
+
+    /** File format version of the reference counts, increment if the format changes. */
+    private static final int VERSION = 1;
+    private static final String REFERENCES_FILE = "references.dat";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String COPY_SUFFIX = ".tmp";
+    /** Number of indices that are kept in memory to resolve the copies of the recently viewed builds. */
+    private static final int INDEX_CACHE_SIZE = 50;
+
+    /** Guards the indices and reference counts of all stores. */
+    private static final Object LOCK = new Object();
+
+    @SuppressWarnings("serial")
+    private static final Map<File, CachedIndex> INDEX_CACHE = new LinkedHashMap<File, CachedIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Entry<File, CachedIndex> eldest) {
+            return size() > INDEX_CACHE_SIZE;
+        }
+    };
+
+    private final File storeFolder;
+
+    /**
+     * Returns the store of the job of the specified build.
+     *
+     * @param run
+     *            the build
+     * @return the store
+     */
+    public static SourceStore of(final Run<?, ?> run) {
+        Job<?, ?> job = run.getParent();
+        ItemGroup<?> parent = job.getParent();
+        while (parent instanceof Job) {
+            job = (Job<?, ?>)parent;
+            parent = job.getParent();
+        }
+        return new SourceStore(new File(job.getRootDir(), STORE_FOLDER));
+    }
+
+    /**
+     * Returns the folder with the copied source files of the specified build.
+     *
+     * @param run
+     *            the build
+     * @return the folder {@value AbstractAnnotation#WORKSPACE_FILES} of the build
+     */
+    public static File getFolder(final Run<?, ?> run) {
+        return new File(run.getRootDir(), AbstractAnnotation.WORKSPACE_FILES);
+    }
+
+    /**
+     * Moves the copied source files of the specified build to the store of its job.
+     *
+     * @param run
+     *            the build
+     * @see #absorb(File)
+     */
+    public static void absorb(final Run<?, ?> run) {
+        of(run).absorb(getFolder(run));
+    }
+
+    /**
+     * Resolves the copy of a source file of the specified build.
+     *
+     * @param run
+     *            the build
+     * @param tempName
+     *            the name of the copy, see {@link hudson.plugins.analysis.util.model.WorkspaceFile#createTempName}
+     * @return the stored copy
+     * @see #resolve(File, String)
+     */
+    public static File resolve(final Run<?, ?> run, final String tempName) {
+        return of(run).resolve(getFolder(run), tempName);
+    }
+
+    /**
+     * Returns the names of the copies that are part of the index in the specified folder.
+     *
+     * @param folder
+     *            the workspace files folder of a build, might be on a remote machine
+     * @return the names of the stored copies
+     * @throws IOException
+     *             if the index could not be read
+     * @throws InterruptedException
+     *             if the user cancels the processing
+     */
+    public static Set<String> getStoredFiles(final FilePath folder) throws IOException, InterruptedException {
+        FilePath index = folder.child(INDEX_FILE);
+        if (!index.exists()) {
+            return Collections.emptySet();
+        }
+        InputStream input = index.read();
+        try {
+            return readIndex(input).keySet();
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Creates a new instance of {@link SourceStore}.
+     *
+     * @param storeFolder
+     *            the folder of the store
+     */
+    public SourceStore(final File storeFolder) {
+        this.storeFolder = storeFolder;
+    }
+
+    /**
+     * Moves the copies of the source files in the specified folder to this store. Copies with a content that is
+     * already stored are deleted. Afterwards, the stored copies are added to the index of the folder and the folder
+     * is registered as reference of each stored content. Copies that could not be stored remain in the folder and are
+     * not part of the index.
+     *
+     * @param folder
+     *            the workspace files folder of a build
+     */
+    public void absorb(final File folder) {
+        File[] copies = folder.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(final File directory, final String name) {
+                return name.endsWith(COPY_SUFFIX);
+            }
+        });
+        if (copies == null || copies.length == 0) {
+            return;
+        }
+
+        Map<File, String> digests = Maps.newLinkedHashMap();
+        for (File copy : copies) {
+            try {
+                digests.put(copy, getDigest(copy));
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.FINE, "Can't compute digest of " + copy, exception);
+            }
+        }
+
+        synchronized (LOCK) {
+            Map<String, String> stored = Maps.newHashMap();
+            for (Entry<File, String> digest : digests.entrySet()) {
+                try {
+                    store(digest.getKey(), getBlob(digest.getValue()));
+                    stored.put(digest.getKey().getName(), digest.getValue());
+                }
+                catch (IOException exception) {
+                    LOGGER.log(Level.FINE, "Can't store " + digest.getKey(), exception);
+                }
+            }
+            if (stored.isEmpty()) {
+                return;
+            }
+            try {
+                Map<String, String> index = readIndex(folder);
+                Set<String> referenced = Sets.newHashSet(index.values());
+                index.putAll(stored);
+                addReferences(referenced, index.values());
+                writeIndex(folder, index);
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't move the copied source files of " + folder + " to " + storeFolder,
+                        exception);
+            }
+        }
+    }
+
+    /**
+     * Adds the stored copies of a folder to the index of another folder. Copies that are already part of the target
+     * index are not replaced. Both folders must use this store.
+     *
+     * @param source
+     *            the workspace files folder with the copies to add
+     * @param target
+     *            the workspace files folder that should reference the copies, too
+     */
+    public void addReferences(final File source, final File target) {
+        synchronized (LOCK) {
+            try {
+                Map<String, String> sourceIndex = readIndex(source);
+                if (sourceIndex.isEmpty()) {
+                    return;
+                }
+                Map<String, String> targetIndex = readIndex(target);
+                Set<String> referenced = Sets.newHashSet(targetIndex.values());
+                for (Entry<String, String> entry : sourceIndex.entrySet()) {
+                    if (!targetIndex.containsKey(entry.getKey())) {
+                        targetIndex.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                addReferences(referenced, targetIndex.values());
+                writeIndex(target, targetIndex);
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't reference the copied source files of " + source + " in " + target,
+                        exception);
+            }
+        }
+    }
+
+    /**
+     * Releases the stored copies that are referenced by the index of the specified folder. Contents that are no
+     * longer referenced by any folder are deleted. Contents without a reference count (e.g., if the reference counts
+     * could not be written) are kept, since other folders might still reference them.
+     *
+     * @param folder
+     *            the workspace files folder of a build that will be deleted
+     */
+    public void release(final File folder) {
+        synchronized (LOCK) {
+            try {
+                Map<String, String> index = readIndex(folder);
+                if (index.isEmpty()) {
+                    return;
+                }
+                Map<String, Integer> references = readReferences();
+                for (String digest : Sets.newHashSet(index.values())) {
+                    Integer count = references.get(digest);
+                    if (count == null) {
+                        LOGGER.log(Level.FINE, "Unknown number of references of stored copy " + digest);
+                    }
+                    else if (count <= 1) {
+                        references.remove(digest);
+                        File blob = getBlob(digest);
+                        if (blob.exists() && !blob.delete()) {
+                            LOGGER.log(Level.FINE, "Can't delete stored copy " + blob);
+                        }
+                    }
+                    else {
+                        references.put(digest, count - 1);
+                    }
+                }
+                writeReferences(references);
+                writeIndex(folder, Collections.<String, String>emptyMap());
+            }
+            catch (IOException exception) {
+                LOGGER.log(Level.WARNING, "Can't release the copied source files of " + folder, exception);
+            }
+        }
+    }
+
+    /**
+     * Resolves the copy of a source file in the specified folder. If the copy is part of the index of the folder,
+     * then the stored content is returned. Otherwise the copy in the folder is returned.
+     *
+     * @param folder
+     *            the workspace files folder of a build
+     * @param tempName
+     *            the name of the copy
+     * @return the copy, the file might not exist
+     */
+    public File resolve(final File folder, final String tempName) {
+        String digest = getCachedIndex(folder).get(tempName);
+        if (digest != null) {
+            File blob = getBlob(digest);
+            if (blob.exists()) {
+                return blob;
+            }
+        }
+        return new File(folder, tempName);
+    }
+
+    /**
+     * Returns the number of builds that reference the specified content.
+     *
+     * @param digest
+     *            the digest of the content
+     * @return the number of references
+     */
+    public int getReferences(final String digest) {
+        synchronized (LOCK) {
+            try {
+                Integer count = readReferences().get(digest);
+                return count == null ? 0 : count;
+            }
+            catch (IOException exception) {
+                return 0;
+            }
+        }
+    }
+
+    private File getBlob(final String digest) {
+        return new File(new File(storeFolder, digest.substring(0, 2)), digest);
+    }
+
+    private void store(final File copy, final File blob) throws IOException {
+        if (blob.exists()) {
+            delete(copy);
+            return;
+        }
+        File directory = blob.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create folder " + directory);
+        }
+        if (!copy.renameTo(blob)) {
+            File tempFile = new File(blob.getPath() + COPY_SUFFIX);
+            FileUtils.copyFile(copy, tempFile);
+            if (!tempFile.renameTo(blob)) {
+                delete(tempFile);
+                throw new IOException("Can't move " + copy + " to " + blob);
+            }
+            delete(copy);
+        }
+    }
+
+    private void delete(final File file) {
+        if (!file.delete()) {
+            LOGGER.log(Level.FINE, "Can't delete " + file);
+        }
+    }
+
+    private String getDigest(final File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IOException(exception);
+        }
+        InputStream input = new DigestInputStream(CompressedFiles.open(file), digest);
+        try {
+            IOUtils.copy(input, new NullOutputStream());
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+        return Util.toHexString(digest.digest());
+    }
+
+    private void addReferences(final Set<String> referenced, final Iterable<String> digests) throws IOException {
+        Map<String, Integer> references = readReferences();
+        boolean isChanged = false;
+        for (String digest : Sets.newHashSet(digests)) {
+            if (!referenced.contains(digest)) {
+                Integer count = references.get(digest);
+                references.put(digest, count == null ? 1 : count + 1);
+                isChanged = true;
+            }
+        }
+        if (isChanged) {
+            writeReferences(references);
+        }
+    }
+
+    private Map<String, Integer> readReferences() throws IOException {
+        Map<String, Integer> references = Maps.newHashMap();
+        File file = new File(storeFolder, REFERENCES_FILE);
+        if (!file.isFile()) {
+            return references;
+        }
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != VERSION) {
+                throw new IOException("Unsupported version of reference counts: " + file);
+            }
+            int size = input.readInt();
+            for (int entry = 0; entry < size; entry++) {
+                references.put(input.readUTF(), input.readInt());
+            }
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+        return references;
+    }
+
+    private void writeReferences(final Map<String, Integer> references) throws IOException {
+        File file = new File(storeFolder, REFERENCES_FILE);
+        File tempFile = new File(file.getPath() + COPY_SUFFIX);
+        if (!storeFolder.isDirectory() && !storeFolder.mkdirs()) {
+            throw new IOException("Can't create folder " + storeFolder);
+        }
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            output.writeInt(VERSION);
+            output.writeInt(references.size());
+            for (Entry<String, Integer> reference : references.entrySet()) {
+                output.writeUTF(reference.getKey());
+                output.writeInt(reference.getValue());
+            }
+        }
+        finally {
+            output.close();
+        }
+        replace(tempFile, file);
+    }
+
+    /**
+     * Atomically replaces the specified file with the temporary file, so readers see either the previous or the new
+     * content. In contrast to {@link File#renameTo(File)}, an existing file is replaced on all platforms.
+     */
+    private static void replace(final File tempFile, final File file) throws IOException {
+        java.nio.file.Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Map<String, String> getCachedIndex(final File folder) {
+        File file = new File(folder, INDEX_FILE);
+        long lastModified = file.lastModified();
+        synchronized (INDEX_CACHE) {
+            CachedIndex cached = INDEX_CACHE.get(file);
+            if (cached != null && cached.lastModified == lastModified) {
+                return cached.index;
+            }
+        }
+        Map<String, String> index;
+        try {
+            index = readIndex(folder);
+        }
+        catch (IOException exception) {
+            LOGGER.log(Level.FINE, "Can't read index " + file, exception);
+
+            index = Collections.emptyMap();
+        }
+        synchronized (INDEX_CACHE) {
+            INDEX_CACHE.put(file, new CachedIndex(lastModified, index));
+        }
+        return index;
+    }
+
+    private static Map<String, String> readIndex(final File folder) throws IOException {
+        File file = new File(folder, INDEX_FILE);
+        if (!file.isFile()) {
+            return Maps.newHashMap();
+        }
+        InputStream input = new FileInputStream(file);
+        try {
+            return readIndex(input);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private static Map<String, String> readIndex(final InputStream input) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new BufferedInputStream(input));
+        Map<String, String> index = Maps.newHashMap();
+        for (String tempName : properties.stringPropertyNames()) {
+            index.put(tempName, properties.getProperty(tempName));
+        }
+        return index;
+    }
+
+    private static void writeIndex(final File folder, final Map<String, String> index) throws IOException {
+        File file = new File(folder, INDEX_FILE);
+        File tempFile = new File(folder, INDEX_FILE + ".new");
+        Properties properties = new Properties();
+        properties.putAll(index);
+        OutputStream output = new BufferedOutputStream(new FileOutputStream(tempFile));
+        try {
+            properties.store(output, null);
+        }
+        finally {
+            output.close();
+        }
+        replace(tempFile, file);
+        synchronized (INDEX_CACHE) {
+            INDEX_CACHE.remove(file);
+        }
+    }
+
+    /**
+     * An index and the modification time of its file.
+     */
+    private static class CachedIndex {
+        private final long lastModified;
+        private final Map<String, String> index;
+
+        CachedIndex(final long lastModified, final Map<String, String> index) {
+            this.lastModified = lastModified;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Releases the stored copies of deleted builds.
+     */
+    @Extension
+    public static class Cleaner extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(final Run<?, ?> run) {
+            of(run).release(getFolder(run));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hudson.plugins.analysis.util;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Executes a list of tasks using a bounded number of worker threads. The results are returned in the order of the
+ * tasks, so the outcome does not depend on the scheduling of the threads. If the number of threads is 1 then all tasks
+ * are executed sequentially in the calling thread.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class WorkerPool {
+    /** Number of threads that execute the tasks sequentially in the calling thread. */
+    public static final int SEQUENTIAL = 1;
+
+    private final String name;
+    private final int parallelism;
+
+    /**
+     * Creates a new instance of {@link WorkerPool}.
+     *
+     * @param name
+     *            the name of the worker threads
+     * @param parallelism
+     *            the maximum number of worker threads, values less than 2 will execute the tasks sequentially
+     */
+    public WorkerPool(final String name, final int parallelism) {
+        this.name = name;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns whether the tasks will be executed in parallel.
+     *
+     * @return <code>true</code> if the tasks will be executed in parallel, <code>false</code> otherwise
+     */
+    public boolean isParallel() {
+        return parallelism > SEQUENTIAL;
+    }
+
+    /**
+     * Executes the specified tasks and returns their results.
+     *
+     * @param tasks
+     *            the tasks to execute
+     * @param <T>
+     *            the type of the results
+     * @return the results of the tasks, in the same order as the tasks
+     * @throws InterruptedException
+     *             if the calling thread has been interrupted, all running tasks will be canceled
+     * @throws ExecutionException
+     *             if a task has thrown an exception, the exception is available as cause
+     */
+    public <T> List<T> invokeAll(final List<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException {
+        if (!isParallel() || tasks.size() <= SEQUENTIAL) {
+            return invokeSequentially(tasks);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()),
+                new NamingThreadFactory(new DaemonThreadFactory(), name));
+        try {
+            List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // CHECKSTYLE:OFF
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private <T> List<T> invokeSequentially(final List<? extends Callable<T>> tasks)
+            throws InterruptedException, ExecutionException {
+        List<T> results = Lists.newArrayListWithCapacity(tasks.size());
+        for (Callable<T> task : tasks) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            try {
+                results.add(task.call());
+            }
+            catch (InterruptedException exception) {
+                throw exception;
+            }
+            catch (Exception exception) {
+                throw new ExecutionException(exception);
+            }
+        }
+        return results;
+    }
+    // CHECKSTYLE:ON
+}
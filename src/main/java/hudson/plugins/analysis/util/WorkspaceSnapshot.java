@@ -0,0 +1,204 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+
+/**
+ * An in-memory index of all files of a workspace. The workspace is traversed only once, afterwards the files matching
+ * an Ant pattern are found without accessing the file system again. So the report files, the module descriptors and
+ * the source files of relative paths can be obtained from a single traversal. The found files are the same as the
+ * files found by {@link FileFinder}. Instances of this class are immutable.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class WorkspaceSnapshot {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final File root;
+    /** The segments of the relative paths of all directories, parent directories come first. */
+    private final List<String[]> directories = Lists.newArrayList();
+    /** The index of the parent directory of each directory, -1 for the root. */
+    private int[] parents = new int[INITIAL_CAPACITY];
+    /** The index of the directory of each file. */
+    private int[] fileDirectories = new int[INITIAL_CAPACITY];
+    /** The name of each file. */
+    private String[] fileNames = new String[INITIAL_CAPACITY];
+    private int numberOfFiles;
+
+    /**
+     * Traverses the specified workspace and creates a snapshot of all files. Directories that are excluded by the Ant
+     * default excludes are skipped.
+     *
+     * @param workspace
+     *            root directory of the workspace
+     * @return the snapshot of the workspace
+     */
+    public static WorkspaceSnapshot create(final File workspace) {
+        WorkspaceSnapshot snapshot = new WorkspaceSnapshot(workspace);
+        if (workspace.isDirectory()) {
+            try {
+                Files.walkFileTree(workspace.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                        snapshot.new Indexer(workspace.toPath()));
+            }
+            catch (IOException exception) {
+                // the visitor does not throw exceptions
+            }
+        }
+        return snapshot;
+    }
+
+    private WorkspaceSnapshot(final File root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the root directory of the workspace.
+     *
+     * @return the root directory
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the number of files in this snapshot.
+     *
+     * @return the number of files
+     */
+    public int getNumberOfFiles() {
+        return numberOfFiles;
+    }
+
+    /**
+     * Returns the relative paths of all files that match the specified Ant pattern.
+     *
+     * @param pattern
+     *            the Ant pattern of the files to include
+     * @return the sorted relative paths of the found files
+     */
+    public String[] find(final String pattern) {
+        return find(pattern, StringUtils.EMPTY);
+    }
+
+    /**
+     * Returns the relative paths of all files that match the specified Ant pattern and are not excluded.
+     *
+     * @param pattern
+     *            the Ant pattern of the files to include
+     * @param excludePattern
+     *            the Ant pattern of the files to exclude
+     * @return the sorted relative paths of the found files
+     */
+    public String[] find(final String pattern, final String excludePattern) {
+        PatternFilter filter = new PatternFilter(pattern, excludePattern);
+
+        boolean[] isSkipped = new boolean[directories.size()];
+        for (int directory = 0; directory < isSkipped.length; directory++) {
+            int parent = parents[directory];
+            isSkipped[directory] = parent >= 0 && isSkipped[parent] || filter.isSkipped(directories.get(directory));
+        }
+
+        List<String> includedFiles = Lists.newArrayList();
+        for (int file = 0; file < numberOfFiles; file++) {
+            int directory = fileDirectories[file];
+            if (!isSkipped[directory]) {
+                String[] segments = append(directories.get(directory), fileNames[file]);
+                if (filter.isIncluded(segments)) {
+                    includedFiles.add(StringUtils.join(segments, File.separator));
+                }
+            }
+        }
+        Collections.sort(includedFiles);
+
+        return includedFiles.toArray(new String[includedFiles.size()]);
+    }
+
+    private static String[] append(final String[] segments, final String name) {
+        String[] appended = Arrays.copyOf(segments, segments.length + 1);
+        appended[segments.length] = name;
+        return appended;
+    }
+
+    private int addDirectory(final String[] segments, final int parent) {
+        int index = directories.size();
+        if (index == parents.length) {
+            parents = Arrays.copyOf(parents, index * 2);
+        }
+        directories.add(segments);
+        parents[index] = parent;
+        return index;
+    }
+
+    private void addFile(final int directory, final String name) {
+        if (numberOfFiles == fileNames.length) {
+            fileDirectories = Arrays.copyOf(fileDirectories, numberOfFiles * 2);
+            fileNames = Arrays.copyOf(fileNames, numberOfFiles * 2);
+        }
+        fileDirectories[numberOfFiles] = directory;
+        fileNames[numberOfFiles] = name;
+        numberOfFiles++;
+    }
+
+    /**
+     * Visits all files of the workspace and adds them to the index.
+     */
+    private class Indexer extends SimpleFileVisitor<Path> {
+        private final Path start;
+        private final PatternFilter filter = new PatternFilter(StringUtils.EMPTY, StringUtils.EMPTY);
+        /** The indices of the directories that are currently visited. */
+        private final List<Integer> path = Lists.newArrayList();
+
+        Indexer(final Path start) {
+            super();
+
+            this.start = start;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) {
+            String[] segments = PatternFilter.getSegments(start, directory);
+            if (filter.isSkipped(segments)) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            int parent = path.isEmpty() ? -1 : path.get(path.size() - 1);
+            path.add(addDirectory(segments, parent));
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(final Path directory, final IOException exception) {
+            path.remove(path.size() - 1);
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+            if (attributes.isRegularFile()) {
+                addFile(path.get(path.size() - 1), file.getFileName().toString());
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(final Path file, final IOException exception) {
+            return FileVisitResult.CONTINUE; // skip unreadable files and symbolic link cycles
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -22,6 +23,7 @@ import hudson.model.Run;
 import hudson.plugins.analysis.Messages;
 import hudson.plugins.analysis.core.AbstractAnnotationParser;
 import hudson.plugins.analysis.util.PackageDetectors;
+import hudson.plugins.analysis.util.SourceStore;
 import hudson.plugins.analysis.util.TreeString;
 import hudson.plugins.analysis.util.TreeStringBuilder;
 
@@ -42,15 +44,15 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
     private static final long serialVersionUID = -1092014926477547148L;
     public static final String DEFAULT_CATEGORY = "-";
 
-    /** Current key of this annotation. */
-    private static long currentKey = new Random().nextLong();
+    /** Current key of this annotation. Annotations might be created by several parser threads concurrently. */
+    private static final AtomicLong CURRENT_KEY = new AtomicLong(new Random().nextLong());
 
     /** The message of this annotation. */
     private /*almost final*/ TreeString message;
     /** The priority of this annotation. */
     private Priority priority;
     /** Unique key of this annotation. */
-    private final long key;
+    private /*almost final*/ long key;
     /**
      * The ordered list of line ranges that show the origin of the annotation in
      * the associated file. To save memory consumption, this can be
@@ -108,19 +110,18 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
      * @param type
      *            the type of the annotation
      */
-    @SuppressFBWarnings("ST")
     public AbstractAnnotation(final String message, final int start, final int end, final String category, final String type) {
         this.message = TreeString.of(StringUtils.strip(message));
         this.category = defaultString(category);
         this.type = defaultString(type);
 
-        key = currentKey++;
+        key = CURRENT_KEY.getAndIncrement();
 
         lineRanges = new LineRangeList();
         lineRanges.add(new LineRange(start, end));
         primaryLineNumber = start;
 
-        contextHashCode = currentKey;
+        contextHashCode = key + 1;
     }
 
     private static String defaultString(final String value) {
@@ -155,9 +156,8 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
      * @param copy
      *            the annotation to copy the values from
      */
-    @SuppressFBWarnings("ST")
     public AbstractAnnotation(final FileAnnotation copy) {
-        key = currentKey++;
+        key = CURRENT_KEY.getAndIncrement();
 
         message = TreeString.of(copy.getMessage());
         priority = copy.getPriority();
@@ -387,6 +387,27 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
         return key;
     }
 
+    /**
+     * Assigns a new unique key to this annotation. Call this method if an existing annotation is reused in another
+     * build, e.g., if the annotation has been read from a cache of parsed reports.
+     *
+     * @since 1.97
+     */
+    public void assignNewKey() {
+        key = CURRENT_KEY.getAndIncrement();
+    }
+
+    /**
+     * Restores the key of this annotation. Used by {@link AnnotationDelta} to give a reused annotation of a reference
+     * build the key it had in the build of the delta.
+     *
+     * @param key
+     *            the key of this annotation
+     */
+    void setKey(final long key) {
+        this.key = key;
+    }
+
     @Override
     @Exported
     public final String getFileName() {
@@ -396,9 +417,7 @@ public abstract class AbstractAnnotation implements FileAnnotation, Serializable
     @Override
     public String getTempName(@Nonnull final Run<?, ?> owner) {
         if (fileName != null) {
-            return owner.getRootDir().getAbsolutePath()
-                    + SLASH + WORKSPACE_FILES
-                    + SLASH + Integer.toHexString(fileName.hashCode()) + ".tmp";
+            return SourceStore.resolve(owner, Integer.toHexString(fileName.hashCode()) + ".tmp").getAbsolutePath();
         }
         return StringUtils.EMPTY;
     }
@@ -586,13 +586,30 @@ public abstract class AnnotationContainer implements AnnotationProvider, Seriali
      * @return a tooltip showing the distribution of priorities
      */
     public String getToolTip() {
+        return createToolTip(getNumberOfHighAnnotations(), getNumberOfNormalAnnotations(),
+                getNumberOfLowAnnotations());
+    }
+
+    /**
+     * Creates a tooltip showing the distribution of priorities for the specified numbers of annotations.
+     *
+     * @param high
+     *            the number of annotations with priority high
+     * @param normal
+     *            the number of annotations with priority normal
+     * @param low
+     *            the number of annotations with priority low
+     * @return a tooltip showing the distribution of priorities
+     */
+    static String createToolTip(final int high, final int normal, final int low) {
         StringBuilder message = new StringBuilder();
         String separator = " - ";
+        int[] counts = {high, normal, low};
         for (Priority priority : Priority.values()) {
-            if (hasAnnotations(priority)) {
+            if (counts[priority.ordinal()] > 0) {
                 message.append(priority.getLocalizedString());
                 message.append(':');
-                message.append(getNumberOfAnnotations(priority));
+                message.append(counts[priority.ordinal()]);
                 message.append(separator);
             }
         }
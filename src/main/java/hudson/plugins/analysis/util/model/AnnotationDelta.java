@@ -0,0 +1,214 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+
+/**
+ * The annotations of a build stored relative to the annotations of a reference build: the annotations that have been
+ * added and the keys of the annotations of the reference build that are part of the build without any change. Since
+ * an annotation has a different key in each build, the delta maps each of these keys to the key of the annotation in
+ * the build. So the annotations of the build are restored with their original keys by applying this delta to the
+ * annotations of the reference build. Since the annotations of the reference build might be stored as a delta as
+ * well, each delta records the length of the chain of deltas that need to be applied.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class AnnotationDelta implements Serializable {
+    private static final long serialVersionUID = -2207946017880542231L;
+
+    /** The persistent fields of each annotation class that are compared by {@link #isIdentical}. */
+    private static final Map<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<Class<?>, List<Field>>();
+
+    private final int referenceBuild;
+    private final int chainLength;
+    private final FileAnnotation[] added;
+    /** The keys of the reused annotations in the reference build. */
+    private final long[] referenceKeys;
+    /** The keys of the reused annotations in the build, in the order of {@link #referenceKeys}. */
+    private final long[] keys;
+    private final int numberOfRemoved;
+
+    /**
+     * Computes the delta of the specified annotations relative to the annotations of the reference build. An
+     * annotation of the reference build is reused only if it is an {@link AbstractAnnotation} and if all of its
+     * persistent fields, except the key, are equal to the fields of an annotation of the build.
+     *
+     * @param referenceBuild
+     *            the number of the reference build
+     * @param chainLength
+     *            the number of deltas that need to be applied to restore the annotations, including this delta
+     * @param annotations
+     *            the annotations of the build
+     * @param referenceAnnotations
+     *            the annotations of the reference build
+     * @return the delta
+     */
+    public static AnnotationDelta create(final int referenceBuild, final int chainLength,
+            final FileAnnotation[] annotations, final Collection<FileAnnotation> referenceAnnotations) {
+        Map<FileAnnotation, List<FileAnnotation>> candidates = Maps.newHashMap();
+        for (FileAnnotation annotation : referenceAnnotations) {
+            List<FileAnnotation> equalAnnotations = candidates.get(annotation);
+            if (equalAnnotations == null) {
+                equalAnnotations = Lists.newArrayList();
+                candidates.put(annotation, equalAnnotations);
+            }
+            equalAnnotations.add(annotation);
+        }
+
+        List<Long> referenceKeys = Lists.newArrayList();
+        List<Long> keys = Lists.newArrayList();
+        List<FileAnnotation> added = Lists.newArrayList();
+        for (FileAnnotation annotation : annotations) {
+            FileAnnotation match = removeIdentical(annotation, candidates.get(annotation));
+            if (match == null) {
+                added.add(annotation);
+            }
+            else {
+                referenceKeys.add(match.getKey());
+                keys.add(annotation.getKey());
+            }
+        }
+
+        return new AnnotationDelta(referenceBuild, chainLength, added.toArray(new FileAnnotation[added.size()]),
+                Longs.toArray(referenceKeys), Longs.toArray(keys), referenceAnnotations.size() - referenceKeys.size());
+    }
+
+    private static FileAnnotation removeIdentical(final FileAnnotation annotation,
+            final List<FileAnnotation> candidates) {
+        if (candidates != null) {
+            for (int position = 0; position < candidates.size(); position++) {
+                if (isIdentical(annotation, candidates.get(position))) {
+                    return candidates.remove(position);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the specified annotations have the same values in all persistent fields except the key.
+     * {@link FileAnnotation#equals(Object)} compares only the fields that identify a warning, but the restored
+     * annotation needs to have the same values as the annotation that has been created by the build.
+     */
+    private static boolean isIdentical(final FileAnnotation annotation, final FileAnnotation other) {
+        if (annotation.getClass() != other.getClass() || !(other instanceof AbstractAnnotation)) {
+            return false;
+        }
+        try {
+            for (Field field : getFields(annotation.getClass())) {
+                if (!Objects.deepEquals(field.get(annotation), field.get(other))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        catch (IllegalAccessException exception) {
+            return false;
+        }
+    }
+
+    private static List<Field> getFields(final Class<?> type) {
+        List<Field> fields = FIELDS.get(type);
+        if (fields == null) {
+            fields = Lists.newArrayList();
+            for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !isKey(field)) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            FIELDS.put(type, fields);
+        }
+        return fields;
+    }
+
+    private static boolean isKey(final Field field) {
+        return field.getDeclaringClass() == AbstractAnnotation.class && "key".equals(field.getName());
+    }
+
+    private AnnotationDelta(final int referenceBuild, final int chainLength, final FileAnnotation[] added,
+            final long[] referenceKeys, final long[] keys, final int numberOfRemoved) {
+        this.referenceBuild = referenceBuild;
+        this.chainLength = chainLength;
+        this.added = added;
+        this.referenceKeys = referenceKeys;
+        this.keys = keys;
+        this.numberOfRemoved = numberOfRemoved;
+    }
+
+    /**
+     * Returns the number of the reference build.
+     *
+     * @return the number of the reference build
+     */
+    public int getReferenceBuild() {
+        return referenceBuild;
+    }
+
+    /**
+     * Returns the number of deltas that need to be applied to restore the annotations, including this delta.
+     *
+     * @return the length of the chain of deltas
+     */
+    public int getChainLength() {
+        return chainLength;
+    }
+
+    /**
+     * Returns the number of added and removed annotations.
+     *
+     * @return the number of changes
+     */
+    public int getNumberOfChanges() {
+        return added.length + numberOfRemoved;
+    }
+
+    /**
+     * Restores the annotations of the build by applying this delta to the annotations of the reference build. The
+     * reused annotations of the reference build get the keys they had in the build, so the specified annotations
+     * need to be loaded for this delta only and must not be used for the reference build anymore.
+     *
+     * @param referenceAnnotations
+     *            the annotations of the reference build, read from the data files of the reference build
+     * @return the annotations of the build
+     * @throws IOException
+     *             if a reused annotation of the reference build is missing
+     */
+    public FileAnnotation[] apply(final Collection<FileAnnotation> referenceAnnotations) throws IOException {
+        Map<Long, Long> reusedKeys = Maps.newHashMap();
+        for (int position = 0; position < referenceKeys.length; position++) {
+            reusedKeys.put(referenceKeys[position], keys[position]);
+        }
+        List<FileAnnotation> annotations = Lists.newArrayList();
+        for (FileAnnotation annotation : referenceAnnotations) {
+            Long key = reusedKeys.remove(annotation.getKey());
+            if (key != null && annotation instanceof AbstractAnnotation) {
+                ((AbstractAnnotation)annotation).setKey(key);
+                annotations.add(annotation);
+            }
+        }
+        if (!reusedKeys.isEmpty()) {
+            throw new IOException("Reference build " + referenceBuild + " misses " + reusedKeys.size()
+                    + " annotations of the delta");
+        }
+        Collections.addAll(annotations, added);
+
+        return annotations.toArray(new FileAnnotation[annotations.size()]);
+    }
+}
@@ -0,0 +1,309 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+
+/**
+ * Secondary index of a {@link BinaryAnnotationFile}. For each module, package, file, category, type, and author the
+ * index stores the positions of the corresponding annotations in the data file. The elements are identified by the
+ * same hash codes as in the {@link AnnotationContainer}, so that the annotations that are shown on a detail page can be
+ * read with {@link BinaryAnnotationFile#read(int[])} without reading all annotations of the build.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class AnnotationIndex {
+    /** Identifies an annotation index file. */
+    private static final int MAGIC = 0x41414931;
+    /** File format version, increment if the format changes. */
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int MODULE = 0;
+    private static final int PACKAGE = 1;
+    private static final int FILE = 2;
+    private static final int CATEGORY = 3;
+    private static final int TYPE = 4;
+    private static final int AUTHOR = 5;
+    private static final int DIMENSIONS = 6;
+
+    private final List<Map<Integer, int[]>> dimensions;
+    private final long[] keys;
+
+    /**
+     * Creates the index of the specified annotations.
+     *
+     * @param annotations
+     *            the annotations in the order of the data file
+     * @return the index
+     */
+    public static AnnotationIndex create(final FileAnnotation[] annotations) {
+        List<Map<Integer, List<Integer>>> positions = Lists.newArrayList();
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            positions.add(Maps.<Integer, List<Integer>>newHashMap());
+        }
+        long[] keys = new long[annotations.length];
+        for (int row = 0; row < annotations.length; row++) {
+            FileAnnotation annotation = annotations[row];
+            keys[row] = annotation.getKey();
+
+            add(positions.get(MODULE), annotation.getModuleName(), row);
+            String packageName = annotation.getPackageName();
+            if (StringUtils.isBlank(packageName)) {
+                packageName = "-";
+            }
+            add(positions.get(PACKAGE), packageName, row);
+            if (annotation.getFileName() != null) {
+                add(positions.get(FILE), annotation.getFileName().replace('\\', '/'), row);
+            }
+            if (StringUtils.isNotBlank(annotation.getCategory())) {
+                add(positions.get(CATEGORY), annotation.getCategory(), row);
+            }
+            if (StringUtils.isNotBlank(annotation.getType())) {
+                add(positions.get(TYPE), annotation.getType(), row);
+            }
+            add(positions.get(AUTHOR), annotation.getAuthor(), row);
+        }
+
+        List<Map<Integer, int[]>> dimensions = Lists.newArrayList();
+        for (Map<Integer, List<Integer>> dimension : positions) {
+            Map<Integer, int[]> rows = Maps.newHashMap();
+            for (Entry<Integer, List<Integer>> entry : dimension.entrySet()) {
+                rows.put(entry.getKey(), Ints.toArray(entry.getValue()));
+            }
+            dimensions.add(rows);
+        }
+        return new AnnotationIndex(dimensions, keys);
+    }
+
+    private static void add(final Map<Integer, List<Integer>> dimension, final String name, final int row) {
+        if (name != null) {
+            List<Integer> rows = dimension.get(name.hashCode());
+            if (rows == null) {
+                rows = Lists.newArrayList();
+                dimension.put(name.hashCode(), rows);
+            }
+            rows.add(row);
+        }
+    }
+
+    private AnnotationIndex(final List<Map<Integer, int[]>> dimensions, final long[] keys) {
+        this.dimensions = dimensions;
+        this.keys = keys;
+    }
+
+    /**
+     * Returns the number of indexed annotations.
+     *
+     * @return the number of annotations
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the positions of the annotations of the module with the specified hash code.
+     *
+     * @param hashCode
+     *            the hash code of the module name
+     * @return the positions of the annotations, might be empty
+     */
+    public int[] getModule(final int hashCode) {
+        return get(MODULE, hashCode);
+    }
+
+    /**
+     * Returns the positions of the annotations of the package with the specified hash code.
+     *
+     * @param hashCode
+     *            the hash code of the package name
+     * @return the positions of the annotations, might be empty
+     */
+    public int[] getPackage(final int hashCode) {
+        return get(PACKAGE, hashCode);
+    }
+
+    /**
+     * Returns the positions of the annotations of the file with the specified hash code.
+     *
+     * @param hashCode
+     *            the hash code of the file name
+     * @return the positions of the annotations, might be empty
+     */
+    public int[] getFile(final int hashCode) {
+        return get(FILE, hashCode);
+    }
+
+    /**
+     * Returns the positions of the annotations of the category with the specified hash code.
+     *
+     * @param hashCode
+     *            the hash code of the category
+     * @return the positions of the annotations, might be empty
+     */
+    public int[] getCategory(final int hashCode) {
+        return get(CATEGORY, hashCode);
+    }
+
+    /**
+     * Returns the positions of the annotations of the type with the specified hash code.
+     *
+     * @param hashCode
+     *            the hash code of the type
+     * @return the positions of the annotations, might be empty
+     */
+    public int[] getType(final int hashCode) {
+        return get(TYPE, hashCode);
+    }
+
+    /**
+     * Returns the positions of the annotations of the author with the specified hash code.
+     *
+     * @param hashCode
+     *            the hash code of the author
+     * @return the positions of the annotations, might be empty
+     */
+    public int[] getAuthor(final int hashCode) {
+        return get(AUTHOR, hashCode);
+    }
+
+    /**
+     * Returns the position of the annotation with the specified key.
+     *
+     * @param key
+     *            the key of the annotation
+     * @return the position of the annotation, or an empty array if there is no such annotation
+     */
+    public int[] getAnnotation(final long key) {
+        List<Integer> rows = Lists.newArrayList();
+        for (int row = 0; row < keys.length; row++) {
+            if (keys[row] == key) {
+                rows.add(row);
+            }
+        }
+        return Ints.toArray(rows);
+    }
+
+    private int[] get(final int dimension, final int hashCode) {
+        int[] rows = dimensions.get(dimension).get(hashCode);
+        if (rows == null) {
+            return new int[0];
+        }
+        return rows.clone();
+    }
+
+    /**
+     * Writes this index to the specified file. The file is replaced atomically.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the index could not be written
+     */
+    public void write(final File file) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(new FileOutputStream(tempFile), deflater, BUFFER_SIZE), BUFFER_SIZE));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(keys.length);
+                for (long key : keys) {
+                    output.writeLong(key);
+                }
+                for (Map<Integer, int[]> dimension : dimensions) {
+                    output.writeInt(dimension.size());
+                    for (Entry<Integer, int[]> entry : dimension.entrySet()) {
+                        output.writeInt(entry.getKey());
+                        output.writeInt(entry.getValue().length);
+                        for (int row : entry.getValue()) {
+                            output.writeInt(row);
+                        }
+                    }
+                }
+            }
+            finally {
+                output.close();
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            deflater.end();
+            if (tempFile.exists() && !tempFile.delete()) {
+                throw new IOException("Can't delete temporary file " + tempFile);
+            }
+        }
+    }
+
+    /**
+     * Reads the index of the specified file.
+     *
+     * @param file
+     *            the file to read
+     * @return the index
+     * @throws IOException
+     *             if the index could not be read
+     */
+    public static AnnotationIndex read(final File file) throws IOException {
+        Inflater inflater = new Inflater();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new FileInputStream(file), inflater, BUFFER_SIZE), BUFFER_SIZE));
+        try {
+            if (input.readInt() != MAGIC) {
+                throw new StreamCorruptedException("Not an annotation index: " + file);
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new StreamCorruptedException("Unsupported version " + version + " of " + file);
+            }
+            long[] keys = new long[input.readInt()];
+            for (int row = 0; row < keys.length; row++) {
+                keys[row] = input.readLong();
+            }
+            List<Map<Integer, int[]>> dimensions = Lists.newArrayList();
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+                int size = input.readInt();
+                Map<Integer, int[]> positions = Maps.newHashMap();
+                for (int entry = 0; entry < size; entry++) {
+                    int hashCode = input.readInt();
+                    int[] rows = new int[input.readInt()];
+                    for (int row = 0; row < rows.length; row++) {
+                        rows[row] = input.readInt();
+                    }
+                    positions.put(hashCode, rows);
+                }
+                dimensions.add(positions);
+            }
+            return new AnnotationIndex(dimensions, keys);
+        }
+        finally {
+            input.close();
+            inflater.end();
+        }
+    }
+}
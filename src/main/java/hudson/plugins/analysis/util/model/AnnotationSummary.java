@@ -0,0 +1,339 @@
+package hudson.plugins.analysis.util.model;
+
+import javax.annotation.CheckForNull;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Summary of the annotations of a build: the number of annotations per priority for the whole build and for each
+ * module, package, file, category, type, and author. The summary provides the same properties as an
+ * {@link AnnotationContainer} for these aggregate views, so the views can be rendered without loading the annotations.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class AnnotationSummary implements Serializable {
+    private static final long serialVersionUID = -2353420722208553006L;
+
+    private final Element total;
+    private final List<Element> modules;
+    private final List<Element> packages;
+    private final List<Element> files;
+    private final List<Element> categories;
+    private final List<Element> types;
+    private final List<Element> authors;
+    /** An annotation of the build that determines the package category, <code>null</code> if there is none. */
+    @CheckForNull
+    private final FileAnnotation representative;
+
+    @SuppressWarnings("Se")
+    private transient AnnotationsLabelProvider labelProvider;
+
+    /**
+     * Creates a new instance of {@link AnnotationSummary}.
+     *
+     * @param container
+     *            the container with all annotations of the build
+     */
+    public AnnotationSummary(final AnnotationContainer container) {
+        total = new Element(container);
+        modules = createElements(container.getModules());
+        packages = createElements(container.getPackages());
+        files = createElements(container.getFiles());
+        categories = createElements(container.getCategories());
+        types = createElements(container.getTypes());
+        authors = Lists.newArrayList();
+        for (Author author : container.getAuthors()) {
+            authors.add(new Element(author, author.getDisplayName()));
+        }
+        if (container.hasAnnotations()) {
+            representative = container.getAnnotations().iterator().next();
+        }
+        else {
+            representative = null;
+        }
+    }
+
+    private static List<Element> createElements(final Collection<? extends AnnotationContainer> containers) {
+        List<Element> elements = Lists.newArrayList();
+        for (AnnotationContainer container : containers) {
+            elements.add(new Element(container));
+        }
+        return elements;
+    }
+
+    /**
+     * Returns a container with a representative annotation of the build. This container provides the package category
+     * of the build and is used to create the label provider.
+     *
+     * @return a container with a representative annotation
+     */
+    public JavaProject createRepresentativeContainer() {
+        JavaProject container = new JavaProject();
+        if (representative != null) {
+            container.addAnnotation(representative);
+        }
+        return container;
+    }
+
+    /**
+     * Returns the label provider for the tabs of the build result.
+     *
+     * @return the label provider
+     */
+    public AnnotationsLabelProvider getLabelProvider() {
+        if (labelProvider == null) {
+            return createRepresentativeContainer().getLabelProvider();
+        }
+        return labelProvider;
+    }
+
+    /**
+     * Sets the label provider for the tabs of the build result.
+     *
+     * @param labelProvider
+     *            the label provider
+     */
+    public void setLabelProvider(final AnnotationsLabelProvider labelProvider) {
+        this.labelProvider = labelProvider;
+    }
+
+    /**
+     * Returns the package category name for the scanned files.
+     *
+     * @return the package category name
+     * @see AnnotationContainer#getPackageCategoryName()
+     */
+    public String getPackageCategoryName() {
+        return createRepresentativeContainer().getPackageCategoryName();
+    }
+
+    /**
+     * Returns the total number of annotations.
+     *
+     * @return the number of annotations
+     */
+    public int getNumberOfAnnotations() {
+        return total.getNumberOfAnnotations();
+    }
+
+    /**
+     * Returns the number of annotations with priority high.
+     *
+     * @return the number of annotations with priority high
+     */
+    public int getNumberOfHighAnnotations() {
+        return total.getNumberOfHighAnnotations();
+    }
+
+    /**
+     * Returns the number of annotations with priority normal.
+     *
+     * @return the number of annotations with priority normal
+     */
+    public int getNumberOfNormalAnnotations() {
+        return total.getNumberOfNormalAnnotations();
+    }
+
+    /**
+     * Returns the number of annotations with priority low.
+     *
+     * @return the number of annotations with priority low
+     */
+    public int getNumberOfLowAnnotations() {
+        return total.getNumberOfLowAnnotations();
+    }
+
+    /**
+     * Returns the modules with annotations.
+     *
+     * @return the modules
+     */
+    public List<Element> getModules() {
+        return Collections.unmodifiableList(modules);
+    }
+
+    /**
+     * Returns the packages with annotations.
+     *
+     * @return the packages
+     */
+    public List<Element> getPackages() {
+        return Collections.unmodifiableList(packages);
+    }
+
+    /**
+     * Returns the files with annotations.
+     *
+     * @return the files
+     */
+    public List<Element> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Returns the categories with annotations.
+     *
+     * @return the categories
+     */
+    public List<Element> getCategories() {
+        return Collections.unmodifiableList(categories);
+    }
+
+    /**
+     * Returns the types with annotations.
+     *
+     * @return the types
+     */
+    public List<Element> getTypes() {
+        return Collections.unmodifiableList(types);
+    }
+
+    /**
+     * Returns the authors with annotations.
+     *
+     * @return the authors
+     */
+    public List<Element> getAuthors() {
+        return Collections.unmodifiableList(authors);
+    }
+
+    /**
+     * Returns the maximum number of annotations of the specified elements.
+     *
+     * @param elements
+     *            the elements to check
+     * @return the maximum number of annotations
+     * @see AnnotationContainer#getUpperBound(Collection)
+     */
+    public int getUpperBound(final Collection<Element> elements) {
+        int maximum = 0;
+        for (Element element : elements) {
+            maximum = Math.max(maximum, element.getNumberOfAnnotations());
+        }
+        return maximum;
+    }
+
+    /**
+     * The number of annotations per priority of a module, package, file, category, type, or author.
+     */
+    public static class Element implements Serializable {
+        private static final long serialVersionUID = 2717604624893946557L;
+
+        private final String name;
+        private final String displayName;
+        private final int high;
+        private final int normal;
+        private final int low;
+
+        Element(final AnnotationContainer container) {
+            this(container, container.getName());
+        }
+
+        Element(final AnnotationContainer container, final String displayName) {
+            name = container.getName();
+            this.displayName = displayName;
+            high = container.getNumberOfHighAnnotations();
+            normal = container.getNumberOfNormalAnnotations();
+            low = container.getNumberOfLowAnnotations();
+        }
+
+        /**
+         * Returns the name of this element. The hash code of the name identifies the element in the links of the
+         * detail pages.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns a readable name of this element.
+         *
+         * @return the readable name
+         */
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * Returns the name of this element without path prefix.
+         *
+         * @return the name without path prefix
+         * @see WorkspaceFile#getShortName()
+         */
+        public String getShortName() {
+            return WorkspaceFile.getShortName(name);
+        }
+
+        /**
+         * Returns the number of annotations of this element.
+         *
+         * @return the number of annotations
+         */
+        public int getNumberOfAnnotations() {
+            return high + normal + low;
+        }
+
+        /**
+         * Returns the number of annotations with priority high.
+         *
+         * @return the number of annotations with priority high
+         */
+        public int getNumberOfHighAnnotations() {
+            return high;
+        }
+
+        /**
+         * Returns the number of annotations with priority normal.
+         *
+         * @return the number of annotations with priority normal
+         */
+        public int getNumberOfNormalAnnotations() {
+            return normal;
+        }
+
+        /**
+         * Returns the number of annotations with priority low.
+         *
+         * @return the number of annotations with priority low
+         */
+        public int getNumberOfLowAnnotations() {
+            return low;
+        }
+
+        /**
+         * Returns the number of annotations with the specified priority.
+         *
+         * @param priority
+         *            the priority
+         * @return the number of annotations with the specified priority
+         */
+        public int getNumberOfAnnotations(final Priority priority) {
+            if (priority == Priority.HIGH) {
+                return high;
+            }
+            else if (priority == Priority.NORMAL) {
+                return normal;
+            }
+            else {
+                return low;
+            }
+        }
+
+        /**
+         * Returns a tooltip showing the distribution of priorities of this element.
+         *
+         * @return a tooltip showing the distribution of priorities
+         * @see AnnotationContainer#getToolTip()
+         */
+        public String getToolTip() {
+            return AnnotationContainer.createToolTip(high, normal, low);
+        }
+    }
+}
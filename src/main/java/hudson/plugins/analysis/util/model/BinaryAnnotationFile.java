@@ -0,0 +1,779 @@
+package hudson.plugins.analysis.util.model;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+
+import hudson.plugins.analysis.util.TreeString;
+import hudson.plugins.analysis.util.TreeStringBuilder;
+
+/**
+ * Binary columnar storage of annotations, an alternative to the XML files of the {@link AnnotationStream}. The file
+ * starts with a table of all distinct strings and the layouts of the stored annotation classes. The persistent fields
+ * of each class are obtained by reflection, like in the XML serialization. Then the fields are stored column by
+ * column: strings and {@link TreeString}s as index into the string table, priorities as ordinal, line ranges as
+ * pairs of lines, and primitive fields (e.g., the build, the columns, or the context hash code) as values. Annotation
+ * classes with fields of other types are not supported: {@link #write(FileAnnotation[])} fails for such classes, so
+ * these annotations are stored in the XML file. The whole file is compressed.
+ *
+ * <p>
+ * When the annotations are read, equal strings share the same instance. Fields that have been removed from an
+ * annotation class since the file has been written are skipped, new fields keep their default value. Only classes
+ * that implement {@link FileAnnotation} are instantiated, a file that refers to any other class is rejected.
+ * </p>
+ *
+ * <p>
+ * The string table and the columns are shared with the {@link CompactAnnotationFormat} that transfers annotations
+ * over a remoting channel.
+ * </p>
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class BinaryAnnotationFile {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /** Identifies a binary annotation file. */
+    private static final int MAGIC = 0x41414e31;
+    /** File format version, increment if the format changes. */
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 8192;
+    static final int NULL = -1;
+
+    private static final byte INT = 0;
+    private static final byte LONG = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte STRING = 8;
+    private static final byte TREE_STRING = 9;
+    private static final byte PRIORITY = 10;
+    private static final byte LINE_RANGES = 11;
+
+    private static final Map<Class<?>, Byte> KINDS = ImmutableMap.<Class<?>, Byte>builder()
+            .put(int.class, INT)
+            .put(long.class, LONG)
+            .put(boolean.class, BOOLEAN)
+            .put(byte.class, BYTE)
+            .put(short.class, SHORT)
+            .put(char.class, CHAR)
+            .put(float.class, FLOAT)
+            .put(double.class, DOUBLE)
+            .put(String.class, STRING)
+            .put(TreeString.class, TREE_STRING)
+            .put(Priority.class, PRIORITY)
+            .put(LineRangeList.class, LINE_RANGES)
+            .build();
+
+    private final File file;
+    private final ClassLoader classLoader;
+
+    /**
+     * Creates a new instance of {@link BinaryAnnotationFile}.
+     *
+     * @param file
+     *            the file to store the annotations in
+     * @param classLoader
+     *            the class loader to resolve the annotation classes with
+     */
+    public BinaryAnnotationFile(final File file, final ClassLoader classLoader) {
+        this.file = file;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Returns the file that stores the annotations.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns whether the file exists.
+     *
+     * @return <code>true</code> if the file exists
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    /**
+     * Writes the specified annotations to the file. The file is replaced atomically.
+     *
+     * @param annotations
+     *            the annotations to write
+     * @throws IOException
+     *             if the annotations could not be written, e.g., if an annotation class has a field of an unsupported
+     *             type
+     */
+    public void write(final FileAnnotation[] annotations) throws IOException {
+        List<Layout> layouts = Lists.newArrayList();
+        Map<Class<?>, Layout> layoutsByClass = Maps.newHashMap();
+        int[] rowLayouts = new int[annotations.length];
+        for (int row = 0; row < annotations.length; row++) {
+            Class<?> type = annotations[row].getClass();
+            Layout layout = layoutsByClass.get(type);
+            if (layout == null) {
+                layout = Layout.of(type);
+                layoutsByClass.put(type, layout);
+                layouts.add(layout);
+            }
+            layout.rows.add(annotations[row]);
+            rowLayouts[row] = layouts.indexOf(layout);
+        }
+
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream columns = new DataOutputStream(buffer);
+        for (Layout layout : layouts) {
+            for (Column column : layout.columns) {
+                for (Object row : layout.rows) {
+                    column.write(columns, row, strings);
+                }
+            }
+        }
+        columns.flush();
+        for (Layout layout : layouts) {
+            layout.addNames(strings);
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(new FileOutputStream(tempFile), deflater, BUFFER_SIZE), BUFFER_SIZE));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(annotations.length);
+                strings.write(output);
+                output.writeInt(layouts.size());
+                for (Layout layout : layouts) {
+                    layout.write(output, strings);
+                }
+                for (int rowLayout : rowLayouts) {
+                    output.writeInt(rowLayout);
+                }
+                buffer.writeTo(output);
+            }
+            finally {
+                output.close();
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            deflater.end();
+            if (tempFile.exists() && !tempFile.delete()) {
+                throw new IOException("Can't delete temporary file " + tempFile);
+            }
+        }
+    }
+
+    /**
+     * Reads the annotations of the file.
+     *
+     * @return the annotations
+     * @throws IOException
+     *             if the annotations could not be read
+     */
+    public FileAnnotation[] read() throws IOException {
+        return readRows(null);
+    }
+
+    /**
+     * Reads the annotations at the specified positions of the file. Only these annotations are created, the values of
+     * all other annotations are skipped.
+     *
+     * @param positions
+     *            the positions of the annotations to read, e.g. obtained from an {@link AnnotationIndex}
+     * @return the annotations, in the order of the specified positions
+     * @throws IOException
+     *             if the annotations could not be read
+     */
+    public FileAnnotation[] read(final int[] positions) throws IOException {
+        return readRows(positions);
+    }
+
+    private FileAnnotation[] readRows(@CheckForNull final int[] positions) throws IOException {
+        Inflater inflater = new Inflater();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new FileInputStream(file), inflater, BUFFER_SIZE), BUFFER_SIZE));
+        try {
+            return read(input, positions);
+        }
+        catch (ClassNotFoundException exception) {
+            throw new IOException("Can't resolve an annotation class of " + file, exception);
+        }
+        catch (InvalidClassException exception) {
+            throw new IOException("Invalid annotation class in " + file, exception);
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new IOException("Can't create the annotations of " + file, exception);
+        }
+        finally {
+            input.close();
+            inflater.end();
+        }
+    }
+
+    private FileAnnotation[] read(final DataInputStream input, @CheckForNull final int[] positions)
+            throws IOException, ReflectiveOperationException {
+        if (input.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a binary annotation file: " + file);
+        }
+        int version = input.readInt();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported version " + version + " of " + file);
+        }
+        int size = input.readInt();
+        StringTable strings = StringTable.read(input);
+        int layoutCount = input.readInt();
+        List<Layout> layouts = Lists.newArrayList();
+        for (int layout = 0; layout < layoutCount; layout++) {
+            layouts.add(Layout.read(input, strings, classLoader));
+        }
+
+        boolean[] isSelected = new boolean[size];
+        if (positions == null) {
+            Arrays.fill(isSelected, true);
+        }
+        else {
+            for (int position : positions) {
+                if (position < 0 || position >= size) {
+                    throw new StreamCorruptedException("Invalid position " + position + " in " + file);
+                }
+                isSelected[position] = true;
+            }
+        }
+
+        ReflectionProvider instantiator = new AnnotationStream().getReflectionProvider();
+        Object[] rows = new Object[size];
+        int[] rowLayouts = new int[size];
+        for (int row = 0; row < size; row++) {
+            rowLayouts[row] = input.readInt();
+            if (rowLayouts[row] < 0 || rowLayouts[row] >= layoutCount) {
+                throw new StreamCorruptedException("Invalid layout index " + rowLayouts[row]);
+            }
+            Layout layout = layouts.get(rowLayouts[row]);
+            if (isSelected[row]) {
+                rows[row] = instantiator.newInstance(layout.type);
+            }
+            layout.rows.add(rows[row]);
+        }
+
+        ColumnReader reader = new ColumnReader(input, strings);
+        for (Layout layout : layouts) {
+            for (Column column : layout.columns) {
+                for (Object row : layout.rows) {
+                    column.read(reader, row);
+                }
+            }
+        }
+
+        if (positions == null) {
+            FileAnnotation[] annotations = new FileAnnotation[size];
+            for (int row = 0; row < size; row++) {
+                annotations[row] = (FileAnnotation)layouts.get(rowLayouts[row]).resolve(rows[row]);
+            }
+            return annotations;
+        }
+        FileAnnotation[] annotations = new FileAnnotation[positions.length];
+        for (int index = 0; index < positions.length; index++) {
+            int row = positions[index];
+            annotations[index] = (FileAnnotation)layouts.get(rowLayouts[row]).resolve(rows[row]);
+        }
+        return annotations;
+    }
+
+    /**
+     * Table of distinct strings. The strings are written with an explicit length, so they are not limited to 64 KB.
+     */
+    static class StringTable {
+        private final Map<String, Integer> indices = Maps.newHashMap();
+        private final List<String> strings = Lists.newArrayList();
+
+        int indexOf(@CheckForNull final String value) {
+            if (value == null) {
+                return NULL;
+            }
+            Integer index = indices.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.add(value);
+                indices.put(value, index);
+            }
+            return index;
+        }
+
+        @CheckForNull
+        String get(final int index) throws IOException {
+            if (index == NULL) {
+                return null;
+            }
+            if (index < 0 || index >= strings.size()) {
+                throw new StreamCorruptedException("Invalid string index " + index);
+            }
+            return strings.get(index);
+        }
+
+        int size() {
+            return strings.size();
+        }
+
+        void write(final DataOutput output) throws IOException {
+            write(output, 0);
+        }
+
+        /**
+         * Writes the strings starting with the specified index, i.e. the strings that have been added since the
+         * table has been written the last time.
+         */
+        void write(final DataOutput output, final int start) throws IOException {
+            output.writeInt(strings.size() - start);
+            for (String value : strings.subList(start, strings.size())) {
+                byte[] bytes = value.getBytes(UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        /**
+         * Appends the strings that have been written by {@link #write(DataOutput, int)}.
+         */
+        void append(final DataInput input) throws IOException {
+            int size = input.readInt();
+            if (size < 0) {
+                throw new StreamCorruptedException("Invalid number of strings " + size);
+            }
+            for (int index = 0; index < size; index++) {
+                int length = input.readInt();
+                if (length < 0) {
+                    throw new StreamCorruptedException("Invalid string length " + length);
+                }
+                byte[] bytes = new byte[length];
+                input.readFully(bytes);
+                strings.add(new String(bytes, UTF_8));
+            }
+        }
+
+        static StringTable read(final DataInput input) throws IOException {
+            StringTable table = new StringTable();
+            table.append(input);
+            return table;
+        }
+    }
+
+    /**
+     * The persistent fields of an annotation class and the annotations of this class.
+     */
+    static class Layout {
+        private final Class<?> type;
+        private final List<Column> columns;
+        final List<Object> rows = Lists.newArrayList();
+        @CheckForNull
+        private final Method readResolve;
+
+        Layout(final Class<?> type, final List<Column> columns) {
+            this.type = type;
+            this.columns = columns;
+            readResolve = findReadResolve(type);
+        }
+
+        /**
+         * Collects the persistent fields of the specified class, starting with the fields of the topmost super class.
+         *
+         * @throws NotSerializableException
+         *             if a field has a type that is not supported
+         */
+        static Layout of(final Class<?> type) throws NotSerializableException {
+            List<Class<?>> hierarchy = Lists.newArrayList();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                hierarchy.add(0, current);
+            }
+            List<Column> columns = Lists.newArrayList();
+            for (Class<?> current : hierarchy) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        Byte kind = KINDS.get(field.getType());
+                        if (kind == null) {
+                            throw new NotSerializableException(type.getName() + ": unsupported type of field "
+                                    + field.getName() + ", " + field.getType().getName());
+                        }
+                        field.setAccessible(true);
+                        columns.add(new Column(field, kind));
+                    }
+                }
+            }
+            return new Layout(type, columns);
+        }
+
+        /**
+         * Returns the {@code readResolve} method that is invoked by the XML serialization as well: the method might be
+         * declared in a super class and might be private.
+         */
+        @CheckForNull
+        private static Method findReadResolve(final Class<?> type) {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                try {
+                    Method method = current.getDeclaredMethod("readResolve");
+                    method.setAccessible(true);
+                    return method;
+                }
+                catch (NoSuchMethodException exception) {
+                    // continue with super class
+                }
+            }
+            return null;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        List<Column> getColumns() {
+            return columns;
+        }
+
+        void addNames(final StringTable strings) {
+            strings.indexOf(type.getName());
+            addFieldNames(strings);
+        }
+
+        void addFieldNames(final StringTable strings) {
+            for (Column column : columns) {
+                strings.indexOf(column.field.getDeclaringClass().getName());
+                strings.indexOf(column.field.getName());
+            }
+        }
+
+        void write(final DataOutput output, final StringTable strings) throws IOException {
+            output.writeInt(strings.indexOf(type.getName()));
+            writeFields(output, strings);
+        }
+
+        void writeFields(final DataOutput output, final StringTable strings) throws IOException {
+            output.writeInt(columns.size());
+            for (Column column : columns) {
+                output.writeInt(strings.indexOf(column.field.getDeclaringClass().getName()));
+                output.writeInt(strings.indexOf(column.field.getName()));
+                output.writeByte(column.kind);
+            }
+        }
+
+        static Layout read(final DataInput input, final StringTable strings, final ClassLoader classLoader)
+                throws IOException, ClassNotFoundException {
+            String name = strings.get(input.readInt());
+            return readFields(input, strings, Class.forName(name, false, classLoader));
+        }
+
+        /**
+         * Reads the fields of the specified class that have been written by {@link #writeFields}.
+         *
+         * @throws InvalidClassException
+         *             if the class is not an annotation class or if the type of a field has been changed
+         */
+        static Layout readFields(final DataInput input, final StringTable strings, final Class<?> type)
+                throws IOException {
+            if (!FileAnnotation.class.isAssignableFrom(type)) {
+                throw new InvalidClassException(type.getName(), "Not an annotation class");
+            }
+            int size = input.readInt();
+            if (size < 0) {
+                throw new StreamCorruptedException("Invalid number of fields " + size);
+            }
+            List<Column> columns = Lists.newArrayList();
+            for (int column = 0; column < size; column++) {
+                String declaringClass = strings.get(input.readInt());
+                String fieldName = strings.get(input.readInt());
+                byte kind = input.readByte();
+                if (!KINDS.containsValue(kind)) {
+                    throw new StreamCorruptedException("Invalid column type " + kind);
+                }
+                Field field = findField(type, declaringClass, fieldName);
+                if (field != null && !Byte.valueOf(kind).equals(KINDS.get(field.getType()))) {
+                    throw new InvalidClassException(type.getName(), "Incompatible type of field " + fieldName);
+                }
+                columns.add(new Column(field, kind));
+            }
+            return new Layout(type, columns);
+        }
+
+        @CheckForNull
+        private static Field findField(final Class<?> type, final String declaringClass, final String name) {
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                if (current.getName().equals(declaringClass)) {
+                    try {
+                        Field field = current.getDeclaredField(name);
+                        if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                            return null;
+                        }
+                        field.setAccessible(true);
+                        return field;
+                    }
+                    catch (NoSuchFieldException exception) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        Object resolve(final Object row) throws ReflectiveOperationException {
+            if (readResolve == null) {
+                return row;
+            }
+            try {
+                return readResolve.invoke(row);
+            }
+            catch (InvocationTargetException exception) {
+                throw new ReflectiveOperationException("readResolve of " + type.getName() + " failed",
+                        exception.getCause());
+            }
+        }
+    }
+
+    /**
+     * A persistent field of an annotation class.
+     */
+    static class Column {
+        /** The field, or <code>null</code> if the field has been removed since the file has been written. */
+        @CheckForNull
+        private final Field field;
+        private final byte kind;
+
+        Column(@CheckForNull final Field field, final byte kind) {
+            this.field = field;
+            this.kind = kind;
+        }
+
+        @SuppressWarnings("PMD.CyclomaticComplexity")
+        void write(final DataOutput output, final Object row, final StringTable strings) throws IOException {
+            Object value;
+            try {
+                value = field.get(row);
+            }
+            catch (IllegalAccessException exception) {
+                throw new IOException("Can't read field " + field, exception);
+            }
+            switch (kind) {
+                case INT:
+                    output.writeInt((Integer)value);
+                    break;
+                case LONG:
+                    output.writeLong((Long)value);
+                    break;
+                case BOOLEAN:
+                    output.writeBoolean((Boolean)value);
+                    break;
+                case BYTE:
+                    output.writeByte((Byte)value);
+                    break;
+                case SHORT:
+                    output.writeShort((Short)value);
+                    break;
+                case CHAR:
+                    output.writeChar((Character)value);
+                    break;
+                case FLOAT:
+                    output.writeFloat((Float)value);
+                    break;
+                case DOUBLE:
+                    output.writeDouble((Double)value);
+                    break;
+                case STRING:
+                    output.writeInt(strings.indexOf((String)value));
+                    break;
+                case TREE_STRING:
+                    output.writeInt(strings.indexOf(value == null ? null : value.toString()));
+                    break;
+                case PRIORITY:
+                    output.writeByte(value == null ? NULL : ((Priority)value).ordinal());
+                    break;
+                case LINE_RANGES:
+                    writeLineRanges(output, (LineRangeList)value);
+                    break;
+                default:
+                    throw new NotSerializableException("Unsupported type of field " + field);
+            }
+        }
+
+        private void writeLineRanges(final DataOutput output, @CheckForNull final LineRangeList lineRanges)
+                throws IOException {
+            if (lineRanges == null) {
+                output.writeInt(NULL);
+            }
+            else {
+                output.writeInt(lineRanges.size());
+                for (LineRange lineRange : lineRanges) {
+                    output.writeInt(lineRange.getStart());
+                    output.writeInt(lineRange.getEnd());
+                }
+            }
+        }
+
+        /**
+         * Reads the value of the specified row. If the row is not selected, then the value is skipped.
+         */
+        void read(final ColumnReader reader, @CheckForNull final Object row)
+                throws IOException, ReflectiveOperationException {
+            if (row == null) {
+                reader.skip(kind);
+            }
+            else {
+                Object value = reader.read(kind);
+                if (field != null) {
+                    field.set(row, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the values of the columns. Equal strings and tree strings share the same instance.
+     */
+    static class ColumnReader {
+        private final DataInput input;
+        private final StringTable strings;
+        private final TreeStringBuilder builder = new TreeStringBuilder();
+        private TreeString[] treeStrings;
+
+        ColumnReader(final DataInput input, final StringTable strings) {
+            this.input = input;
+            this.strings = strings;
+            treeStrings = new TreeString[strings.size()];
+        }
+
+        @SuppressWarnings("PMD.CyclomaticComplexity")
+        Object read(final byte kind) throws IOException {
+            switch (kind) {
+                case INT:
+                    return input.readInt();
+                case LONG:
+                    return input.readLong();
+                case BOOLEAN:
+                    return input.readBoolean();
+                case BYTE:
+                    return input.readByte();
+                case SHORT:
+                    return input.readShort();
+                case CHAR:
+                    return input.readChar();
+                case FLOAT:
+                    return input.readFloat();
+                case DOUBLE:
+                    return input.readDouble();
+                case STRING:
+                    return strings.get(input.readInt());
+                case TREE_STRING:
+                    return readTreeString(input.readInt());
+                case PRIORITY:
+                    return readPriority(input.readByte());
+                case LINE_RANGES:
+                    return readLineRanges();
+                default:
+                    throw new StreamCorruptedException("Invalid column type " + kind);
+            }
+        }
+
+        /**
+         * Skips a value without creating it.
+         */
+        void skip(final byte kind) throws IOException {
+            switch (kind) {
+                case TREE_STRING:
+                    input.readInt();
+                    break;
+                case LINE_RANGES:
+                    int ranges = input.readInt();
+                    for (int value = 0; value < ranges * 2; value++) {
+                        input.readInt();
+                    }
+                    break;
+                default:
+                    read(kind);
+                    break;
+            }
+        }
+
+        @CheckForNull
+        private TreeString readTreeString(final int index) throws IOException {
+            String value = strings.get(index);
+            if (value == null) {
+                return null;
+            }
+            if (index >= treeStrings.length) {
+                treeStrings = Arrays.copyOf(treeStrings, strings.size());
+            }
+            if (treeStrings[index] == null) {
+                treeStrings[index] = builder.intern(value);
+            }
+            return treeStrings[index];
+        }
+
+        @CheckForNull
+        private Priority readPriority(final byte ordinal) throws IOException {
+            if (ordinal == NULL) {
+                return null;
+            }
+            Priority[] priorities = Priority.values();
+            if (ordinal < 0 || ordinal >= priorities.length) {
+                throw new StreamCorruptedException("Invalid priority " + ordinal);
+            }
+            return priorities[ordinal];
+        }
+
+        @CheckForNull
+        private LineRangeList readLineRanges() throws IOException {
+            int size = input.readInt();
+            if (size == NULL) {
+                return null;
+            }
+            LineRangeList lineRanges = new LineRangeList(size);
+            for (int range = 0; range < size; range++) {
+                lineRanges.add(new LineRange(input.readInt(), input.readInt()));
+            }
+            return lineRanges;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+
+import hudson.plugins.analysis.util.TreeString;
+import hudson.plugins.analysis.util.model.BinaryAnnotationFile.Column;
+import hudson.plugins.analysis.util.model.BinaryAnnotationFile.ColumnReader;
+import hudson.plugins.analysis.util.model.BinaryAnnotationFile.Layout;
+import hudson.plugins.analysis.util.model.BinaryAnnotationFile.StringTable;
+
+/**
+ * Compact serialization of annotations that are transferred over a remoting channel, e.g. the annotations of a
+ * parser result. The annotations are written in chunks of {@value #CHUNK_SIZE} annotations, using the columns of the
+ * {@link BinaryAnnotationFile}:
+ * <ul>
+ * <li>Each chunk starts with the strings that are new in this chunk. Strings and {@link TreeString}s are written as
+ * index into this string table, so each distinct file name or message is written (and allocated on the receiving
+ * side) only once.</li>
+ * <li>The fields of the annotations are written column by column, integer values as variable length integers.</li>
+ * </ul>
+ * The annotation classes are written as {@link Class} objects to the object stream of the channel. So they are
+ * resolved and filtered by the channel, the receiving side only creates instances of classes that implement
+ * {@link FileAnnotation}. Annotations of classes with fields that are not supported by the columns are written as
+ * ordinary objects.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public final class CompactAnnotationFormat {
+    /** Number of annotations that are written as a chunk. */
+    private static final int CHUNK_SIZE = 1000;
+
+    /**
+     * Writes the specified annotations to the output stream. The annotations are not modified.
+     *
+     * @param output
+     *            the object stream of the channel
+     * @param annotations
+     *            the annotations to write
+     * @throws IOException
+     *             if the annotations could not be written
+     */
+    public static void write(final ObjectOutputStream output, final Collection<FileAnnotation> annotations)
+            throws IOException {
+        VarIntOutput values = new VarIntOutput(output);
+        values.writeInt(annotations.size());
+
+        StringTable strings = new StringTable();
+        List<Layout> layouts = Lists.newArrayList();
+        Map<Class<?>, Layout> layoutsByClass = Maps.newHashMap();
+        List<FileAnnotation> chunk = Lists.newArrayListWithCapacity(CHUNK_SIZE);
+        for (FileAnnotation annotation : annotations) {
+            chunk.add(annotation);
+            if (chunk.size() == CHUNK_SIZE) {
+                writeChunk(output, chunk, strings, layouts, layoutsByClass);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(output, chunk, strings, layouts, layoutsByClass);
+        }
+    }
+
+    private static void writeChunk(final ObjectOutputStream output, final List<FileAnnotation> chunk,
+            final StringTable strings, final List<Layout> layouts, final Map<Class<?>, Layout> layoutsByClass)
+            throws IOException {
+        int knownLayouts = layouts.size();
+        List<Layout> chunkLayouts = Lists.newArrayList();
+        List<FileAnnotation> objects = Lists.newArrayList();
+        int[] rowLayouts = new int[chunk.size()];
+        for (int row = 0; row < chunk.size(); row++) {
+            FileAnnotation annotation = chunk.get(row);
+            Class<?> type = annotation.getClass();
+            if (!layoutsByClass.containsKey(type)) {
+                layoutsByClass.put(type, createLayout(type));
+                if (layoutsByClass.get(type) != null) {
+                    layouts.add(layoutsByClass.get(type));
+                }
+            }
+            Layout layout = layoutsByClass.get(type);
+            if (layout == null) {
+                objects.add(annotation);
+                rowLayouts[row] = BinaryAnnotationFile.NULL;
+            }
+            else {
+                if (layout.rows.isEmpty()) {
+                    chunkLayouts.add(layout);
+                }
+                layout.rows.add(annotation);
+                rowLayouts[row] = layouts.indexOf(layout);
+            }
+        }
+
+        int knownStrings = strings.size();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        VarIntOutput columns = new VarIntOutput(new DataOutputStream(buffer));
+        for (Layout layout : chunkLayouts) {
+            for (Column column : layout.getColumns()) {
+                for (Object row : layout.rows) {
+                    column.write(columns, row, strings);
+                }
+            }
+            layout.rows.clear();
+        }
+        List<Layout> newLayouts = layouts.subList(knownLayouts, layouts.size());
+        for (Layout layout : newLayouts) {
+            layout.addFieldNames(strings);
+        }
+
+        VarIntOutput values = new VarIntOutput(output);
+        values.writeInt(newLayouts.size());
+        for (Layout layout : newLayouts) {
+            output.writeObject(layout.getType());
+        }
+        strings.write(values, knownStrings);
+        for (Layout layout : newLayouts) {
+            layout.writeFields(values, strings);
+        }
+        values.writeInt(chunk.size());
+        for (int rowLayout : rowLayouts) {
+            values.writeInt(rowLayout);
+        }
+        columns.flush();
+        buffer.writeTo(output);
+        for (FileAnnotation annotation : objects) {
+            output.writeObject(annotation);
+        }
+    }
+
+    /**
+     * Returns the layout of the specified annotation class, or <code>null</code> if the class has fields that are
+     * not supported by the columns.
+     */
+    private static Layout createLayout(final Class<?> type) {
+        try {
+            return Layout.of(type);
+        }
+        catch (IOException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the annotations that have been written by {@link #write(ObjectOutputStream, Collection)}.
+     *
+     * @param input
+     *            the object stream of the channel
+     * @param annotations
+     *            the collection to add the annotations to
+     * @throws IOException
+     *             if the annotations could not be read
+     * @throws ClassNotFoundException
+     *             if an annotation class could not be resolved
+     */
+    public static void read(final ObjectInputStream input, final Collection<FileAnnotation> annotations)
+            throws IOException, ClassNotFoundException {
+        VarIntInput values = new VarIntInput(input);
+        int size = values.readInt();
+        if (size < 0) {
+            throw new StreamCorruptedException("Invalid number of annotations " + size);
+        }
+
+        StringTable strings = new StringTable();
+        List<Layout> layouts = Lists.newArrayList();
+        ColumnReader reader = new ColumnReader(values, strings);
+        ReflectionProvider instantiator = new AnnotationStream().getReflectionProvider();
+        int remaining = size;
+        while (remaining > 0) {
+            remaining -= readChunk(input, values, strings, layouts, reader, instantiator, annotations);
+        }
+    }
+
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private static int readChunk(final ObjectInputStream input, final VarIntInput values, final StringTable strings,
+            final List<Layout> layouts, final ColumnReader reader, final ReflectionProvider instantiator,
+            final Collection<FileAnnotation> annotations) throws IOException, ClassNotFoundException {
+        int layoutCount = values.readInt();
+        if (layoutCount < 0) {
+            throw new StreamCorruptedException("Invalid number of annotation classes " + layoutCount);
+        }
+        List<Class<?>> types = Lists.newArrayList();
+        for (int layout = 0; layout < layoutCount; layout++) {
+            Object type = input.readObject();
+            if (!(type instanceof Class)) {
+                throw new StreamCorruptedException("Annotation class expected: " + type);
+            }
+            types.add((Class<?>)type);
+        }
+        strings.append(values);
+        for (Class<?> type : types) {
+            layouts.add(Layout.readFields(values, strings, type));
+        }
+
+        int size = values.readInt();
+        if (size <= 0 || size > CHUNK_SIZE) {
+            throw new StreamCorruptedException("Invalid chunk size " + size);
+        }
+        Object[] rows = new Object[size];
+        Layout[] rowLayouts = new Layout[size];
+        List<Layout> chunkLayouts = Lists.newArrayList();
+        for (int row = 0; row < size; row++) {
+            int rowLayout = values.readInt();
+            if (rowLayout != BinaryAnnotationFile.NULL) {
+                if (rowLayout < 0 || rowLayout >= layouts.size()) {
+                    throw new StreamCorruptedException("Invalid layout index " + rowLayout);
+                }
+                rowLayouts[row] = layouts.get(rowLayout);
+                rows[row] = instantiator.newInstance(rowLayouts[row].getType());
+                if (rowLayouts[row].rows.isEmpty()) {
+                    chunkLayouts.add(rowLayouts[row]);
+                }
+                rowLayouts[row].rows.add(rows[row]);
+            }
+        }
+        try {
+            for (Layout layout : chunkLayouts) {
+                for (Column column : layout.getColumns()) {
+                    for (Object row : layout.rows) {
+                        column.read(reader, row);
+                    }
+                }
+                layout.rows.clear();
+            }
+            for (int row = 0; row < size; row++) {
+                if (rowLayouts[row] == null) {
+                    annotations.add(readObject(input));
+                }
+                else {
+                    annotations.add((FileAnnotation)rowLayouts[row].resolve(rows[row]));
+                }
+            }
+        }
+        catch (ReflectiveOperationException exception) {
+            throw new IOException("Can't create the annotations", exception);
+        }
+        return size;
+    }
+
+    private static FileAnnotation readObject(final ObjectInputStream input)
+            throws IOException, ClassNotFoundException {
+        Object annotation = input.readObject();
+        if (annotation instanceof FileAnnotation) {
+            return (FileAnnotation)annotation;
+        }
+        if (annotation == null) {
+            throw new InvalidObjectException("Annotation expected");
+        }
+        throw new InvalidClassException(annotation.getClass().getName(), "Not an annotation class");
+    }
+
+    private CompactAnnotationFormat() {
+        // prevents instantiation
+    }
+
+    /**
+     * Writes integers and longs as variable length integers (in zig-zag encoding, so small negative values are short
+     * as well), all other values are written unchanged.
+     */
+    private static class VarIntOutput implements DataOutput {
+        private final DataOutput output;
+
+        VarIntOutput(final DataOutput output) {
+            this.output = output;
+        }
+
+        void flush() throws IOException {
+            if (output instanceof DataOutputStream) {
+                ((DataOutputStream)output).flush();
+            }
+        }
+
+        @Override
+        public void writeInt(final int value) throws IOException {
+            writeLong(value);
+        }
+
+        @Override
+        public void writeLong(final long value) throws IOException {
+            long zigZag = (value << 1) ^ (value >> (Long.SIZE - 1));
+            while ((zigZag & ~0x7FL) != 0) {
+                output.writeByte((int)(zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            output.writeByte((int)zigZag);
+        }
+
+        @Override
+        public void write(final int value) throws IOException {
+            output.write(value);
+        }
+
+        @Override
+        public void write(final byte[] bytes) throws IOException {
+            output.write(bytes);
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            output.write(bytes, offset, length);
+        }
+
+        @Override
+        public void writeBoolean(final boolean value) throws IOException {
+            output.writeBoolean(value);
+        }
+
+        @Override
+        public void writeByte(final int value) throws IOException {
+            output.writeByte(value);
+        }
+
+        @Override
+        public void writeShort(final int value) throws IOException {
+            output.writeShort(value);
+        }
+
+        @Override
+        public void writeChar(final int value) throws IOException {
+            output.writeChar(value);
+        }
+
+        @Override
+        public void writeFloat(final float value) throws IOException {
+            output.writeFloat(value);
+        }
+
+        @Override
+        public void writeDouble(final double value) throws IOException {
+            output.writeDouble(value);
+        }
+
+        @Override
+        public void writeBytes(final String value) throws IOException {
+            output.writeBytes(value);
+        }
+
+        @Override
+        public void writeChars(final String value) throws IOException {
+            output.writeChars(value);
+        }
+
+        @Override
+        public void writeUTF(final String value) throws IOException {
+            output.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads the values that have been written by a {@link VarIntOutput}.
+     */
+    private static class VarIntInput implements DataInput {
+        private static final int MAXIMUM_SHIFT = 63;
+
+        private final DataInput input;
+
+        VarIntInput(final DataInput input) {
+            this.input = input;
+        }
+
+        @Override
+        public int readInt() throws IOException {
+            long value = readLong();
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new StreamCorruptedException("Integer expected: " + value);
+            }
+            return (int)value;
+        }
+
+        @Override
+        public long readLong() throws IOException {
+            long zigZag = 0;
+            for (int shift = 0; shift <= MAXIMUM_SHIFT; shift += 7) {
+                int current = input.readByte();
+                zigZag |= (long)(current & 0x7F) << shift;
+                if ((current & 0x80) == 0) {
+                    return (zigZag >>> 1) ^ -(zigZag & 1);
+                }
+            }
+            throw new StreamCorruptedException("Invalid variable length integer");
+        }
+
+        @Override
+        public void readFully(final byte[] bytes) throws IOException {
+            input.readFully(bytes);
+        }
+
+        @Override
+        public void readFully(final byte[] bytes, final int offset, final int length) throws IOException {
+            input.readFully(bytes, offset, length);
+        }
+
+        @Override
+        public int skipBytes(final int length) throws IOException {
+            return input.skipBytes(length);
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException {
+            return input.readBoolean();
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            return input.readByte();
+        }
+
+        @Override
+        public int readUnsignedByte() throws IOException {
+            return input.readUnsignedByte();
+        }
+
+        @Override
+        public short readShort() throws IOException {
+            return input.readShort();
+        }
+
+        @Override
+        public int readUnsignedShort() throws IOException {
+            return input.readUnsignedShort();
+        }
+
+        @Override
+        public char readChar() throws IOException {
+            return input.readChar();
+        }
+
+        @Override
+        public float readFloat() throws IOException {
+            return input.readFloat();
+        }
+
+        @Override
+        public double readDouble() throws IOException {
+            return input.readDouble();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public String readLine() throws IOException {
+            return input.readLine();
+        }
+
+        @Override
+        public String readUTF() throws IOException {
+            return input.readUTF();
+        }
+    }
+}
@@ -70,6 +70,12 @@ public interface FileAnnotation extends Comparable<FileAnnotation> {
      * Returns a file name for a temporary file that will hold the contents of the source. This temporary file is used
      * in a master - slave scenario where the original file remains on the slave while this temporary file is
      * transferred to the master.
+     * <p>
+     * Since 1.97 the copy is moved to the {@link hudson.plugins.analysis.util.SourceStore} of the job when the build
+     * is finished. Then the absolute path of the stored copy in the folder of the job is returned, i.e., the file is
+     * not located in the folder of the build and might be shared with other builds. Callers must not modify or delete
+     * this file. Each call reads the index of the stored copies of the build if the index has been changed.
+     * </p>
      *
      * @param owner the owner that provides the root directory where the files are stored
      * @return the temporary name
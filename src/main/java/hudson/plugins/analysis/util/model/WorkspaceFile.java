@@ -31,11 +31,22 @@ public class WorkspaceFile extends AnnotationContainer {
      * @return a readable name of this workspace file.
      */
     public String getShortName() {
-        if (getName().contains(UNIX_SLASH)) {
-            return StringUtils.substringAfterLast(getName(), UNIX_SLASH);
+        return getShortName(getName());
+    }
+
+    /**
+     * Returns a readable name of the specified file name without path prefix.
+     *
+     * @param fileName
+     *            the file name with UNIX path separators
+     * @return a readable name of the file
+     */
+    static String getShortName(final String fileName) {
+        if (fileName.contains(UNIX_SLASH)) {
+            return StringUtils.substringAfterLast(fileName, UNIX_SLASH);
         }
         else {
-            return getName();
+            return fileName;
         }
     }
 
@@ -60,7 +71,19 @@ public class WorkspaceFile extends AnnotationContainer {
      * @return the temporary name
      */
     public String getTempName() {
-        return Integer.toHexString(getName().hashCode()) + ".tmp";
+        return createTempName(getName());
+    }
+
+    /**
+     * Returns a file name for a temporary file that will hold the contents of the specified source file.
+     *
+     * @param fileName
+     *            absolute path of the source file, using '/' as separator
+     * @return the temporary name
+     * @since 1.97
+     */
+    public static String createTempName(final String fileName) {
+        return Integer.toHexString(fileName.hashCode()) + ".tmp";
     }
 
     @Override
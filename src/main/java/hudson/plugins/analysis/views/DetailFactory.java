@@ -1,11 +1,14 @@
 package hudson.plugins.analysis.views;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
 import hudson.model.AbstractBuild;
@@ -16,6 +19,7 @@ import hudson.plugins.analysis.core.BuildResult;
 import hudson.plugins.analysis.core.ResultAction;
 import hudson.plugins.analysis.util.Compatibility;
 import hudson.plugins.analysis.util.model.AnnotationContainer;
+import hudson.plugins.analysis.util.model.AnnotationIndex;
 import hudson.plugins.analysis.util.model.AnnotationsLabelProvider;
 import hudson.plugins.analysis.util.model.DefaultAnnotationContainer;
 import hudson.plugins.analysis.util.model.FileAnnotation;
@@ -32,6 +36,9 @@ public class DetailFactory {
     private static final DetailFactory DEFAULT_DETAIL_BUILDER = new DetailFactory();
     /** Maps plug-ins to detail builders. */
     private static Map<Class<? extends ResultAction<? extends BuildResult>>, DetailFactory> factories = Maps.newHashMap();
+    /** Tabs that show only the numbers of annotations. */
+    private static final Set<String> SUMMARY_TABS = ImmutableSet.of("tab.modules", "tab.packages", "tab.files",
+            "tab.categories", "tab.types", "tab.authors");
 
     /**
      * Creates a new detail builder.
@@ -203,6 +210,82 @@ public class DetailFactory {
         }
     }
 
+    /**
+     * Returns the dynamic tab with the specified link if the tab shows just the numbers of annotations of the
+     * modules, packages, files, categories, types, or authors. Such a tab is rendered with the
+     * {@link BuildResult#getAnnotationSummary() summary} of the result, without loading the annotations of the build.
+     * Factories that create their own details are not supported.
+     *
+     * @param link
+     *            the link to identify the sub page to show
+     * @param result
+     *            the result to show the details for
+     * @return the tab, or <code>null</code> if the tab requires the annotations
+     * @since 1.97
+     */
+    @CheckForNull
+    public Object createSummaryDetails(final String link, final BuildResult result) {
+        if (SUMMARY_TABS.contains(link) && !isCustomized()) {
+            return new SummaryTabDetail(result.getOwner(), result.getAnnotationSummary(), createGenericTabUrl(link));
+        }
+        return null;
+    }
+
+    private boolean isCustomized() {
+        return Compatibility.isOverridden(DetailFactory.class, getClass(), "createTabDetail",
+                Run.class, Collection.class, String.class, String.class)
+                || Compatibility.isOverridden(DetailFactory.class, getClass(), "createTabDetail",
+                AbstractBuild.class, Collection.class, String.class, String.class)
+                || Compatibility.isOverridden(DetailFactory.class, getClass(), "createDetails",
+                String.class, Run.class, AnnotationContainer.class, String.class, String.class)
+                || Compatibility.isOverridden(DetailFactory.class, getClass(), "createDetails",
+                String.class, AbstractBuild.class, AnnotationContainer.class, String.class, String.class);
+    }
+
+    /**
+     * Returns the positions of the annotations that are shown by the detail page with the specified link. Then only
+     * these annotations need to be read from the data file of a build in order to create the detail page with
+     * {@link #createDetails(String, Run, AnnotationContainer, String, String)}. Factories that show additional
+     * annotations for one of these links need to override this method.
+     *
+     * @param link
+     *            the link to identify the sub page to show
+     * @param index
+     *            the index of the data file
+     * @return the positions of the annotations, or <code>null</code> if the detail page requires all annotations
+     * @since 1.97
+     */
+    @CheckForNull
+    public int[] getPositions(final String link, final AnnotationIndex index) {
+        if (link.startsWith("module.")) {
+            return index.getModule(createHashCode(link, "module."));
+        }
+        else if (link.startsWith("package.")) {
+            return index.getPackage(createHashCode(link, "package."));
+        }
+        else if (link.startsWith("file.")) {
+            return index.getFile(createHashCode(link, "file."));
+        }
+        else if (link.startsWith("category.")) {
+            return index.getCategory(createHashCode(link, "category."));
+        }
+        else if (link.startsWith("type.")) {
+            return index.getType(createHashCode(link, "type."));
+        }
+        else if (link.startsWith("author.")) {
+            return index.getAuthor(createHashCode(link, "author."));
+        }
+        else if (link.startsWith("source.")) {
+            try {
+                return index.getAnnotation(Long.parseLong(StringUtils.substringAfter(link, "source.")));
+            }
+            catch (NumberFormatException exception) {
+                return null; // let the detail page handle the broken URL
+            }
+        }
+        return null;
+    }
+
     /**
      * Creates a generic detail tab with the specified link.
      *
@@ -27,6 +27,7 @@ import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.model.ModelObject;
 
+import hudson.plugins.analysis.util.CompressedFiles;
 import hudson.plugins.analysis.util.EncodingValidator;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.LineRange;
@@ -84,7 +85,7 @@ public class SourceDetail implements ModelObject {
         try {
             File tempFile = new File(annotation.getTempName(owner));
             if (tempFile.exists()) {
-                file = new FileInputStream(tempFile);
+                file = CompressedFiles.open(tempFile);
             }
             else {
                 file = new FileInputStream(new File(annotation.getFileName()));
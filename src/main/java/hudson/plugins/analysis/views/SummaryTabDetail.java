@@ -0,0 +1,73 @@
+package hudson.plugins.analysis.views;
+
+import javax.annotation.Nonnull;
+
+import hudson.model.ModelObject;
+import hudson.model.Run;
+
+import hudson.plugins.analysis.util.model.AnnotationSummary;
+
+/**
+ * Result object representing a dynamic tab that shows the modules, packages, files, categories, types, or authors of a
+ * build. The tab is rendered with the pages of {@link TabDetail}, but the numbers of annotations are obtained from the
+ * {@link AnnotationSummary} of the build, so the annotations of the build are not loaded.
+ *
+ * @author agent
+ * @since 1.97
+ */
+public class SummaryTabDetail implements ModelObject {
+    /** Current build as owner of this object. */
+    private final Run<?, ?> owner;
+    /** The summary of the annotations of the build. */
+    private final AnnotationSummary summary;
+    /** URL of the content to load. */
+    private final String url;
+
+    /**
+     * Creates a new instance of {@link SummaryTabDetail}.
+     *
+     * @param owner
+     *            current build as owner of this object
+     * @param summary
+     *            the summary of the annotations of the build
+     * @param url
+     *            URL to render the content of this tab
+     */
+    public SummaryTabDetail(@Nonnull final Run<?, ?> owner, final AnnotationSummary summary, final String url) {
+        this.owner = owner;
+        this.summary = summary;
+        this.url = url;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "NOT USED";
+    }
+
+    /**
+     * Returns the build as owner of this object.
+     *
+     * @return the owner
+     */
+    public Run<?, ?> getOwner() {
+        return owner;
+    }
+
+    /**
+     * Returns the summary that provides the numbers of annotations of this tab.
+     *
+     * @return the summary
+     */
+    public AnnotationSummary getContainer() {
+        return summary;
+    }
+
+    /**
+     * Returns the URL that renders the content of this tab.
+     *
+     * @return the URL
+     */
+    public String getUrl() {
+        return url;
+    }
+}
@@ -0,0 +1,96 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link AbstractAnnotationParser}.
+ *
+ * @author agent
+ */
+public class AbstractAnnotationParserTest {
+    private static final String ENCODING = "UTF-8";
+
+    /** Temporary folder for the report and source files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the package names are detected once per parse call, so that a changed source file is read again
+     * by the next call of the same parser instance.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldDetectPackageNamesForEachParseCall() throws Exception {
+        File source = folder.newFile("Source.java");
+        File report = folder.newFile("report.txt");
+        PackageParser parser = new PackageParser(source.getAbsolutePath());
+
+        FileUtils.writeStringToFile(source, "package before;\n", ENCODING);
+        assertEquals("Wrong package: ", "before", getPackageName(parser.parse(report, "module")));
+
+        FileUtils.writeStringToFile(source, "package after;\n", ENCODING);
+        assertEquals("Wrong package: ", "after", getPackageName(parser.parse(report, "module")));
+    }
+
+    private String getPackageName(final Collection<FileAnnotation> annotations) {
+        assertEquals("Wrong number of annotations: ", 1, annotations.size());
+        return annotations.iterator().next().getPackageName();
+    }
+
+    /**
+     * Creates one warning for a source file and detects the package name twice.
+     */
+    private static class PackageParser extends AbstractAnnotationParser {
+        private static final long serialVersionUID = -6017465362386386916L;
+
+        private final String fileName;
+
+        PackageParser(final String fileName) {
+            super(ENCODING);
+
+            this.fileName = fileName;
+        }
+
+        @Override
+        public Collection<FileAnnotation> parse(final InputStream file, final String moduleName) {
+            Warning warning = new Warning();
+            warning.setFileName(fileName);
+            assertEquals("Wrong cached package: ", detectPackageName(fileName), detectPackageName(fileName));
+            warning.setPackageName(detectPackageName(fileName));
+            return Collections.<FileAnnotation>singletonList(warning);
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 1822536403217163294L;
+
+        Warning() {
+            super(Priority.NORMAL, "message", 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.JavaProject;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the delta results of the class {@link BuildResult}: the annotations of a build are stored relative to the
+ * annotations of the reference build. Additionally tests that the fixed warnings are stored without loading the
+ * reference build again.
+ *
+ * @author agent
+ */
+public class BuildResultDeltaTest {
+    private static final String DATA_FILE = "warnings.xml";
+    private static final String DELTA_FILE = "warnings-delta.xml";
+    private static final String FIXED_FILE = "warnings-fixed.xml";
+    private static final String KEPT_FILE_PREFIX = "warnings-reference-";
+    private static final int WARNINGS = 10;
+
+    /** Temporary folder for the build folders. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Job<?, ?> job;
+    private PerformanceSettings settings;
+
+    /**
+     * Creates the job and enables the delta results.
+     */
+    @Before
+    public void createJob() {
+        job = mock(Job.class);
+        settings = mock(PerformanceSettings.class);
+        when(settings.getDeltaResults()).thenReturn(true);
+        when(settings.getBinaryResults()).thenReturn(false);
+    }
+
+    /**
+     * Verifies that the annotations of a chain of delta results are restored with the keys of each build and that the
+     * restored annotations are not shared with the annotations of the reference build.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldRestoreChainOfDeltas() throws IOException {
+        List<FileAnnotation> first = createWarnings(0, WARNINGS);
+        List<FileAnnotation> second = createWarnings(0, WARNINGS + 1);
+        List<FileAnnotation> third = createWarnings(1, WARNINGS + 2);
+
+        TestResult firstResult = createResult(1, null, first);
+        TestResult secondResult = createResult(2, firstResult, second);
+        TestResult thirdResult = createResult(3, secondResult, third);
+
+        assertStoredAsSnapshot(firstResult);
+        assertStoredAsDelta(secondResult);
+        assertStoredAsDelta(thirdResult);
+        assertKept(thirdResult, "1.xml", "2-delta.xml");
+
+        Map<Integer, FileAnnotation> secondRestored = assertRestored(secondResult, second);
+        Map<Integer, FileAnnotation> thirdRestored = assertRestored(thirdResult, third);
+        for (int line = 1; line <= WARNINGS; line++) {
+            assertNotSame("Annotation shared with reference build: ", secondRestored.get(line),
+                    thirdRestored.get(line));
+        }
+        assertRestored(secondResult, second);
+    }
+
+    /**
+     * Verifies that all annotations are stored if the chain of deltas would get longer than the maximum.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldLimitChainOfDeltas() throws IOException {
+        List<FileAnnotation> annotations = createWarnings(0, WARNINGS);
+        TestResult reference = createResult(1, null, annotations);
+        assertStoredAsSnapshot(reference);
+
+        for (int number = 2; number <= BuildResult.MAXIMUM_DELTA_CHAIN + 1; number++) {
+            annotations = createWarnings(0, WARNINGS);
+            reference = createResult(number, reference, annotations);
+            assertStoredAsDelta(reference);
+        }
+        assertRestored(reference, annotations);
+
+        List<FileAnnotation> last = createWarnings(0, WARNINGS);
+        TestResult result = createResult(BuildResult.MAXIMUM_DELTA_CHAIN + 2, reference, last);
+
+        assertStoredAsSnapshot(result);
+        assertRestored(result, last);
+    }
+
+    /**
+     * Verifies that the builds that store their annotations relative to a deleted build store all of their
+     * annotations before the build is deleted.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldMaterializeDependentsOfDeletedBuild() throws IOException {
+        List<FileAnnotation> first = createWarnings(0, WARNINGS);
+        List<FileAnnotation> second = createWarnings(0, WARNINGS + 1);
+        List<FileAnnotation> third = createWarnings(0, WARNINGS + 2);
+
+        TestResult firstResult = createResult(1, null, first);
+        TestResult secondResult = createResult(2, firstResult, second);
+        TestResult thirdResult = createResult(3, secondResult, third);
+
+        new BuildResult.Cleaner().onDeleted(firstResult.getOwner());
+        delete(firstResult);
+
+        assertStoredAsSnapshot(secondResult);
+        assertTrue("Kept files not deleted: ", getKeptFiles(secondResult).isEmpty());
+        assertStoredAsDelta(thirdResult);
+        assertRestored(secondResult, second);
+        assertRestored(thirdResult, third);
+    }
+
+    /**
+     * Verifies that the files of a deleted build are kept in the folder of a dependent build if the annotations of
+     * the dependent build could not be stored.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldKeepFilesOfDeletedBuildIfMaterializingFails() throws IOException {
+        List<FileAnnotation> first = createWarnings(0, WARNINGS);
+        List<FileAnnotation> second = createWarnings(0, WARNINGS + 1);
+
+        TestResult firstResult = createResult(1, null, first);
+        TestResult secondResult = createResult(2, firstResult, second);
+        deleteKeptFiles(secondResult);
+
+        File obstacle = new File(secondResult.getOwner().getRootDir(), DATA_FILE);
+        assertTrue("Can't create obstacle: ", new File(obstacle, "obstacle").mkdirs());
+
+        new BuildResult.Cleaner().onDeleted(firstResult.getOwner());
+        delete(firstResult);
+        FileUtils.deleteDirectory(firstResult.getOwner().getRootDir());
+
+        assertTrue("No delta file: ", new File(secondResult.getOwner().getRootDir(), DELTA_FILE).exists());
+        assertKept(secondResult, "1.xml");
+        assertRestored(secondResult, second);
+    }
+
+    /**
+     * Verifies that the annotations of a build are restored if the folders of its reference builds have been removed
+     * without deleting the builds.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldRestoreDeltaIfFoldersOfReferenceBuildsAreRemoved() throws IOException {
+        List<FileAnnotation> first = createWarnings(0, WARNINGS);
+        List<FileAnnotation> second = createWarnings(0, WARNINGS + 1);
+        List<FileAnnotation> third = createWarnings(1, WARNINGS + 2);
+
+        TestResult firstResult = createResult(1, null, first);
+        TestResult secondResult = createResult(2, firstResult, second);
+        TestResult thirdResult = createResult(3, secondResult, third);
+
+        FileUtils.deleteDirectory(firstResult.getOwner().getRootDir());
+        FileUtils.deleteDirectory(secondResult.getOwner().getRootDir());
+
+        assertRestored(thirdResult, third);
+    }
+
+    /**
+     * Verifies that a result is reported as corrupted if the annotations of the reference build can't be loaded.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReportCorruptedResult() throws IOException {
+        List<FileAnnotation> first = createWarnings(0, WARNINGS);
+        List<FileAnnotation> second = createWarnings(0, WARNINGS + 1);
+
+        TestResult firstResult = createResult(1, null, first);
+        TestResult secondResult = createResult(2, firstResult, second);
+        assertFalse("Result is corrupted: ", secondResult.isCorrupted());
+
+        delete(firstResult);
+        deleteKeptFiles(secondResult);
+        secondResult.unloadProject();
+        secondResult.getProject();
+
+        assertTrue("Result is not corrupted: ", secondResult.isCorrupted());
+        assertTrue("No error: ", secondResult.hasError());
+        assertEquals("Wrong number of errors: ", 1, secondResult.getErrors().size());
+        assertTrue("No error in project: ", secondResult.getProject().hasError());
+        assertEquals("Wrong number of annotations: ", 0, secondResult.getProject().getNumberOfAnnotations());
+        assertEquals("Wrong number of warnings in summary: ", second.size(), secondResult.getNumberOfWarnings());
+    }
+
+    /**
+     * Verifies that the fixed warnings of the difference that has been computed when the result has been created are
+     * serialized, i.e., the history does not load the reference build to compute the difference again.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldSerializeFixedWarningsWithoutReloadingReferenceBuild() throws IOException {
+        List<FileAnnotation> first = createWarnings(0, WARNINGS);
+        List<FileAnnotation> second = createWarnings(1, WARNINGS + 1);
+
+        TestResult firstResult = createResult(1, null, first);
+        BuildHistory history = createHistory(firstResult);
+        TestResult secondResult = createResultWithHistory(2, history, second);
+
+        verify(history, never()).getFixedWarnings(anySetOf(FileAnnotation.class));
+        assertTrue("No fixed warnings file: ", new File(secondResult.getOwner().getRootDir(), FIXED_FILE).exists());
+        assertEquals("Wrong fixed warnings: ", Sets.newHashSet(first.get(0)),
+                Sets.newHashSet(secondResult.getFixedWarnings()));
+    }
+
+    private void delete(final TestResult result) {
+        doReturn(null).when(job).getBuildByNumber(result.getOwner().getNumber());
+    }
+
+    private void deleteKeptFiles(final TestResult result) {
+        for (File keptFile : getKeptFiles(result)) {
+            assertTrue("Can't delete kept file: ", keptFile.delete());
+        }
+    }
+
+    private List<File> getKeptFiles(final TestResult result) {
+        List<File> keptFiles = Lists.newArrayList();
+        for (File file : result.getOwner().getRootDir().listFiles()) {
+            if (file.getName().startsWith(KEPT_FILE_PREFIX)) {
+                keptFiles.add(file);
+            }
+        }
+        return keptFiles;
+    }
+
+    private void assertKept(final TestResult result, final String... suffixes) {
+        for (String suffix : suffixes) {
+            assertTrue("File not kept: " + suffix,
+                    new File(result.getOwner().getRootDir(), KEPT_FILE_PREFIX + suffix).exists());
+        }
+    }
+
+    private void assertStoredAsSnapshot(final TestResult result) {
+        File rootDir = result.getOwner().getRootDir();
+        assertTrue("No data file: ", new File(rootDir, DATA_FILE).exists());
+        assertFalse("Delta file exists: ", new File(rootDir, DELTA_FILE).exists());
+    }
+
+    private void assertStoredAsDelta(final TestResult result) {
+        File rootDir = result.getOwner().getRootDir();
+        assertFalse("Data file exists: ", new File(rootDir, DATA_FILE).exists());
+        assertTrue("No delta file: ", new File(rootDir, DELTA_FILE).exists());
+    }
+
+    /**
+     * Loads the annotations of the specified result from its files and verifies that they are equal to the
+     * specified annotations, including the keys.
+     *
+     * @return the restored annotations, mapped by line number
+     */
+    private Map<Integer, FileAnnotation> assertRestored(final TestResult result,
+            final List<FileAnnotation> annotations) {
+        result.unloadProject();
+        Collection<FileAnnotation> restored = result.getProject().getAnnotations();
+
+        assertFalse("Result is corrupted: ", result.isCorrupted());
+        assertEquals("Wrong annotations: ", Sets.newHashSet(annotations), Sets.newHashSet(restored));
+        Map<Integer, FileAnnotation> restoredByLine = Maps.newHashMap();
+        for (FileAnnotation annotation : restored) {
+            restoredByLine.put(annotation.getPrimaryLineNumber(), annotation);
+        }
+        for (FileAnnotation annotation : annotations) {
+            assertEquals("Wrong key: ", annotation.getKey(),
+                    restoredByLine.get(annotation.getPrimaryLineNumber()).getKey());
+        }
+        return restoredByLine;
+    }
+
+    private List<FileAnnotation> createWarnings(final int from, final int to) {
+        List<FileAnnotation> warnings = Lists.newArrayList();
+        for (int line = from; line < to; line++) {
+            warnings.add(new Warning(line));
+        }
+        return warnings;
+    }
+
+    private TestResult createResult(final int number, final TestResult reference,
+            final List<FileAnnotation> annotations) throws IOException {
+        return createResultWithHistory(number, createHistory(reference), annotations);
+    }
+
+    private BuildHistory createHistory(final TestResult reference) {
+        BuildHistory history = mock(BuildHistory.class);
+        if (reference == null) {
+            when(history.getReferenceAnnotations()).thenReturn(new JavaProject());
+        }
+        else {
+            when(history.getReferenceAnnotations()).thenReturn(reference.getContainer());
+            when(history.hasReferenceBuild()).thenReturn(true);
+            doReturn(reference.getOwner()).when(history).getReferenceBuild();
+        }
+        return history;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TestResult createResultWithHistory(final int number, final BuildHistory history,
+            final List<FileAnnotation> annotations) throws IOException {
+        Run<?, ?> build = mock(Run.class);
+        when(build.getNumber()).thenReturn(number);
+        when(build.getRootDir()).thenReturn(folder.newFolder("build" + number));
+        when(build.getTimestamp()).thenReturn(Calendar.getInstance());
+        doReturn(job).when(build).getParent();
+        doReturn(build).when(job).getBuildByNumber(number);
+
+        TestAction action = mock(TestAction.class);
+        doReturn(action).when(build).getAction(TestAction.class);
+        doReturn(Collections.singletonList(action)).when(build).getActions(ResultAction.class);
+
+        TestResult result = new TestResult(build, history, annotations, settings);
+        when(action.getResult()).thenReturn(result);
+        return result;
+    }
+
+    /**
+     * The action of the {@link TestResult}.
+     */
+    private interface TestAction extends ResultAction<TestResult> {
+        // no additional methods
+    }
+
+    /**
+     * A result that stores its annotations in the file {@link #DATA_FILE}.
+     */
+    private static class TestResult extends BuildResult {
+        private static final long serialVersionUID = 2371538622357420941L;
+
+        private final transient PerformanceSettings settings;
+
+        TestResult(final Run<?, ?> build, final BuildHistory history, final Collection<FileAnnotation> annotations,
+                final PerformanceSettings settings) {
+            super(build, history, new ParserResult(annotations), "UTF-8");
+
+            this.settings = settings;
+            serializeAnnotations(annotations);
+        }
+
+        @Override
+        PerformanceSettings getSettings() {
+            return settings;
+        }
+
+        @Override
+        protected String getSerializationFileName() {
+            return DATA_FILE;
+        }
+
+        @Override
+        protected Class<TestAction> getResultActionType() {
+            return TestAction.class;
+        }
+
+        @Override
+        public String getSummary() {
+            return StringUtils.EMPTY;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Test";
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -5069416238764530734L;
+
+        Warning(final int line) {
+            super(Priority.NORMAL, "message " + line, line, line, "category", "type");
+            setFileName("/path/to/File.java");
+            setModuleName("module");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
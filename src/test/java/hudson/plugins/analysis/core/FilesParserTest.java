@@ -0,0 +1,261 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link FilesParser}.
+ *
+ * @author agent
+ */
+public class FilesParserTest {
+    private static final String ENCODING = "UTF-8";
+    private static final String PATTERN = "**/report-*.txt";
+
+    /** Temporary folder for the workspace. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the parallel parsing produces the same annotations, error messages and log messages as the
+     * sequential parsing.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldProduceSameResultInParallelMode() throws Exception {
+        File workspace = folder.getRoot();
+        for (int report = 0; report < 20; report++) {
+            StringBuilder content = new StringBuilder();
+            for (int line = 0; line < 10; line++) {
+                content.append("File").append(line % 4).append(".java:").append(report % 5).append('\n');
+            }
+            writeReport(workspace, String.format("module-%02d/report-%02d.txt", report, report), content.toString());
+        }
+        writeReport(workspace, "empty/report-empty.txt", StringUtils.EMPTY);
+        writeReport(workspace, "broken/report-broken.txt", "broken");
+
+        ParserResult sequential = new FilesParser("[TEST]", PATTERN, new LineParser(), false, false, false, 1)
+                .invoke(workspace, null);
+        ParserResult parallel = new FilesParser("[TEST]", PATTERN, new LineParser(), false, false, false, 4)
+                .invoke(workspace, null);
+
+        assertEquals("Wrong number of annotations: ", 20, sequential.getNumberOfAnnotations());
+        assertEquals("Wrong number of errors: ", 2, sequential.getErrorMessages().size());
+        assertEquals("Wrong annotations: ", sequential.getAnnotations(), parallel.getAnnotations());
+        assertEquals("Wrong error messages: ", sequential.getErrorMessages(), parallel.getErrorMessages());
+        assertEquals("Wrong modules: ", sequential.getModules(), parallel.getModules());
+        assertEquals("Wrong log: ", sequential.getLogMessages(), parallel.getLogMessages());
+    }
+
+    /**
+     * Verifies that the annotations of a streaming parser are added one by one and that duplicates are reported.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldAddAnnotationsOfStreamingParser() throws Exception {
+        File workspace = folder.getRoot();
+        writeReport(workspace, "report-1.txt", "File.java:1\nFile.java:2\nFile.java:1\n");
+        writeReport(workspace, "report-2.txt", "File.java:2\nFile.java:3\n");
+
+        StreamingLineParser parser = new StreamingLineParser();
+        ParserResult result = new FilesParser("[TEST]", PATTERN, parser, false, false, false, 1)
+                .invoke(workspace, null);
+
+        assertEquals("Wrong number of annotations: ", 3, result.getNumberOfAnnotations());
+        assertEquals("Collection based API has been used: ", 0, parser.collectionCalls);
+        assertTrue("Wrong log: " + result.getLogMessages(),
+                result.getLogMessages().contains("with 2 unique warnings and 1 duplicate."));
+        assertTrue("Wrong log: " + result.getLogMessages(),
+                result.getLogMessages().contains("with 3 unique warnings and 1 duplicate."));
+    }
+
+    /**
+     * Verifies that the annotations that a streaming parser has added before it failed are removed again, while
+     * equal annotations of other files are kept.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldDiscardAnnotationsOfFailedStreamingParser() throws Exception {
+        File workspace = folder.getRoot();
+        writeReport(workspace, "report-1.txt", "File.java:1\nFile.java:2\n");
+        writeReport(workspace, "report-2.txt", "File.java:2\nFile.java:3\nbroken\nFile.java:4\n");
+
+        StreamingLineParser parser = new StreamingLineParser();
+        ParserResult result = new FilesParser("[TEST]", PATTERN, parser, false, false, false, 1)
+                .invoke(workspace, null);
+
+        assertEquals("Wrong number of annotations: ", 2, result.getNumberOfAnnotations());
+        assertEquals("Wrong number of normal annotations: ", 2, result.getNumberOfAnnotations(Priority.NORMAL));
+        assertEquals("Wrong number of errors: ", 1, result.getErrorMessages().size());
+        for (FileAnnotation annotation : result.getAnnotations()) {
+            assertTrue("Annotation of broken file: " + annotation, annotation.getPrimaryLineNumber() <= 2);
+        }
+    }
+
+    /**
+     * Verifies that the annotations of unchanged report files are reused in incremental mode.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldReuseAnnotationsOfUnchangedReports() throws Exception {
+        File workspace = folder.newFolder("workspace");
+        writeReport(workspace, "module-1/report-1.txt", "File.java:1\nFile.java:2\n");
+        writeReport(workspace, "module-2/report-2.txt", "File.java:2\nFile.java:3\n");
+
+        ParserResult initial = parseIncrementally(workspace);
+        assertTrue("Wrong log: " + initial.getLogMessages(),
+                initial.getLogMessages().contains("Reused the warnings of 0 unchanged files, parsed 2 new or changed files"));
+
+        ParserResult unchanged = parseIncrementally(workspace);
+        assertEquals("Wrong annotations: ", initial.getAnnotations(), unchanged.getAnnotations());
+        assertTrue("Wrong log: " + unchanged.getLogMessages(),
+                unchanged.getLogMessages().contains("Reused the warnings of 2 unchanged files, parsed 0 new or changed files"));
+
+        writeReport(workspace, "module-2/report-2.txt", "File.java:4\n");
+        ParserResult changed = parseIncrementally(workspace);
+        assertEquals("Wrong number of annotations: ", 3, changed.getNumberOfAnnotations());
+        assertTrue("Wrong log: " + changed.getLogMessages(),
+                changed.getLogMessages().contains("Reused the warnings of 1 unchanged file, parsed 1 new or changed file"));
+    }
+
+    /**
+     * Verifies that the package names and context hash codes are computed on the agent if the classification is
+     * enabled.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldClassifyAnnotationsIfEnabled() throws Exception {
+        File workspace = folder.newFolder("workspace");
+        File source = new File(workspace, "src/Source.java");
+        FileUtils.writeStringToFile(source, "package hudson.plugins.analysis;\n\npublic class Source {\n}\n", ENCODING);
+        writeReport(workspace, "report-1.txt", StringUtils.removeStart(source.getAbsolutePath(), "/") + ":3\n");
+
+        FileAnnotation parsed = new FilesParser("[TEST]", PATTERN, new LineParser(), false, false, false, 1)
+                .invoke(workspace, null).getAnnotations().iterator().next();
+        assertFalse("Package detected: ", parsed.hasPackageName());
+        assertEquals("Context hash code computed: ", 0, parsed.getContextHashCode());
+
+        FilesParser filesParser = new FilesParser("[TEST]", PATTERN, new LineParser(), false, false, false, 1);
+        filesParser.enableClassification(ENCODING, true);
+        FileAnnotation classified = filesParser.invoke(workspace, null).getAnnotations().iterator().next();
+
+        assertEquals("Wrong package: ", "hudson.plugins.analysis", classified.getPackageName());
+        assertFalse("No context hash code computed: ", classified.getContextHashCode() == 0);
+    }
+
+    private ParserResult parseIncrementally(final File workspace) throws IOException {
+        FilesParser filesParser = new FilesParser("[TEST]", PATTERN, new LineParser(), false, false, false, 1);
+        filesParser.setIncremental(true);
+
+        return filesParser.invoke(workspace, null);
+    }
+
+    private void writeReport(final File workspace, final String fileName, final String content) throws IOException {
+        FileUtils.writeStringToFile(new File(workspace, fileName), content, ENCODING);
+    }
+
+    /**
+     * Parses lines of the format {@code file:line}.
+     */
+    private static class LineParser implements AnnotationParser {
+        private static final long serialVersionUID = -1593493698424934463L;
+
+        @Override
+        public Collection<FileAnnotation> parse(final File file, final String moduleName)
+                throws InvocationTargetException {
+            try {
+                List<FileAnnotation> annotations = Lists.newArrayList();
+                for (String line : FileUtils.readLines(file, ENCODING)) {
+                    annotations.add(createWarning(line));
+                }
+                return annotations;
+            }
+            catch (IOException exception) {
+                throw new InvocationTargetException(exception);
+            }
+        }
+
+        FileAnnotation createWarning(final String line) throws InvocationTargetException {
+            String[] parts = line.split(":");
+            if (parts.length != 2) {
+                throw new InvocationTargetException(new IllegalArgumentException(line));
+            }
+            Warning warning = new Warning(Priority.NORMAL, "message", Integer.parseInt(parts[1]));
+            warning.setFileName("/" + parts[0]);
+            return warning;
+        }
+    }
+
+    /**
+     * Parses lines of the format {@code file:line} and streams the annotations into the sink.
+     */
+    private static class StreamingLineParser extends LineParser implements StreamingAnnotationParser {
+        private static final long serialVersionUID = 2398412542520960727L;
+
+        private int collectionCalls;
+
+        @Override
+        public Collection<FileAnnotation> parse(final File file, final String moduleName)
+                throws InvocationTargetException {
+            collectionCalls++;
+
+            return super.parse(file, moduleName);
+        }
+
+        @Override
+        public void parse(final File file, final String moduleName, final AnnotationSink sink)
+                throws InvocationTargetException {
+            try {
+                for (String line : FileUtils.readLines(file, ENCODING)) {
+                    sink.add(createWarning(line));
+                }
+            }
+            catch (IOException exception) {
+                throw new InvocationTargetException(exception);
+            }
+        }
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 6349452364089127183L;
+
+        Warning(final Priority priority, final String message, final int line) {
+            super(priority, message, line, line, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
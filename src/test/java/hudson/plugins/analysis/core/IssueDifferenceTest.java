@@ -0,0 +1,169 @@
+package hudson.plugins.analysis.core;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link IssueDifference}.
+ *
+ * @author agent
+ */
+public class IssueDifferenceTest {
+    private static final int NUMBER_OF_RUNS = 50;
+
+    /**
+     * Verifies that issues are matched by equals first and by context hash code afterwards.
+     */
+    @Test
+    public void shouldMatchByEqualsAndContext() {
+        Warning sameInBoth = createWarning("equal", "A.java", 1, 100L, 1);
+        Warning sameContext = createWarning("moved", "A.java", 2, 200L, 2);
+        Warning fixed = createWarning("fixed", "A.java", 3, 300L, 3);
+
+        Warning current = createWarning("equal", "A.java", 1, 999L, 10);
+        Warning moved = createWarning("moved", "A.java", 20, 200L, 10);
+        Warning added = createWarning("added", "A.java", 4, 400L, 10);
+
+        IssueDifference difference = new IssueDifference(asSet(current, moved, added), asSet(sameInBoth, sameContext, fixed));
+
+        assertEquals("Wrong new issues: ", asSet(added), difference.getNewIssues());
+        assertEquals("Wrong fixed issues: ", asSet(fixed), difference.getFixedIssues());
+        assertEquals("Build not carried over: ", 1, current.getBuild());
+        assertEquals("Build not carried over: ", 2, moved.getBuild());
+        assertEquals("Build of new issue changed: ", 10, added.getBuild());
+    }
+
+    /**
+     * Verifies that the indexed matching produces the same results as the previous linear algorithm for randomized
+     * sets of issues.
+     */
+    @Test
+    public void shouldProduceSameResultAsLinearAlgorithm() {
+        Random seeds = new Random(4711);
+        for (int run = 0; run < NUMBER_OF_RUNS; run++) {
+            long seed = seeds.nextLong();
+
+            List<Warning> expectedCurrent = createIssues(new Random(seed), 0);
+            List<Warning> expectedReference = createIssues(new Random(seed), 1);
+            Set<FileAnnotation> expectedNew = new HashSet<FileAnnotation>();
+            Set<FileAnnotation> expectedFixed = new HashSet<FileAnnotation>();
+            computeLinearDifference(asOrderedSet(expectedCurrent), asOrderedSet(expectedReference), expectedNew, expectedFixed);
+
+            List<Warning> actualCurrent = createIssues(new Random(seed), 0);
+            List<Warning> actualReference = createIssues(new Random(seed), 1);
+            IssueDifference difference = new IssueDifference(asOrderedSet(actualCurrent), asOrderedSet(actualReference));
+
+            assertEquals("Wrong new issues for seed " + seed, expectedNew, difference.getNewIssues());
+            assertEquals("Wrong fixed issues for seed " + seed, expectedFixed, difference.getFixedIssues());
+            for (int i = 0; i < expectedCurrent.size(); i++) {
+                assertEquals("Wrong build for seed " + seed, expectedCurrent.get(i).getBuild(), actualCurrent.get(i).getBuild());
+            }
+        }
+    }
+
+    /**
+     * Creates a random set of issues. The values are chosen from small ranges so that equal issues and issues with the
+     * same context hash code are created in both sets.
+     *
+     * @param random
+     *            the random generator to use
+     * @param set
+     *            the set to create: 0 for the current issues, 1 for the reference issues
+     * @return the created issues
+     */
+    private List<Warning> createIssues(final Random random, final int set) {
+        List<Warning> current = Lists.newArrayList();
+        List<Warning> reference = Lists.newArrayList();
+        for (List<Warning> issues : Lists.newArrayList(current, reference)) {
+            int size = random.nextInt(200);
+            for (int i = 0; i < size; i++) {
+                issues.add(createWarning("message-" + random.nextInt(10), "file-" + random.nextInt(5),
+                        random.nextInt(20), random.nextInt(30), random.nextInt(100)));
+            }
+        }
+        return set == 0 ? current : reference;
+    }
+
+    /**
+     * The linear algorithm that has been used before the indexed matching has been introduced.
+     */
+    private void computeLinearDifference(final Set<FileAnnotation> currentIssues, final Set<FileAnnotation> referenceIssues,
+            final Set<FileAnnotation> newIssues, final Set<FileAnnotation> fixedIssues) {
+        newIssues.addAll(currentIssues);
+        fixedIssues.addAll(referenceIssues);
+
+        for (FileAnnotation current : currentIssues) {
+            FileAnnotation referenceToRemove = null;
+            for (FileAnnotation reference : fixedIssues) {
+                if (current.equals(reference)) {
+                    referenceToRemove = reference;
+                    break;
+                }
+            }
+            if (referenceToRemove == null) {
+                for (FileAnnotation reference : fixedIssues) {
+                    if (current.getContextHashCode() == reference.getContextHashCode()) {
+                        referenceToRemove = reference;
+                        break;
+                    }
+                }
+            }
+            if (referenceToRemove != null) {
+                newIssues.remove(current);
+                fixedIssues.remove(referenceToRemove);
+
+                current.setBuild(referenceToRemove.getBuild());
+            }
+        }
+    }
+
+    private Set<FileAnnotation> asOrderedSet(final List<Warning> issues) {
+        return new LinkedHashSet<FileAnnotation>(issues);
+    }
+
+    private Set<FileAnnotation> asSet(final FileAnnotation... issues) {
+        Set<FileAnnotation> set = new HashSet<FileAnnotation>();
+        for (FileAnnotation issue : issues) {
+            set.add(issue);
+        }
+        return set;
+    }
+
+    private Warning createWarning(final String message, final String fileName, final int line, final long contextHashCode, final int build) {
+        Warning warning = new Warning(Priority.NORMAL, message, line, line, "category", "type");
+        warning.setFileName(fileName);
+        warning.setContextHashCode(contextHashCode);
+        warning.setBuild(build);
+        return warning;
+    }
+
+    /**
+     * A concrete warning that will be compared.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 3305012335471520612L;
+
+        Warning(final Priority priority, final String message, final int start, final int end, final String category, final String type) {
+            super(priority, message, start, end, category, type);
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
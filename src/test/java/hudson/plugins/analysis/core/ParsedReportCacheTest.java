@@ -0,0 +1,155 @@
+package hudson.plugins.analysis.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
+import hudson.plugins.analysis.util.model.FileAnnotation;
+import hudson.plugins.analysis.util.model.Priority;
+
+/**
+ * Tests the class {@link ParsedReportCache}.
+ *
+ * @author agent
+ */
+public class ParsedReportCacheTest {
+    private static final String DIGEST = "digest";
+    private static final String MODULE = "module";
+
+    /** Temporary folder for the workspace and the cache file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the annotations of an unchanged report are reused with new keys and rebased onto the current
+     * workspace.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReuseAnnotationsWithNewKeys() throws IOException {
+        File cacheFile = new File(folder.getRoot(), "cache.ser");
+        File previous = folder.newFolder("previous");
+        Warning warning = new Warning(new File(previous, "File.java").getAbsolutePath());
+        ParsedReportCache cache = ParsedReportCache.load(cacheFile, new EmptyParser(), previous);
+        cache.put(DIGEST, MODULE, Collections.<FileAnnotation>singletonList(warning));
+        cache.save();
+
+        File current = folder.newFolder("current");
+        Collection<FileAnnotation> reused = ParsedReportCache.load(cacheFile, new EmptyParser(), current)
+                .get(DIGEST, MODULE);
+
+        assertNotNull("Report not cached: ", reused);
+        assertEquals("Wrong number of annotations: ", 1, reused.size());
+        FileAnnotation annotation = reused.iterator().next();
+        assertEquals("Wrong message: ", warning.getMessage(), annotation.getMessage());
+        assertEquals("Wrong file name: ", new File(current, "File.java").getAbsolutePath().replace('\\', '/'),
+                annotation.getFileName());
+        assertFalse("Key of previous build reused: ", warning.getKey() == annotation.getKey());
+    }
+
+    /**
+     * Verifies that a cache file that contains a class that is not accepted is ignored.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldRejectUnknownClasses() throws IOException {
+        File cacheFile = new File(folder.getRoot(), "cache.ser");
+        File workspace = folder.newFolder("workspace");
+        ParsedReportCache cache = ParsedReportCache.load(cacheFile, new EmptyParser(), workspace);
+        cache.put(DIGEST, MODULE, Collections.<FileAnnotation>singletonList(new DatedWarning("File.java")));
+        cache.save();
+
+        assertTrue("Cache not written: ", cacheFile.isFile());
+        assertNull("Unknown class accepted: ",
+                ParsedReportCache.load(cacheFile, new EmptyParser(), workspace).get(DIGEST, MODULE));
+    }
+
+    /**
+     * Verifies that the cache is discarded if the class of the parser changes.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldDiscardCacheOfOtherParser() throws IOException {
+        File cacheFile = new File(folder.getRoot(), "cache.ser");
+        File workspace = folder.newFolder("workspace");
+        ParsedReportCache cache = ParsedReportCache.load(cacheFile, new EmptyParser(), workspace);
+        cache.put(DIGEST, MODULE, Collections.<FileAnnotation>singletonList(new Warning("File.java")));
+        cache.save();
+
+        assertNull("Cache of other parser used: ",
+                ParsedReportCache.load(cacheFile, new OtherParser(), workspace).get(DIGEST, MODULE));
+        assertNotNull("Report not cached: ",
+                ParsedReportCache.load(cacheFile, new EmptyParser(), workspace).get(DIGEST, MODULE));
+    }
+
+    /**
+     * A parser that does not find any annotations.
+     */
+    private static class EmptyParser implements AnnotationParser {
+        private static final long serialVersionUID = 3340216327011446463L;
+
+        /** A field that can't be serialized does not prevent the caching. */
+        @SuppressWarnings("unused")
+        private final Object lock = new Object();
+
+        @Override
+        public Collection<FileAnnotation> parse(final File file, final String moduleName) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Another parser that does not find any annotations.
+     */
+    private static class OtherParser extends EmptyParser {
+        private static final long serialVersionUID = -5311393408367211458L;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 6450296316934478152L;
+
+        Warning(final String fileName) {
+            super(Priority.NORMAL, "message", 1, 1, "category", "type");
+            setFileName(fileName);
+            setModuleName(MODULE);
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+
+    /**
+     * A warning with a field of a class that is not accepted in the cache.
+     */
+    private static class DatedWarning extends Warning {
+        private static final long serialVersionUID = -2373633016046233585L;
+
+        @SuppressWarnings("unused")
+        private final Date date = new Date();
+
+        DatedWarning(final String fileName) {
+            super(fileName);
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package hudson.plugins.analysis.core;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.List;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
@@ -12,6 +17,7 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 
 import hudson.plugins.analysis.core.ParserResult.Workspace;
+import hudson.plugins.analysis.util.model.AbstractAnnotation;
 import hudson.plugins.analysis.util.model.FileAnnotation;
 import hudson.plugins.analysis.util.model.Priority;
 
@@ -26,6 +32,9 @@ public class ParserResultTest {
     private static final String SCANNED_FILENAME_WINDOWS = "relative\\path\\to\\file.txt";
     private static final String WORSPACE_ROOT = "ws";
     private static final String FOUND_FILE_NAME = WORSPACE_ROOT + "/" + SCANNED_FILENAME;
+    private static final String ABSOLUTE_FILE_NAME = "/workspace/src/main/java/File.java";
+    /** The plain serialization of an annotation needs more than 150 bytes. */
+    private static final int MAXIMUM_BYTES_PER_WARNING = 48;
 
     /**
      * Verifies that the relative prefix of a path is stripped.
@@ -203,6 +212,131 @@ public class ParserResultTest {
         verifyWarning(result, "path/to/file.txt", FOUND_FILE_NAME);
     }
 
+    /**
+     * Verifies that each relative file name is resolved only once, even if several warnings reference the same file.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldResolveEachRelativeFileNameOnlyOnce() throws Exception {
+        Workspace workspace = mockWorkspace(new String[] {SCANNED_FILENAME, OTHER_SCANNED_FILE});
+        ParserResult result = new ParserResult(workspace, true);
+
+        List<FileAnnotation> warnings = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            warnings.add(mockWarning("to/file.txt"));
+            warnings.add(mockWarning("unknown.txt"));
+        }
+        result.addAnnotations(warnings);
+        result.addAnnotation(mockWarning("to/file.txt"));
+
+        for (int i = 0; i < warnings.size(); i += 2) {
+            verify(warnings.get(i)).setFileName(FOUND_FILE_NAME);
+            verify(warnings.get(i + 1), never()).setFileName(anyString());
+        }
+        verify(workspace, times(2)).child(anyString());
+        verify(workspace, times(1)).findFiles(anyString());
+    }
+
+    /**
+     * Verifies that the timings of an added project are appended to the timings of the result.
+     */
+    @Test
+    public void shouldAppendTimingsOfAddedProject() {
+        ParserResult result = new ParserResult();
+        result.getTimings().record("find", StageTimings.start(), 2);
+        ParserResult other = new ParserResult();
+        other.getTimings().record("parse", StageTimings.start(), 3, 1024);
+
+        result.addProject(other);
+
+        List<StageTimings.Stage> stages = result.getTimings().getStages();
+        assertEquals("Wrong number of stages: ", 2, stages.size());
+        assertEquals("Wrong stage: ", "find", stages.get(0).getName());
+        assertEquals("Wrong stage: ", "parse", stages.get(1).getName());
+        assertEquals("Wrong number of items: ", 3, stages.get(1).getItems());
+        assertEquals("Wrong number of bytes: ", 1024, stages.get(1).getBytes());
+    }
+
+    /**
+     * Verifies that the annotations are restored after serialization and that each distinct string is written only
+     * once, so the serialized form needs only a few bytes per annotation.
+     *
+     * @throws Exception
+     *             if the result could not be serialized
+     */
+    @Test
+    public void shouldSerializeAnnotationsWithSharedStrings() throws Exception {
+        ParserResult result = new ParserResult();
+        int numberOfWarnings = 2500;
+        for (int line = 1; line <= numberOfWarnings; line++) {
+            Warning warning = new Warning(new String("Message"), line);
+            warning.setFileName(new String(ABSOLUTE_FILE_NAME));
+            result.addAnnotation(warning);
+        }
+
+        byte[] serialized = serialize(result);
+        ParserResult copy = deserialize(serialized);
+
+        assertEquals("Wrong number of annotations: ", numberOfWarnings, copy.getNumberOfAnnotations());
+        assertEquals("Wrong number of high annotations: ", numberOfWarnings,
+                copy.getNumberOfAnnotations(Priority.HIGH));
+        assertEquals("Wrong annotations: ", result.getAnnotations(), copy.getAnnotations());
+        assertEquals("Wrong file name: ", ABSOLUTE_FILE_NAME, copy.getAnnotations().iterator().next().getFileName());
+        assertTrue("Too many bytes per warning: " + serialized.length,
+                serialized.length < numberOfWarnings * MAXIMUM_BYTES_PER_WARNING);
+    }
+
+    /**
+     * Verifies that annotations of classes with fields that are not supported by the compact format are serialized
+     * as ordinary objects.
+     *
+     * @throws Exception
+     *             if the result could not be serialized
+     */
+    @Test
+    public void shouldSerializeAnnotationsWithUnsupportedFields() throws Exception {
+        ParserResult result = new ParserResult();
+        for (int line = 1; line <= 1500; line++) {
+            result.addAnnotation(new Warning("Message", line));
+            result.addAnnotation(new WarningWithDetails("Details", line));
+        }
+
+        ParserResult copy = deserialize(serialize(result));
+
+        assertEquals("Wrong annotations: ", result.getAnnotations(), copy.getAnnotations());
+        for (FileAnnotation annotation : copy.getAnnotations()) {
+            if (annotation instanceof WarningWithDetails) {
+                String line = String.valueOf(annotation.getPrimaryLineNumber());
+                assertEquals("Wrong details: ", Lists.newArrayList("Details", line),
+                        ((WarningWithDetails)annotation).details);
+            }
+        }
+    }
+
+    private byte[] serialize(final Object object) throws IOException {
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(serialized);
+        try {
+            output.writeObject(object);
+        }
+        finally {
+            output.close();
+        }
+        return serialized.toByteArray();
+    }
+
+    private ParserResult deserialize(final byte[] serialized) throws IOException, ClassNotFoundException {
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized));
+        try {
+            return (ParserResult)input.readObject();
+        }
+        finally {
+            input.close();
+        }
+    }
+
     private FileAnnotation mockWarning(final String fileName) {
         FileAnnotation warning = mock(FileAnnotation.class);
         when(warning.getFileName()).thenReturn(fileName);
@@ -217,5 +351,35 @@ public class ParserResultTest {
         when(workspace.findFiles(anyString())).thenReturn(workspaceFiles);
         return workspace;
     }
+
+    /**
+     * A serializable warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -1465367185306361474L;
+
+        Warning(final String message, final int line) {
+            super(Priority.HIGH, message, line, line, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+
+    /**
+     * A serializable warning with a field that is not supported by the compact format.
+     */
+    private static class WarningWithDetails extends Warning {
+        private static final long serialVersionUID = 2817013254069738573L;
+
+        private final List<String> details;
+
+        WarningWithDetails(final String message, final int line) {
+            super(message, line);
+            details = Lists.newArrayList(message, String.valueOf(line));
+        }
+    }
 }
 
@@ -16,19 +16,47 @@ public class SerializableSettingsTest {
      */
     @Test
     public void testValues() {
-        Settings original = mock(Settings.class);
+        PerformanceSettings original = mock(PerformanceSettings.class);
         SerializableSettings copy;
 
         copy = new SerializableSettings(original);
         assertFalse("Wrong value for quiet: ", copy.getQuietMode());
         assertFalse("Wrong value for fail: ", copy.getFailOnCorrupt());
+        assertEquals("Wrong value for parallelism: ", 1, copy.getParallelism().intValue());
+        assertFalse("Wrong value for compress: ", copy.getCompressSources());
+        assertFalse("Wrong value for binary: ", copy.getBinaryResults());
+        assertFalse("Wrong value for delta: ", copy.getDeltaResults());
 
         when(original.getFailOnCorrupt()).thenReturn(true);
         when(original.getQuietMode()).thenReturn(true);
+        when(original.getParallelism()).thenReturn(4);
+        when(original.getCompressSources()).thenReturn(true);
+        when(original.getBinaryResults()).thenReturn(true);
+        when(original.getDeltaResults()).thenReturn(true);
 
         copy = new SerializableSettings(original);
         assertTrue("Wrong value for quiet: ", copy.getQuietMode());
         assertTrue("Wrong value for fail: ", copy.getFailOnCorrupt());
+        assertEquals("Wrong value for parallelism: ", 4, copy.getParallelism().intValue());
+        assertTrue("Wrong value for compress: ", copy.getCompressSources());
+        assertTrue("Wrong value for binary: ", copy.getBinaryResults());
+        assertTrue("Wrong value for delta: ", copy.getDeltaResults());
+    }
+
+    /**
+     * Verifies that the default performance settings are used if the original settings don't provide them.
+     */
+    @Test
+    public void testDefaultPerformanceSettings() {
+        Settings original = mock(Settings.class);
+        when(original.getQuietMode()).thenReturn(true);
+
+        SerializableSettings copy = new SerializableSettings(original);
+        assertTrue("Wrong value for quiet: ", copy.getQuietMode());
+        assertEquals("Wrong value for parallelism: ", 1, copy.getParallelism().intValue());
+        assertFalse("Wrong value for compress: ", copy.getCompressSources());
+        assertFalse("Wrong value for binary: ", copy.getBinaryResults());
+        assertFalse("Wrong value for delta: ", copy.getDeltaResults());
     }
 }
 
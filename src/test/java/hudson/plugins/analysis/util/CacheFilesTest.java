@@ -0,0 +1,119 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link CacheFiles}.
+ *
+ * @author agent
+ */
+public class CacheFilesTest {
+    private static final String ENCODING = "UTF-8";
+    private static final int SAVES = 8;
+
+    /** Temporary folder for the cache files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the cache file is created and replaced and that no temporary files remain.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReplaceCacheFile() throws IOException {
+        File cacheFile = new File(folder.getRoot(), "cache/values.txt");
+
+        CacheFiles.save(cacheFile, createContent("first"));
+        assertEquals("Wrong content: ", "first", FileUtils.readFileToString(cacheFile, ENCODING));
+
+        CacheFiles.save(cacheFile, createContent("second"));
+        assertEquals("Wrong content: ", "second", FileUtils.readFileToString(cacheFile, ENCODING));
+        assertEquals("Temporary files remain: ", 1, cacheFile.getParentFile().list().length);
+    }
+
+    /**
+     * Verifies that the previous cache file is kept if the new content could not be written.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldKeepCacheFileIfWritingFails() throws IOException {
+        File cacheFile = new File(folder.getRoot(), "values.txt");
+        CacheFiles.save(cacheFile, createContent("valid"));
+
+        CacheFiles.save(cacheFile, new CacheFiles.Content() {
+            @Override
+            public void write(final File file) throws IOException {
+                FileUtils.writeStringToFile(file, "partial", ENCODING);
+                throw new IOException("failed");
+            }
+        });
+
+        assertEquals("Wrong content: ", "valid", FileUtils.readFileToString(cacheFile, ENCODING));
+        assertEquals("Temporary files remain: ", 1, folder.getRoot().list().length);
+    }
+
+    /**
+     * Verifies that concurrent saves do not interfere: the cache file contains the complete content of one of them.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldSaveConcurrently() throws Exception {
+        final File cacheFile = new File(folder.getRoot(), "values.txt");
+        List<Callable<Void>> tasks = Lists.newArrayList();
+        for (int i = 0; i < SAVES; i++) {
+            final String content = createValue(i);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    CacheFiles.save(cacheFile, createContent(content));
+                    return null;
+                }
+            });
+        }
+
+        new WorkerPool("save", SAVES).invokeAll(tasks);
+
+        String content = FileUtils.readFileToString(cacheFile, ENCODING);
+        boolean isComplete = false;
+        for (int i = 0; i < SAVES; i++) {
+            isComplete |= createValue(i).equals(content);
+        }
+        assertTrue("Corrupt content: " + content.length(), isComplete);
+        assertEquals("Temporary files remain: ", 1, folder.getRoot().list().length);
+    }
+
+    private String createValue(final int index) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            value.append(index);
+        }
+        return value.toString();
+    }
+
+    private CacheFiles.Content createContent(final String content) {
+        return new CacheFiles.Content() {
+            @Override
+            public void write(final File file) throws IOException {
+                FileUtils.writeStringToFile(file, content, ENCODING);
+            }
+        };
+    }
+}
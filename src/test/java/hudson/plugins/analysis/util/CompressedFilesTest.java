@@ -0,0 +1,85 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link CompressedFiles}.
+ *
+ * @author agent
+ */
+public class CompressedFilesTest {
+    private static final String ENCODING = "UTF-8";
+    private static final String CONTENT = "package hudson.plugins.analysis;\n\npublic class Empty {\n}\n";
+
+    /** Temporary folder for the copies. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that compressed and plain copies are both readable.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReadCompressedAndPlainCopies() throws IOException {
+        File compressed = write("compressed.tmp", true);
+        File plain = write("plain.tmp", false);
+
+        assertTrue("Copy not compressed: ", compressed.length() != CONTENT.length());
+        assertEquals("Wrong length of plain copy: ", CONTENT.length(), plain.length());
+
+        assertEquals("Wrong content of compressed copy: ", CONTENT, read(compressed));
+        assertEquals("Wrong content of plain copy: ", CONTENT, read(plain));
+    }
+
+    /**
+     * Verifies that empty and very short plain copies are readable.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReadShortPlainCopies() throws IOException {
+        File empty = folder.newFile("empty.tmp");
+        assertEquals("Wrong content of empty copy: ", "", read(empty));
+
+        File single = folder.newFile("single.tmp");
+        FileUtils.writeStringToFile(single, "x", ENCODING);
+        assertEquals("Wrong content of short copy: ", "x", read(single));
+    }
+
+    private File write(final String name, final boolean isCompressing) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        OutputStream output = CompressedFiles.create(new FileOutputStream(file), isCompressing);
+        try {
+            IOUtils.write(CONTENT, output, ENCODING);
+        }
+        finally {
+            output.close();
+        }
+        return file;
+    }
+
+    private String read(final File file) throws IOException {
+        InputStream input = CompressedFiles.open(file);
+        try {
+            return IOUtils.toString(input, ENCODING);
+        }
+        finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link ContextHashCodeCache}.
+ *
+ * @author agent
+ */
+public class ContextHashCodeCacheTest {
+    private static final String ENCODING = "UTF-8";
+
+    /** Temporary folder for the source and cache files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the hash codes of an unchanged file are obtained from the cache, even after the cache has been
+     * persisted and loaded again.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReuseHashCodesOfUnchangedFile() throws IOException {
+        File source = createSource("source.txt", 20);
+        File cacheFile = new File(folder.getRoot(), "cache/hash-codes.bin");
+        List<Integer> lines = Lists.newArrayList(1, 5, 10);
+
+        ContextHashCodeCache cache = ContextHashCodeCache.load(cacheFile);
+        Map<Integer, Integer> expected = new ContextHashCode().compute(source.getAbsolutePath(), lines, ENCODING);
+        assertEquals("Wrong hash codes: ", expected, compute(cache, source, lines));
+        assertEquals("Wrong number of hits: ", 0, cache.getHits());
+        assertEquals("Wrong number of misses: ", 3, cache.getMisses());
+        cache.save();
+
+        ContextHashCodeCache loaded = ContextHashCodeCache.load(cacheFile);
+        assertEquals("Wrong size: ", 3, loaded.size());
+        assertEquals("Wrong hash codes: ", expected, compute(loaded, source, lines));
+        assertEquals("Wrong number of hits: ", 3, loaded.getHits());
+        assertEquals("Wrong number of misses: ", 0, loaded.getMisses());
+    }
+
+    /**
+     * Verifies that the hash codes of a changed file are computed again.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldComputeHashCodesOfChangedFile() throws IOException {
+        File source = createSource("source.txt", 20);
+        List<Integer> lines = Lists.newArrayList(1, 5);
+
+        ContextHashCodeCache cache = new ContextHashCodeCache(null, 100);
+        compute(cache, source, lines);
+
+        FileUtils.writeStringToFile(source, "changed", ENCODING, true);
+        Map<Integer, Integer> expected = new ContextHashCode().compute(source.getAbsolutePath(), lines, ENCODING);
+        assertEquals("Wrong hash codes: ", expected, compute(cache, source, lines));
+        assertEquals("Wrong number of hits: ", 0, cache.getHits());
+        assertEquals("Wrong number of misses: ", 4, cache.getMisses());
+    }
+
+    /**
+     * Verifies that the least recently used files are evicted if the capacity is exceeded.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsedFiles() throws IOException {
+        File first = createSource("first.txt", 10);
+        File second = createSource("second.txt", 11);
+        File third = createSource("third.txt", 12);
+        List<Integer> lines = Lists.newArrayList(1, 2);
+
+        ContextHashCodeCache cache = new ContextHashCodeCache(null, 4);
+        compute(cache, first, lines);
+        compute(cache, second, lines);
+        compute(cache, first, lines);
+        compute(cache, third, lines);
+        assertEquals("Wrong size: ", 4, cache.size());
+        assertEquals("Wrong number of hits: ", 2, cache.getHits());
+
+        compute(cache, first, lines);
+        assertEquals("First file has been evicted: ", 4, cache.getHits());
+        compute(cache, second, lines);
+        assertEquals("Second file has not been evicted: ", 4, cache.getHits());
+    }
+
+    /**
+     * Verifies that a corrupt cache file is ignored.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldIgnoreCorruptCacheFile() throws IOException {
+        File cacheFile = folder.newFile("corrupt.bin");
+        FileUtils.writeStringToFile(cacheFile, "corrupt", ENCODING);
+
+        assertEquals("Wrong size: ", 0, ContextHashCodeCache.load(cacheFile).size());
+    }
+
+    private Map<Integer, Integer> compute(final ContextHashCodeCache cache, final File source, final List<Integer> lines) {
+        return cache.compute(new ContextHashCode(), source.getAbsolutePath(), lines, ENCODING);
+    }
+
+    private File createSource(final String fileName, final int numberOfLines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int line = 0; line < numberOfLines; line++) {
+            content.append(fileName).append(" line ").append(line).append('\n');
+        }
+        File file = folder.newFile(fileName);
+        FileUtils.writeStringToFile(file, content.toString(), ENCODING);
+        return file;
+    }
+}
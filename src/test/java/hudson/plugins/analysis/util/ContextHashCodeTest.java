@@ -0,0 +1,141 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link ContextHashCode}.
+ *
+ * @author agent
+ */
+public class ContextHashCodeTest {
+    private static final String ENCODING = "ISO-8859-1";
+    private static final String UTF_8 = "UTF-8";
+    private static final int LINES_LOOK_AHEAD = 3;
+
+    /** Temporary folder for the source files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the hash codes of all lines of a file are computed in a single pass and that the values are the
+     * same as the values of the original line by line algorithm.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldComputeSameHashCodesForAllLines() throws Exception {
+        String fileName = getFileName();
+        List<String> content = FileUtils.readLines(new File(fileName), ENCODING);
+
+        List<Integer> lines = Lists.newArrayList();
+        for (int line = -10; line < content.size() + 10; line++) {
+            lines.add(line);
+        }
+
+        ContextHashCode contextHashCode = new ContextHashCode();
+        Map<Integer, Integer> hashCodes = contextHashCode.compute(fileName, lines, ENCODING);
+
+        assertEquals("Wrong number of hash codes: ", lines.size(), hashCodes.size());
+        for (Integer line : lines) {
+            int expected = createExpectedHashCode(content, line);
+            assertEquals("Wrong hash code in line " + line, expected, hashCodes.get(line).intValue());
+            assertEquals("Wrong hash code in line " + line, expected, contextHashCode.compute(fileName, line, ENCODING));
+        }
+    }
+
+    /**
+     * Verifies that the line index of {@link MappedSourceFile} detects all kinds of line terminators and decodes
+     * multi-byte characters (and malformed input) just like the original line iterator.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldComputeSameHashCodesForAllLineTerminators() throws Exception {
+        verifyHashCodes("a\r\nb\r\nc\r\n\r\nd".getBytes(UTF_8), UTF_8);
+        verifyHashCodes("a\rb\r\rc\r".getBytes(UTF_8), UTF_8);
+        verifyHashCodes("\n\n\n".getBytes(UTF_8), UTF_8);
+        verifyHashCodes(new byte[0], UTF_8);
+        verifyHashCodes("\u00e4\u00f6\u00fc \u2211\nline \u20ac\r\nx".getBytes(UTF_8), UTF_8);
+        verifyHashCodes(new byte[] {'a', (byte)0xE2, (byte)0x82, '\n', 'b', (byte)0xFF, '\r', '\n', (byte)0xC3}, UTF_8);
+        verifyHashCodes("\u00e4\u00f6\u00fc\n\u00df\r\n".getBytes(ENCODING), ENCODING);
+        verifyHashCodes("a\nb\nc".getBytes("UTF-16"), "UTF-16");
+    }
+
+    /**
+     * Verifies that the hash codes of a large file (that will be mapped into memory) are the same as the values of
+     * the original line by line algorithm.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldComputeSameHashCodesForLargeFile() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int line = 0; line < 20000; line++) {
+            content.append("line ").append(line).append(line % 3 == 0 ? "\r\n" : "\n");
+        }
+        verifyHashCodes(content.toString().getBytes(UTF_8), UTF_8);
+    }
+
+    private void verifyHashCodes(final byte[] content, final String encoding) throws IOException {
+        File file = folder.newFile();
+        FileUtils.writeByteArrayToFile(file, content);
+        List<String> lines = FileUtils.readLines(file, encoding);
+
+        List<Integer> warningLines = Lists.newArrayList();
+        for (int line = -10; line < lines.size() + 10; line++) {
+            warningLines.add(line);
+        }
+
+        Map<Integer, Integer> hashCodes = new ContextHashCode().compute(file.getAbsolutePath(), warningLines, encoding);
+        for (Integer line : warningLines) {
+            assertEquals("Wrong hash code in line " + line, createExpectedHashCode(lines, line),
+                    hashCodes.get(line).intValue());
+        }
+    }
+
+    /**
+     * Verifies that the hash code of the file name is returned for all lines if the file does not exist.
+     */
+    @Test
+    public void shouldUseFileNameIfFileDoesNotExist() {
+        String fileName = "does/not/exist.txt";
+
+        Map<Integer, Integer> hashCodes = new ContextHashCode().compute(fileName, Lists.newArrayList(1, 2), ENCODING);
+
+        assertEquals("Wrong hash code: ", fileName.hashCode(), hashCodes.get(1).intValue());
+        assertEquals("Wrong hash code: ", fileName.hashCode(), hashCodes.get(2).intValue());
+    }
+
+    private int createExpectedHashCode(final List<String> content, final int line) {
+        StringBuilder context = new StringBuilder();
+        for (int i = 0; i < content.size(); i++) {
+            if (i >= line - LINES_LOOK_AHEAD) {
+                context.append(content.get(i));
+            }
+            if (i > line + LINES_LOOK_AHEAD) {
+                break;
+            }
+        }
+        return context.toString().hashCode();
+    }
+
+    private String getFileName() throws URISyntaxException, IOException {
+        return new File(ContextHashCodeTest.class.getResource("ActionBinding.cs").toURI()).getAbsolutePath();
+    }
+}
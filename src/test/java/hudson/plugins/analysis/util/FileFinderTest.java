@@ -0,0 +1,91 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link FileFinder}.
+ *
+ * @author agent
+ */
+public class FileFinderTest {
+    private static final String[] FILES = {
+            "pom.xml", "Foo.JAVA", "a b/pom.xml", "a/pom.xml", "a/b/c/d/pom.xml", "a/src/Foo.java",
+            "a/src/Foo.java~", "a/src/.DS_Store", "a/target/checkstyle-result.xml", "a/CVS/Bar.java", "a/#x#",
+            "b/c/target/checkstyle-result.xml", "target/report.xml", ".git/config", ".git/pom.xml", "a/.svn/pom.xml",
+            "node_modules/z/pom.xml", "node_modules/q.java", "dir.java/inner.java"};
+
+    /** Temporary folder for the workspace. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File workspace;
+
+    /**
+     * Creates the workspace files.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Before
+    public void createWorkspace() throws IOException {
+        workspace = folder.getRoot();
+        for (String file : FILES) {
+            FileUtils.writeStringToFile(new File(workspace, file), "content", "UTF-8");
+        }
+    }
+
+    /**
+     * Verifies that the same files are found as with an Ant directory scanner, both by scanning the workspace and by
+     * using a workspace snapshot.
+     */
+    @Test
+    public void shouldFindSameFilesAsAnt() {
+        verifyPattern("**/*.java", "");
+        verifyPattern("**/pom.xml", "");
+        verifyPattern("**/target/*.xml", "");
+        verifyPattern("**/pom.xml", "node_modules/**");
+        verifyPattern("*.xml, **/target/**", "");
+        verifyPattern("a/", "");
+        verifyPattern("**/*.java", "**/src/");
+        verifyPattern("**/p?m.xml", "");
+        verifyPattern("", "");
+        verifyPattern("a/*/pom.xml,  pom.xml", "a/b/**");
+        verifyPattern("**/*", "");
+        verifyPattern("**/CVS/**", "");
+        verifyPattern("**/node_modules/**/*.xml", "");
+    }
+
+    /**
+     * Verifies that a missing workspace results in an empty array.
+     */
+    @Test
+    public void shouldReturnEmptyArrayForMissingWorkspace() {
+        assertEquals("Wrong number of files: ", 0, new FileFinder().find(new File(workspace, "missing")).length);
+    }
+
+    private void verifyPattern(final String pattern, final String excludePattern) {
+        FileSet fileSet = new FileSet();
+        Project antProject = new Project();
+        fileSet.setProject(antProject);
+        fileSet.setDir(workspace);
+        fileSet.setIncludes(pattern);
+        fileSet.setExcludes(excludePattern);
+
+        String[] expected = fileSet.getDirectoryScanner(antProject).getIncludedFiles();
+        FileFinder finder = new FileFinder(pattern, excludePattern);
+        assertArrayEquals("Wrong files for pattern '" + pattern + "': ", expected, finder.find(workspace));
+        assertArrayEquals("Wrong files in snapshot for pattern '" + pattern + "': ",
+                expected, finder.find(WorkspaceSnapshot.create(workspace)));
+    }
+}
@@ -0,0 +1,157 @@
+package hudson.plugins.analysis.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.tools.tar.TarEntry;
+import org.apache.tools.tar.TarOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+
+import static org.junit.Assert.*;
+
+import hudson.FilePath;
+
+/**
+ * Tests the transfer of the source files of an agent in the class {@link Files}.
+ *
+ * @author agent
+ */
+public class FilesTest {
+    private static final String ENCODING = "UTF-8";
+    private static final String FIRST = "first.tmp";
+    private static final String SECOND = "second.tmp";
+    private static final String NOTE = "Copying the source file";
+
+    /** Temporary folder for the source files and the build folder. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the archived source files are extracted and that files that can't be read are replaced by a
+     * note.
+     *
+     * @throws Exception
+     *             if the files could not be copied
+     */
+    @Test
+    public void shouldCopyArchivedSources() throws Exception {
+        final Map<String, String> sources = Maps.newLinkedHashMap();
+        sources.put(FIRST, createSource("First.java", "first content").getAbsolutePath());
+        sources.put(SECOND, new File(folder.getRoot(), "Missing.java").getAbsolutePath());
+        File directory = folder.newFolder("workspace-files");
+
+        PipedInputStream input = new PipedInputStream();
+        final PipedOutputStream output = new PipedOutputStream(input);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<String, IOException>> archiver = executor.submit(new Callable<Map<String, IOException>>() {
+                @Override
+                public Map<String, IOException> call() throws IOException {
+                    return Files.writeArchive(sources, output);
+                }
+            });
+            new Files().copyArchivedSources(input, archiver, new FilePath(directory), sources, ENCODING);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("Wrong copy: ", "first content", read(directory, FIRST));
+        assertTrue("No note for missing file: ", read(directory, SECOND).startsWith(NOTE));
+    }
+
+    /**
+     * Verifies that an archive with a file that has not been requested is rejected: all files that have not been
+     * extracted yet are replaced by a note.
+     *
+     * @throws Exception
+     *             if the files could not be copied
+     */
+    @Test
+    public void shouldRejectUnexpectedFileInArchive() throws Exception {
+        Map<String, String> sources = Maps.newLinkedHashMap();
+        sources.put(FIRST, "/ws/First.java");
+        sources.put(SECOND, "/ws/Second.java");
+        File directory = folder.newFolder("workspace-files");
+
+        byte[] archive = createArchive(FIRST, "first content", "unexpected.tmp", "other content");
+        new Files().copyArchivedSources(new ByteArrayInputStream(archive), noFailures(), new FilePath(directory),
+                sources, ENCODING);
+
+        assertEquals("Wrong copy: ", "first content", read(directory, FIRST));
+        assertTrue("No note for rejected file: ", read(directory, SECOND).startsWith(NOTE));
+        assertFalse("Unexpected file extracted: ", new File(directory, "unexpected.tmp").exists());
+    }
+
+    /**
+     * Verifies that files that are missing in the archive are replaced by a note.
+     *
+     * @throws Exception
+     *             if the files could not be copied
+     */
+    @Test
+    public void shouldReportMissingFileInArchive() throws Exception {
+        Map<String, String> sources = Maps.newLinkedHashMap();
+        sources.put(FIRST, "/ws/First.java");
+        sources.put(SECOND, "/ws/Second.java");
+        File directory = folder.newFolder("workspace-files");
+
+        byte[] archive = createArchive(FIRST, "first content");
+        new Files().copyArchivedSources(new ByteArrayInputStream(archive), noFailures(), new FilePath(directory),
+                sources, ENCODING);
+
+        assertEquals("Wrong copy: ", "first content", read(directory, FIRST));
+        String note = read(directory, SECOND);
+        assertTrue("No note for missing file: ", note.startsWith(NOTE));
+        assertTrue("Wrong cause: ", note.contains("Missing file in source archive: " + SECOND));
+    }
+
+    private Future<Map<String, IOException>> noFailures() {
+        return Futures.immediateFuture(Maps.<String, IOException>newHashMap());
+    }
+
+    private File createSource(final String fileName, final String content) throws IOException {
+        File file = folder.newFile(fileName);
+        FileUtils.writeStringToFile(file, content, ENCODING);
+        return file;
+    }
+
+    private byte[] createArchive(final String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TarOutputStream archive = new TarOutputStream(new GZIPOutputStream(bytes));
+        try {
+            for (int index = 0; index < namesAndContents.length; index += 2) {
+                byte[] content = namesAndContents[index + 1].getBytes(ENCODING);
+                TarEntry entry = new TarEntry(namesAndContents[index]);
+                entry.setSize(content.length);
+                archive.putNextEntry(entry);
+                archive.write(content);
+                archive.closeEntry();
+            }
+        }
+        finally {
+            archive.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private String read(final File directory, final String fileName) throws IOException {
+        return FileUtils.readFileToString(new File(directory, fileName), ENCODING);
+    }
+}
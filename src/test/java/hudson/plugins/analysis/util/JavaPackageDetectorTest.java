@@ -2,11 +2,15 @@ package hudson.plugins.analysis.util;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  *  Tests the class {@link JavaPackageDetector}.
@@ -15,6 +19,10 @@ public class JavaPackageDetectorTest {
     /** The classifier under test. */
     private final JavaPackageDetector classifier = new JavaPackageDetector();
 
+    /** Temporary folder for the source files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Checks whether we could identify a java package name.
      *
@@ -74,6 +82,28 @@ public class JavaPackageDetectorTest {
         }
     }
 
+    /**
+     * Checks whether only the lines within the maximum number of bytes are scanned and whether the specified
+     * encoding is used.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReadOnlyHeaderOfFile() throws IOException {
+        String header = "// \u00dcbersicht\n/* comment */\n";
+        File file = folder.newFile("Header.java");
+        FileUtils.writeStringToFile(file, header + "package hudson.plugins.analysis;\n", "UTF-8");
+        int headerBytes = header.getBytes("UTF-8").length;
+
+        assertEquals("Wrong package name guessed.", "hudson.plugins.analysis",
+                new JavaPackageDetector(headerBytes + 1).detectPackageName(file.getAbsolutePath(), "UTF-8"));
+        assertEquals("Wrong package name guessed.", "-",
+                new JavaPackageDetector(headerBytes).detectPackageName(file.getAbsolutePath(), "UTF-8"));
+        assertEquals("Wrong package name guessed.", "hudson.plugins.analysis",
+                PackageDetectors.detectPackageName(file.getAbsolutePath(), "UTF-8"));
+    }
+
     /**
      * Checks whether we correctly accept C# files.
      */
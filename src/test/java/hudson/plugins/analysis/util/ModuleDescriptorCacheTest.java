@@ -0,0 +1,75 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link ModuleDescriptorCache}.
+ *
+ * @author agent
+ */
+public class ModuleDescriptorCacheTest {
+    private static final String ENCODING = "UTF-8";
+
+    /** Temporary folder for the workspace and the cache. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that unchanged descriptors are not parsed again and that changed descriptors are parsed again.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldParseOnlyChangedDescriptors() throws IOException {
+        File workspace = folder.newFolder("workspace");
+        File cacheFile = new File(folder.getRoot(), "cache/modules.bin");
+        writeDescriptor(workspace, "ant/build.xml", "<project name=\"ant-module\"/>");
+        writeDescriptor(workspace, "maven/pom.xml", "<project><artifactId>maven-module</artifactId></project>");
+
+        ModuleDescriptorCache initial = detectModules(workspace, cacheFile, "ant-module", "maven-module");
+        assertEquals("Wrong number of hits: ", 0, initial.getHits());
+        assertEquals("Wrong number of misses: ", 2, initial.getMisses());
+
+        ModuleDescriptorCache unchanged = detectModules(workspace, cacheFile, "ant-module", "maven-module");
+        assertEquals("Wrong number of hits: ", 2, unchanged.getHits());
+        assertEquals("Wrong number of misses: ", 0, unchanged.getMisses());
+
+        writeDescriptor(workspace, "maven/pom.xml", "<project><name>Changed Maven Module</name></project>");
+        ModuleDescriptorCache changed = detectModules(workspace, cacheFile, "ant-module", "Changed Maven Module");
+        assertEquals("Wrong number of hits: ", 1, changed.getHits());
+        assertEquals("Wrong number of misses: ", 1, changed.getMisses());
+    }
+
+    private ModuleDescriptorCache detectModules(final File workspace, final File cacheFile,
+            final String expectedAntModule, final String expectedMavenModule) {
+        ModuleDescriptorCache cache = ModuleDescriptorCache.load(cacheFile);
+        ModuleDetector detector = new ModuleDetector(workspace, null, cache, 2);
+        cache.save();
+
+        assertEquals("Wrong module guessed", expectedAntModule,
+                detector.guessModuleName(new File(workspace, "ant/Something.java").getAbsolutePath()));
+        assertEquals("Wrong module guessed", expectedMavenModule,
+                detector.guessModuleName(new File(workspace, "maven/Something.java").getAbsolutePath()));
+
+        return cache;
+    }
+
+    private void writeDescriptor(final File workspace, final String fileName, final String content)
+            throws IOException {
+        File descriptor = new File(workspace, fileName);
+        boolean isChanged = descriptor.exists();
+        FileUtils.writeStringToFile(descriptor, content, ENCODING);
+        if (isChanged) {
+            descriptor.setLastModified(descriptor.lastModified() + 2000);
+        }
+    }
+}
@@ -206,6 +206,34 @@ public class ModuleDetectorTest {
         verifyModuleName(detector, EXPECTED_MAVEN_MODULE, PATH_PREFIX_MAVEN + "/something.txt");
     }
 
+    /**
+     * Checks whether the module of the innermost project is used for nested projects, also if the module of the
+     * directory has been cached already.
+     *
+     * @throws FileNotFoundException
+     *             should never happen
+     */
+    @Test
+    public void testNestedModules() throws FileNotFoundException {
+        String ant = "nested/" + ModuleDetector.ANT_PROJECT;
+        String maven = "nested/maven/" + ModuleDetector.MAVEN_POM;
+
+        FileInputStreamFactory factory = mock(FileInputStreamFactory.class);
+        when(factory.create(PREFIX + ant)).thenReturn(read(ModuleDetector.ANT_PROJECT));
+        when(factory.create(PREFIX + maven)).thenReturn(read(ModuleDetector.MAVEN_POM));
+
+        when(factory.find((File)anyObject(), anyString())).thenReturn(new String[] {ant, maven});
+        ModuleDetector detector = createDetectorUnderTest(factory);
+
+        for (int i = 0; i < 2; i++) {
+            verifyModuleName(detector, EXPECTED_ANT_MODULE, "nested/something.txt");
+            verifyModuleName(detector, EXPECTED_ANT_MODULE, "nested/mav/something.txt");
+            verifyModuleName(detector, EXPECTED_MAVEN_MODULE, "nested/maven/something.txt");
+            verifyModuleName(detector, EXPECTED_MAVEN_MODULE, "nested/maven/src/main/java/something.txt");
+            verifyModuleName(detector, StringUtils.EMPTY, "other/something.txt");
+        }
+    }
+
     /**
      * Checks whether maven has precedence over ant.
      *
@@ -0,0 +1,117 @@
+package hudson.plugins.analysis.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link SourceStore}.
+ *
+ * @author agent
+ */
+public class SourceStoreTest {
+    private static final String ENCODING = "UTF-8";
+    private static final String UNCHANGED = "1a2b3c.tmp";
+    private static final String CHANGED = "4d5e6f.tmp";
+
+    /** Temporary folder for the builds and the store. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that equal copies of several builds are stored only once and that a stored copy is deleted with the
+     * last build that references it.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldStoreEqualCopiesOnlyOnce() throws IOException {
+        SourceStore store = new SourceStore(folder.newFolder("store"));
+        File first = createBuild("1", "class Unchanged {}", "class Changed {}");
+        File second = createBuild("2", "class Unchanged {}", "class Changed { int value; }");
+
+        store.absorb(first);
+        store.absorb(second);
+
+        File unchanged = store.resolve(first, UNCHANGED);
+        assertEquals("Wrong stored copy: ", unchanged, store.resolve(second, UNCHANGED));
+        assertFalse("Copy not moved to store: ", new File(first, UNCHANGED).exists());
+        assertEquals("Wrong content: ", "class Unchanged {}", FileUtils.readFileToString(unchanged, ENCODING));
+        assertEquals("Wrong number of references: ", 2, store.getReferences(unchanged.getName()));
+
+        File changed = store.resolve(second, CHANGED);
+        assertFalse("Changed copies are equal: ", changed.equals(store.resolve(first, CHANGED)));
+        assertEquals("Wrong content: ", "class Changed { int value; }", FileUtils.readFileToString(changed, ENCODING));
+
+        store.release(first);
+        assertTrue("Referenced copy deleted: ", unchanged.exists());
+        assertEquals("Wrong number of references: ", 1, store.getReferences(unchanged.getName()));
+
+        store.release(second);
+        assertFalse("Unreferenced copy not deleted: ", unchanged.exists());
+        assertFalse("Unreferenced copy not deleted: ", changed.exists());
+        assertEquals("Wrong number of references: ", 0, store.getReferences(unchanged.getName()));
+    }
+
+    /**
+     * Verifies that a build that references the copies of another build keeps the stored copies alive and that
+     * copies without index are resolved in the folder of the build.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldResolveReferencedAndLegacyCopies() throws IOException {
+        SourceStore store = new SourceStore(folder.newFolder("store"));
+        File module = createBuild("module", "class Unchanged {}", "class Changed {}");
+        File aggregation = folder.newFolder("aggregation");
+
+        store.absorb(module);
+        store.addReferences(module, aggregation);
+        store.addReferences(module, aggregation);
+
+        File unchanged = store.resolve(aggregation, UNCHANGED);
+        assertEquals("Wrong stored copy: ", store.resolve(module, UNCHANGED), unchanged);
+        assertEquals("Wrong number of references: ", 2, store.getReferences(unchanged.getName()));
+
+        store.release(module);
+        assertEquals("Wrong content: ", "class Unchanged {}", FileUtils.readFileToString(unchanged, ENCODING));
+
+        File legacy = createBuild("legacy", "class Unchanged {}", "class Changed {}");
+        assertEquals("Wrong legacy copy: ", new File(legacy, UNCHANGED), store.resolve(legacy, UNCHANGED));
+    }
+
+    /**
+     * Verifies that a stored copy with an unknown number of references is not deleted.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldKeepCopyWithUnknownReferences() throws IOException {
+        File storeFolder = folder.newFolder("store");
+        SourceStore store = new SourceStore(storeFolder);
+        File build = createBuild("build", "class Unchanged {}", "class Changed {}");
+
+        store.absorb(build);
+        File unchanged = store.resolve(build, UNCHANGED);
+        assertTrue("Reference counts not written: ", new File(storeFolder, "references.dat").delete());
+
+        store.release(build);
+        assertTrue("Copy with unknown references deleted: ", unchanged.exists());
+    }
+
+    private File createBuild(final String name, final String unchanged, final String changed) throws IOException {
+        File build = folder.newFolder(name);
+        FileUtils.writeStringToFile(new File(build, UNCHANGED), unchanged, ENCODING);
+        FileUtils.writeStringToFile(new File(build, CHANGED), changed, ENCODING);
+        return build;
+    }
+}
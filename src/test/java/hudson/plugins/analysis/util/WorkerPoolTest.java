@@ -0,0 +1,200 @@
+package hudson.plugins.analysis.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link WorkerPool}.
+ *
+ * @author agent
+ */
+public class WorkerPoolTest {
+    private static final int TASKS = 20;
+    private static final long TIMEOUT = 10;
+
+    /**
+     * Verifies that the results are returned in the order of the tasks, regardless of the parallelism.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldReturnResultsInOrderOfTasks() throws Exception {
+        List<Callable<Integer>> tasks = Lists.newArrayList();
+        for (int i = 0; i < TASKS; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws InterruptedException {
+                    Thread.sleep(TASKS - value);
+                    return value;
+                }
+            });
+        }
+
+        for (int parallelism : new int[] {0, 1, 4}) {
+            List<Integer> results = new WorkerPool("test", parallelism).invokeAll(tasks);
+
+            assertEquals("Wrong number of results: ", TASKS, results.size());
+            for (int i = 0; i < TASKS; i++) {
+                assertEquals("Wrong result: ", Integer.valueOf(i), results.get(i));
+            }
+        }
+    }
+
+    /**
+     * Verifies that the exception of a failed task is propagated as cause of an {@link ExecutionException}.
+     *
+     * @throws InterruptedException
+     *             in case of an error
+     */
+    @Test
+    public void shouldPropagateFailure() throws InterruptedException {
+        List<Callable<String>> tasks = Lists.newArrayList();
+        tasks.add(createTask("ok"));
+        tasks.add(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                throw new IOException("failed");
+            }
+        });
+
+        for (int parallelism : new int[] {1, 2}) {
+            try {
+                new WorkerPool("test", parallelism).invokeAll(tasks);
+
+                fail("Failure of task not propagated");
+            }
+            catch (ExecutionException exception) {
+                assertTrue("Wrong cause: ", exception.getCause() instanceof IOException);
+                assertEquals("Wrong message: ", "failed", exception.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Verifies that an interrupted calling thread stops the sequential execution.
+     *
+     * @throws ExecutionException
+     *             in case of an error
+     */
+    @Test
+    public void shouldStopSequentialExecutionIfInterrupted() throws ExecutionException {
+        List<Callable<String>> tasks = Lists.newArrayList();
+        tasks.add(createTask("never"));
+
+        Thread.currentThread().interrupt();
+        try {
+            new WorkerPool("test", WorkerPool.SEQUENTIAL).invokeAll(tasks);
+
+            fail("Interrupt not propagated");
+        }
+        catch (InterruptedException exception) {
+            assertFalse("Interrupt flag not cleared: ", Thread.currentThread().isInterrupted());
+        }
+    }
+
+    /**
+     * Verifies that interrupting the calling thread cancels the running tasks and shuts down the worker threads.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldCancelTasksIfInterrupted() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch canceled = new CountDownLatch(2);
+        List<Callable<String>> tasks = Lists.newArrayList();
+        for (int i = 0; i < 2; i++) {
+            tasks.add(new Callable<String>() {
+                @Override
+                public String call() throws InterruptedException {
+                    started.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                        return "not canceled";
+                    }
+                    finally {
+                        canceled.countDown();
+                    }
+                }
+            });
+        }
+
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        final List<Callable<String>> allTasks = tasks;
+        Thread caller = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    new WorkerPool("test", 2).invokeAll(allTasks);
+                }
+                catch (Throwable exception) { // NOCHECKSTYLE
+                    thrown.set(exception);
+                }
+            }
+        };
+        caller.start();
+
+        assertTrue("Tasks not started: ", started.await(TIMEOUT, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+
+        assertFalse("Caller still running: ", caller.isAlive());
+        assertTrue("Wrong exception: ", thrown.get() instanceof InterruptedException);
+        assertTrue("Tasks not canceled: ", canceled.await(TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Verifies that the worker threads are terminated after all tasks have been executed.
+     *
+     * @throws Exception
+     *             in case of an error
+     */
+    @Test
+    public void shouldShutDownWorkerThreads() throws Exception {
+        final List<Thread> workers = new CopyOnWriteArrayList<Thread>();
+        List<Callable<String>> tasks = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(new Callable<String>() {
+                @Override
+                public String call() {
+                    workers.add(Thread.currentThread());
+                    return Thread.currentThread().getName();
+                }
+            });
+        }
+
+        List<String> names = new WorkerPool("worker", 2).invokeAll(tasks);
+
+        for (String name : names) {
+            assertTrue("Wrong thread name: " + name, name.startsWith("worker"));
+        }
+        for (Thread worker : workers) {
+            assertNotSame("Task executed in calling thread: ", Thread.currentThread(), worker);
+            worker.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+            assertFalse("Worker thread still running: ", worker.isAlive());
+        }
+    }
+
+    private Callable<String> createTask(final String result) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return result;
+            }
+        };
+    }
+}
@@ -1,14 +1,25 @@
 package hudson.plugins.analysis.util.model;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.google.common.collect.Lists;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.analysis.util.SourceStore;
 
 /**
  * Tests the class {@link AbstractAnnotation}.
@@ -16,6 +27,60 @@ import static org.junit.Assert.*;
  * @author Ulli Hafner
  */
 public class AbstractAnnotationTest {
+    private static final String SOURCE = "class Source {}";
+    private static final String ENCODING = "UTF-8";
+
+    /** Temporary folder for the jobs and builds. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that the copy of a source file is found by the build of a Maven module and by the build of the Maven
+     * job after the copy has been moved to the store of the Maven job and referenced by the Maven build.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    @SuppressWarnings("rawtypes")
+    public void shouldFindSourceOfMavenModuleAfterAbsorb() throws IOException {
+        Job mavenJob = mockJob(folder.newFolder("maven"), mock(ItemGroup.class));
+        Job moduleJob = mockJob(folder.newFolder("module"), mavenJob);
+        Run mavenBuild = mockBuild(folder.newFolder("maven-build"), mavenJob);
+        Run moduleBuild = mockBuild(folder.newFolder("module-build"), moduleJob);
+
+        Warning warning = createWarning(1, "/workspace/Source.java", 1, 1);
+        File copy = new File(warning.getTempName(moduleBuild));
+        assertEquals("Wrong folder of copy: ", SourceStore.getFolder(moduleBuild), copy.getParentFile());
+        FileUtils.writeStringToFile(copy, SOURCE, ENCODING);
+
+        SourceStore.absorb(moduleBuild);
+        SourceStore.of(mavenBuild).addReferences(SourceStore.getFolder(moduleBuild), SourceStore.getFolder(mavenBuild));
+
+        assertFalse("Copy not moved to store: ", copy.exists());
+        File stored = new File(warning.getTempName(mavenBuild));
+        assertEquals("Wrong stored copy: ", new File(warning.getTempName(moduleBuild)), stored);
+        assertTrue("Stored copy not in store of Maven job: ",
+                stored.getPath().startsWith(new File(folder.getRoot(), "maven").getPath()));
+        assertEquals("Wrong content: ", SOURCE, FileUtils.readFileToString(stored, ENCODING));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Job mockJob(final File rootDir, final ItemGroup parent) {
+        Job job = mock(Job.class);
+        when(job.getRootDir()).thenReturn(rootDir);
+        when(job.getParent()).thenReturn(parent);
+        return job;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Run mockBuild(final File rootDir, final Job job) {
+        Run build = mock(Run.class);
+        when(build.getRootDir()).thenReturn(rootDir);
+        when(build.getParent()).thenReturn(job);
+        return build;
+    }
+
     /**
      * Verifies that the comparator sorts by filename, then linenumber, then column.
      */
@@ -0,0 +1,137 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link AnnotationDelta}.
+ *
+ * @author agent
+ */
+public class AnnotationDeltaTest {
+    /**
+     * Verifies that the annotations of a build are restored with their original keys by applying the delta to the
+     * annotations of the reference build and that unchanged annotations are not stored in the delta.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldRestoreAnnotations() throws IOException {
+        Warning unchanged = createWarning("unchanged", 1);
+        Warning fixed = createWarning("fixed", 2);
+        List<FileAnnotation> reference = Arrays.<FileAnnotation>asList(unchanged, fixed);
+
+        Warning copy = createWarning("unchanged", 1);
+        Warning added = createWarning("added", 3);
+        FileAnnotation[] annotations = {copy, added};
+
+        AnnotationDelta delta = AnnotationDelta.create(42, 2, annotations, reference);
+
+        assertEquals("Wrong reference build: ", 42, delta.getReferenceBuild());
+        assertEquals("Wrong chain length: ", 2, delta.getChainLength());
+        assertEquals("Wrong number of changes: ", 2, delta.getNumberOfChanges());
+
+        FileAnnotation[] restored = delta.apply(reference);
+
+        assertEquals("Wrong annotations: ", Sets.newHashSet(annotations), Sets.newHashSet(restored));
+        assertEquals("Wrong number of annotations: ", 2, restored.length);
+        assertSame("Unchanged annotation not reused: ", unchanged, restored[0]);
+        assertEquals("Wrong key of unchanged annotation: ", copy.getKey(), restored[0].getKey());
+        assertSame("Added annotation not stored: ", added, restored[1]);
+        assertEquals("Wrong key of added annotation: ", added.getKey(), restored[1].getKey());
+    }
+
+    /**
+     * Verifies that a delta can't be applied to annotations that miss an unchanged annotation.
+     */
+    @Test
+    public void shouldRejectMissingReferenceAnnotations() {
+        List<FileAnnotation> reference = Arrays.<FileAnnotation>asList(createWarning("unchanged", 1));
+        AnnotationDelta delta = AnnotationDelta.create(1, 1, new FileAnnotation[] {createWarning("unchanged", 1)},
+                reference);
+
+        try {
+            delta.apply(Arrays.<FileAnnotation>asList(createWarning("unchanged", 1)));
+
+            fail("Missing annotation not detected");
+        }
+        catch (IOException exception) {
+            assertTrue("Wrong message: ", exception.getMessage().contains("misses 1 annotations"));
+        }
+    }
+
+    /**
+     * Verifies that an annotation that is equal to an annotation of the reference build but differs in another field
+     * is stored in the delta, so that the restored annotation has the values of the build.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldStoreChangedFields() throws IOException {
+        Warning original = createWarning("warning", 1);
+        original.setAuthorName("before");
+        List<FileAnnotation> reference = Arrays.<FileAnnotation>asList(original);
+
+        Warning changed = createWarning("warning", 1);
+        changed.setAuthorName("after");
+
+        AnnotationDelta delta = AnnotationDelta.create(1, 1, new FileAnnotation[] {changed}, reference);
+
+        assertEquals("Wrong number of changes: ", 2, delta.getNumberOfChanges());
+
+        FileAnnotation[] restored = delta.apply(reference);
+
+        assertEquals("Wrong number of annotations: ", 1, restored.length);
+        assertEquals("Wrong author: ", "after", restored[0].getAuthorName());
+    }
+
+    /**
+     * Verifies that each annotation of the reference build is reused at most once.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReuseReferenceAnnotationOnce() throws IOException {
+        List<FileAnnotation> reference = Arrays.<FileAnnotation>asList(createWarning("warning", 1));
+
+        FileAnnotation[] annotations = {createWarning("warning", 1), createWarning("warning", 1)};
+        AnnotationDelta delta = AnnotationDelta.create(1, 1, annotations, reference);
+
+        assertEquals("Wrong number of changes: ", 1, delta.getNumberOfChanges());
+        assertEquals("Wrong number of annotations: ", 2, delta.apply(reference).length);
+    }
+
+    private Warning createWarning(final String message, final int line) {
+        Warning warning = new Warning(message, line);
+        warning.setFileName("/path/to/File.java");
+        warning.setModuleName("core");
+        return warning;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -3426402532457512097L;
+
+        Warning(final String message, final int line) {
+            super(Priority.NORMAL, message, line, line, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
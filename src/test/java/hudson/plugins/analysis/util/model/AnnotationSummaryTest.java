@@ -0,0 +1,102 @@
+package hudson.plugins.analysis.util.model;
+
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link AnnotationSummary}.
+ *
+ * @author agent
+ */
+public class AnnotationSummaryTest {
+    /**
+     * Verifies that the summary provides the same numbers of annotations as the container.
+     */
+    @Test
+    public void shouldSummarizeContainer() {
+        JavaProject project = new JavaProject();
+        project.addAnnotation(createWarning(Priority.HIGH, "core", "C:\\path\\to\\First.java", 1));
+        project.addAnnotation(createWarning(Priority.LOW, "core", "/path/to/First.java", 2));
+        project.addAnnotation(createWarning(Priority.LOW, "core", "/path/to/First.java", 3));
+        project.addAnnotation(createWarning(Priority.NORMAL, "tasks", "/path/to/Second.java", 4));
+
+        AnnotationSummary summary = new AnnotationSummary(project);
+
+        assertEquals("Wrong number of annotations: ", 4, summary.getNumberOfAnnotations());
+        assertEquals("Wrong number of high annotations: ", 1, summary.getNumberOfHighAnnotations());
+        assertEquals("Wrong number of normal annotations: ", 1, summary.getNumberOfNormalAnnotations());
+        assertEquals("Wrong number of low annotations: ", 2, summary.getNumberOfLowAnnotations());
+
+        verifyElements(project.getModules(), summary.getModules());
+        verifyElements(project.getPackages(), summary.getPackages());
+        verifyElements(project.getFiles(), summary.getFiles());
+        verifyElements(project.getCategories(), summary.getCategories());
+        verifyElements(project.getTypes(), summary.getTypes());
+        verifyElements(project.getAuthors(), summary.getAuthors());
+
+        assertEquals("Wrong upper bound: ", 3, summary.getUpperBound(summary.getModules()));
+        assertEquals("Wrong short name: ", "First.java", summary.getFiles().get(0).getShortName());
+        assertEquals("Wrong package category: ", project.getPackageCategoryName(), summary.getPackageCategoryName());
+    }
+
+    /**
+     * Verifies that the summary of an empty container has no elements.
+     */
+    @Test
+    public void shouldSummarizeEmptyContainer() {
+        AnnotationSummary summary = new AnnotationSummary(new JavaProject());
+
+        assertEquals("Wrong number of annotations: ", 0, summary.getNumberOfAnnotations());
+        assertTrue("Summary has modules: ", summary.getModules().isEmpty());
+        assertEquals("Wrong upper bound: ", 0, summary.getUpperBound(summary.getFiles()));
+        assertFalse("Representative is not empty: ", summary.createRepresentativeContainer().hasAnnotations());
+    }
+
+    private void verifyElements(final Iterable<? extends AnnotationContainer> expected,
+            final List<AnnotationSummary.Element> actual) {
+        int position = 0;
+        for (AnnotationContainer container : expected) {
+            AnnotationSummary.Element element = actual.get(position);
+            assertEquals("Wrong name: ", container.getName(), element.getName());
+            assertEquals("Wrong number of annotations: ", container.getNumberOfAnnotations(),
+                    element.getNumberOfAnnotations());
+            assertEquals("Wrong number of high annotations: ", container.getNumberOfHighAnnotations(),
+                    element.getNumberOfHighAnnotations());
+            assertEquals("Wrong number of normal annotations: ", container.getNumberOfNormalAnnotations(),
+                    element.getNumberOfNormalAnnotations());
+            assertEquals("Wrong number of low annotations: ", container.getNumberOfLowAnnotations(),
+                    element.getNumberOfLowAnnotations());
+            assertEquals("Wrong tooltip: ", container.getToolTip(), element.getToolTip());
+            position++;
+        }
+        assertEquals("Wrong number of elements: ", position, actual.size());
+    }
+
+    private Warning createWarning(final Priority priority, final String moduleName, final String fileName,
+            final int line) {
+        Warning warning = new Warning(priority, "message " + line, line);
+        warning.setModuleName(moduleName);
+        warning.setFileName(fileName);
+        return warning;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = -8043519848474622484L;
+
+        Warning(final Priority priority, final String message, final int line) {
+            super(priority, message, line, line, "category", "type " + priority);
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}
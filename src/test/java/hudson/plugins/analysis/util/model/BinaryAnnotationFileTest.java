@@ -0,0 +1,287 @@
+package hudson.plugins.analysis.util.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the class {@link BinaryAnnotationFile}.
+ *
+ * @author agent
+ */
+public class BinaryAnnotationFileTest {
+    /** Temporary folder for the data file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Verifies that all persistent fields of the annotations are restored, including the fields of subclasses.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldRestoreAllFields() throws IOException {
+        Warning first = createWarning(Priority.HIGH, "first", "/path/to/First.java", 10, 42L);
+        first.setAuthorName("author");
+        Warning second = createWarning(Priority.LOW, "second", "/path/to/Second.java", 20, 43L);
+        Task task = new Task("TODO");
+        task.setFileName("/path/to/First.java");
+
+        BinaryAnnotationFile file = new BinaryAnnotationFile(new File(folder.getRoot(), "warnings.bin"),
+                getClass().getClassLoader());
+        file.write(new FileAnnotation[] {first, second, task});
+        FileAnnotation[] annotations = file.read();
+
+        assertEquals("Wrong number of annotations: ", 3, annotations.length);
+        verifyWarning(first, annotations[0]);
+        verifyWarning(second, annotations[1]);
+        assertEquals("Wrong author: ", "author", annotations[0].getAuthorName());
+
+        assertSame("Wrong class: ", Task.class, annotations[2].getClass());
+        assertEquals("Wrong tag: ", "TODO", ((Task)annotations[2]).tag);
+        assertEquals("Wrong file name: ", "/path/to/First.java", annotations[2].getFileName());
+        assertSame("Category not shared: ", annotations[0].getCategory(), annotations[1].getCategory());
+    }
+
+    /**
+     * Verifies that an empty set of annotations is stored.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldStoreEmptyAnnotations() throws IOException {
+        BinaryAnnotationFile file = new BinaryAnnotationFile(new File(folder.getRoot(), "empty.bin"),
+                getClass().getClassLoader());
+        assertFalse("File exists: ", file.exists());
+
+        file.write(new FileAnnotation[0]);
+
+        assertTrue("File not written: ", file.exists());
+        assertEquals("Wrong number of annotations: ", 0, file.read().length);
+    }
+
+    /**
+     * Verifies that the positions of the index select the annotations of a module, package, file, category, or author
+     * and that only these annotations are read.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldReadIndexedAnnotations() throws IOException {
+        Warning first = createWarning(Priority.HIGH, "first", "C:\\path\\to\\First.java", 10, 42L);
+        first.setModuleName("core");
+        first.setPackageName("hudson.core");
+        Warning second = createWarning(Priority.LOW, "second", "/path/to/Second.java", 20, 43L);
+        second.setModuleName("core");
+        second.setAuthorName("author");
+        Task task = new Task("TODO");
+        task.setFileName("/path/to/Second.java");
+        task.setModuleName("tasks");
+        FileAnnotation[] annotations = {first, second, task};
+
+        BinaryAnnotationFile file = new BinaryAnnotationFile(new File(folder.getRoot(), "warnings.bin"),
+                getClass().getClassLoader());
+        file.write(annotations);
+        File indexFile = new File(folder.getRoot(), "warnings.idx");
+        AnnotationIndex.create(annotations).write(indexFile);
+        AnnotationIndex index = AnnotationIndex.read(indexFile);
+
+        assertEquals("Wrong number of annotations: ", 3, index.size());
+        assertArrayEquals("Wrong module: ", new int[] {0, 1}, index.getModule("core".hashCode()));
+        assertArrayEquals("Wrong package: ", new int[] {0}, index.getPackage("hudson.core".hashCode()));
+        assertArrayEquals("Wrong package: ", new int[] {1, 2}, index.getPackage("-".hashCode()));
+        assertArrayEquals("Wrong file: ", new int[] {0},
+                index.getFile(new WorkspaceFile(first.getFileName()).getName().hashCode()));
+        assertArrayEquals("Wrong category: ", new int[] {2}, index.getCategory("tasks".hashCode()));
+        assertArrayEquals("Wrong type: ", new int[] {2}, index.getType("TODO".hashCode()));
+        assertArrayEquals("Wrong author: ", new int[] {1}, index.getAuthor("author".hashCode()));
+        assertArrayEquals("Wrong annotation: ", new int[] {2}, index.getAnnotation(task.getKey()));
+        assertArrayEquals("Wrong module: ", new int[0], index.getModule("unknown".hashCode()));
+
+        FileAnnotation[] selected = file.read(index.getFile(new WorkspaceFile(task.getFileName()).getName().hashCode()));
+
+        assertEquals("Wrong number of annotations: ", 2, selected.length);
+        verifyWarning(second, selected[0]);
+        assertEquals("Wrong tag: ", "TODO", ((Task)selected[1]).tag);
+        assertEquals("Wrong annotation: ", task, selected[1]);
+    }
+
+    /**
+     * Verifies that annotations with a field of an unsupported type are not written.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldRejectUnsupportedFields() throws IOException {
+        TaggedWarning warning = new TaggedWarning();
+        warning.tags = Lists.newArrayList("one", "two");
+
+        BinaryAnnotationFile file = new BinaryAnnotationFile(new File(folder.getRoot(), "warnings.bin"),
+                getClass().getClassLoader());
+        try {
+            file.write(new FileAnnotation[] {warning});
+
+            fail("Unsupported field written");
+        }
+        catch (NotSerializableException exception) {
+            assertFalse("File written: ", file.exists());
+        }
+    }
+
+    /**
+     * Verifies that a file that refers to a class that is not an annotation class is rejected.
+     *
+     * @throws IOException
+     *             in case of an error
+     */
+    @Test
+    public void shouldRejectOtherClasses() throws IOException {
+        File data = new File(folder.getRoot(), "warnings.bin");
+        BinaryAnnotationFile file = new BinaryAnnotationFile(data, getClass().getClassLoader());
+        file.write(new FileAnnotation[] {new Task("TODO")});
+
+        InflaterInputStream input = new InflaterInputStream(new FileInputStream(data));
+        byte[] content;
+        try {
+            content = IOUtils.toByteArray(input);
+        }
+        finally {
+            input.close();
+        }
+        replace(content, Task.class.getName(), Tusk.class.getName());
+        DeflaterOutputStream output = new DeflaterOutputStream(new FileOutputStream(data));
+        try {
+            output.write(content);
+        }
+        finally {
+            output.close();
+        }
+
+        try {
+            file.read();
+
+            fail("Other class accepted");
+        }
+        catch (IOException exception) {
+            assertTrue("Wrong cause: ", exception.getCause() instanceof InvalidClassException);
+        }
+    }
+
+    private void replace(final byte[] content, final String name, final String replacement) {
+        byte[] search = name.getBytes(Charsets.UTF_8);
+        int position = Bytes.indexOf(content, search);
+        assertTrue("Class name not found: ", position >= 0);
+        System.arraycopy(replacement.getBytes(Charsets.UTF_8), 0, content, position, search.length);
+    }
+
+    private void verifyWarning(final FileAnnotation expected, final FileAnnotation actual) {
+        assertSame("Wrong class: ", expected.getClass(), actual.getClass());
+        assertEquals("Wrong key: ", expected.getKey(), actual.getKey());
+        assertEquals("Wrong message: ", expected.getMessage(), actual.getMessage());
+        assertEquals("Wrong priority: ", expected.getPriority(), actual.getPriority());
+        assertEquals("Wrong file name: ", expected.getFileName(), actual.getFileName());
+        assertEquals("Wrong line ranges: ", expected.getLineRanges(), actual.getLineRanges());
+        assertEquals("Wrong primary line: ", expected.getPrimaryLineNumber(), actual.getPrimaryLineNumber());
+        assertEquals("Wrong column start: ", expected.getColumnStart(), actual.getColumnStart());
+        assertEquals("Wrong column end: ", expected.getColumnEnd(), actual.getColumnEnd());
+        assertEquals("Wrong build: ", expected.getBuild(), actual.getBuild());
+        assertEquals("Wrong context hash code: ", expected.getContextHashCode(), actual.getContextHashCode());
+        assertEquals("Wrong category: ", expected.getCategory(), actual.getCategory());
+        assertEquals("Wrong type: ", expected.getType(), actual.getType());
+        assertEquals("Wrong annotation: ", expected, actual);
+    }
+
+    private Warning createWarning(final Priority priority, final String message, final String fileName,
+            final int line, final long contextHashCode) {
+        Warning warning = new Warning(priority, message, line);
+        warning.setFileName(fileName);
+        warning.setColumnPosition(line + 1, line + 2);
+        warning.setBuild(line);
+        warning.setContextHashCode(contextHashCode);
+        return warning;
+    }
+
+    /**
+     * A concrete warning.
+     */
+    private static class Warning extends AbstractAnnotation {
+        private static final long serialVersionUID = 3117397440713806713L;
+
+        Warning(final Priority priority, final String message, final int line) {
+            super(priority, message, line, line, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+
+    /**
+     * A warning with a field of a type that is not supported by the binary file.
+     */
+    private static class TaggedWarning extends AbstractAnnotation {
+        private static final long serialVersionUID = -5186127651307409716L;
+
+        private List<String> tags;
+
+        TaggedWarning() {
+            super(Priority.NORMAL, "tagged", 1, 1, "category", "type");
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+
+    /**
+     * A class with the same fields as {@link Task} that is not an annotation.
+     */
+    @SuppressWarnings("unused")
+    private static class Tusk {
+        private String tag;
+    }
+
+    /**
+     * Another annotation class with an additional string field.
+     */
+    private static class Task extends AbstractAnnotation {
+        private static final long serialVersionUID = -5546238930254870815L;
+
+        private final String tag;
+
+        Task(final String tag) {
+            super(Priority.NORMAL, "task", 1, 1, "tasks", tag);
+
+            this.tag = tag;
+        }
+
+        @Override
+        public String getToolTip() {
+            return StringUtils.EMPTY;
+        }
+    }
+}